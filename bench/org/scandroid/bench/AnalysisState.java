@@ -0,0 +1,218 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.bench;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.scandroid.spec.AndroidSpecs;
+import org.scandroid.spec.CallArgSinkSpec;
+import org.scandroid.spec.CallArgSourceSpec;
+import org.scandroid.spec.CallRetSourceSpec;
+import org.scandroid.spec.ISpecs;
+import org.scandroid.spec.MethodNamePattern;
+import org.scandroid.spec.SinkSpec;
+import org.scandroid.spec.SourceSpec;
+import org.scandroid.spec.SpecUtils;
+import org.scandroid.synthmethod.DefaultSCanDroidOptions;
+import org.scandroid.util.AndroidAnalysisContext;
+import org.scandroid.util.CGAnalysisContext;
+import org.scandroid.util.EntryPoints;
+import org.scandroid.util.IEntryPointSpecifier;
+import org.scandroid.util.LoaderUtils;
+
+import com.google.common.collect.Lists;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.types.ClassLoaderReference;
+
+/**
+ * Loads the app and the Android library, and picks entry points and specs.
+ * The states of the later pipeline stages extend this one and override
+ * {@link #prepare()}, so each benchmark starts from the output of the stage
+ * before it. JMH does not order the setup methods of a state hierarchy, hence
+ * the single {@link Setup} method here.
+ * 
+ * The defaults analyze the bundled test dex; pass
+ * <code>-p app=data/testdata/ReadsContactApp.apk -p entrypoints=appmodel</code>
+ * to benchmark an apk through the app model instead.
+ */
+@State(Scope.Benchmark)
+public class AnalysisState {
+	/**
+	 * the jar, dex or apk to analyze
+	 */
+	@Param("data/testdata/testJar-1.0-SNAPSHOT.dex")
+	public String app;
+
+	@Param("data/android_modeled.jar")
+	public String androidLib;
+
+	/**
+	 * <code>public</code> for every public method of the app, or
+	 * <code>appmodel</code> for the synthetic app model entry
+	 */
+	@Param("public")
+	public String entrypoints;
+
+	@Param("1")
+	public int ifdsThreads;
+
+	public AndroidAnalysisContext analysisContext;
+	public List<Entrypoint> entries;
+	public ISpecs specs;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		loadApp();
+		prepare();
+	}
+
+	/**
+	 * Run the pipeline stages before the one being measured
+	 */
+	protected void prepare() throws Exception {
+	}
+
+	private void loadApp() throws Exception {
+		final URI appURI = new File(app).toURI();
+		final URI libURI = new File(androidLib).toURI();
+		analysisContext = new AndroidAnalysisContext(
+				new DefaultSCanDroidOptions() {
+					@Override
+					public URI getClasspath() {
+						return appURI;
+					}
+
+					@Override
+					public URI getAndroidLibrary() {
+						return libURI;
+					}
+
+					@Override
+					public boolean stdoutCG() {
+						return false;
+					}
+
+					@Override
+					public int ifdsThreads() {
+						return ifdsThreads;
+					}
+				});
+
+		final ClassHierarchy cha = analysisContext.getClassHierarchy();
+		if ("appmodel".equals(entrypoints)) {
+			entries = EntryPoints.appModelEntry(cha);
+		} else if ("public".equals(entrypoints)) {
+			entries = publicEntryPoints(cha);
+		} else {
+			throw new IllegalArgumentException("unknown entry points: "
+					+ entrypoints);
+		}
+
+		specs = SpecUtils.combine(new AndroidSpecs(), new ISpecs() {
+			@Override
+			public SourceSpec[] getSourceSpecs() {
+				return new SourceSpec[] {
+						new CallArgSourceSpec(new MethodNamePattern(
+								"Lorg/scandroid/testing/SourceSink", "load"),
+								new int[] { 0 }),
+						new CallRetSourceSpec(new MethodNamePattern(
+								"Lorg/scandroid/testing/SourceSink", "source"),
+								new int[] { 0 }) };
+			}
+
+			@Override
+			public SinkSpec[] getSinkSpecs() {
+				return new SinkSpec[] { new CallArgSinkSpec(
+						new MethodNamePattern(
+								"Lorg/scandroid/testing/SourceSink", "sink"),
+						new int[] { 0 }) };
+			}
+
+			@Override
+			public MethodNamePattern[] getEntrypointSpecs() {
+				return new MethodNamePattern[0];
+			}
+		});
+	}
+
+	private static List<Entrypoint> publicEntryPoints(ClassHierarchy cha) {
+		List<Entrypoint> entries = Lists.newArrayList();
+		for (IClass c : cha) {
+			if (!LoaderUtils.fromLoader(c, ClassLoaderReference.Application)
+					|| c.isInterface()
+					|| c.getName().getPackage() == null
+					|| c.getName().getPackage().toString()
+							.startsWith("com/SCanDroid")) {
+				continue;
+			}
+			for (IMethod m : c.getDeclaredMethods()) {
+				if (m.isPublic() && !m.isAbstract()
+						&& (m.isStatic() || !c.isAbstract())) {
+					entries.add(new DefaultEntrypoint(m, cha));
+				}
+			}
+		}
+		return entries;
+	}
+
+	public CGAnalysisContext<IExplodedBasicBlock> makeCallGraph()
+			throws Exception {
+		return new CGAnalysisContext<IExplodedBasicBlock>(analysisContext,
+				new IEntryPointSpecifier() {
+					@Override
+					public List<Entrypoint> specify(
+							AndroidAnalysisContext analysisContext) {
+						return entries;
+					}
+				});
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.bench;
+
+import java.util.List;
+
+import org.scandroid.util.LoaderUtils;
+
+import com.google.common.collect.Lists;
+import com.ibm.wala.classLoader.DexIClass;
+import com.ibm.wala.classLoader.DexIMethod;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.types.ClassLoaderReference;
+
+/**
+ * An {@link AnalysisState} with the dex methods of the app that have code.
+ * There are none when the app is a jar.
+ */
+public class DexMethodsState extends AnalysisState {
+	public List<DexIMethod> methods;
+
+	@Override
+	protected void prepare() throws Exception {
+		super.prepare();
+		methods = Lists.newArrayList();
+		for (IClass c : analysisContext.getClassHierarchy()) {
+			if (!(c instanceof DexIClass)
+					|| !LoaderUtils.fromLoader(c,
+							ClassLoaderReference.Application)) {
+				continue;
+			}
+			for (IMethod m : c.getDeclaredMethods()) {
+				if (m instanceof DexIMethod
+						&& ((DexIMethod) m).getCodeItem() != null) {
+					methods.add((DexIMethod) m);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.bench;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.wala.classLoader.DexFileModule;
+import com.ibm.wala.classLoader.DexIClass;
+import com.ibm.wala.classLoader.DexIMethod;
+import com.ibm.wala.classLoader.ModuleEntry;
+
+/**
+ * Reading the app's dex file, and decoding the bytecode of its methods.
+ * Only meaningful when the app is a dex or an apk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class DexParsingBenchmark {
+
+	@Benchmark
+	public int parseDexFile(AnalysisState state) {
+		DexFileModule module = new DexFileModule(new File(state.app));
+		int entries = 0;
+		for (Iterator<ModuleEntry> it = module.getEntries(); it.hasNext(); it
+				.next()) {
+			entries++;
+		}
+		return entries;
+	}
+
+	@Benchmark
+	public int parseBytecode(DexMethodsState state) {
+		int instructions = 0;
+		for (DexIMethod m : state.methods) {
+			// a fresh method, so that its bytecode has not been decoded yet
+			DexIMethod fresh = new DexIMethod(m.toEncodedMethod(),
+					(DexIClass) m.getDeclaringClass());
+			instructions += fresh.getDexInstructions().length;
+		}
+		return instructions;
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.bench;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scandroid.Checker;
+import org.scandroid.flow.types.FlowType;
+import org.scandroid.flow.types.IKFlow;
+import org.scandroid.flow.types.ParameterFlow;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.util.collections.Pair;
+
+/**
+ * The transitive closure {@link Checker} computes over a synthetic flow map:
+ * instance key flows connected through chains of intermediate flows, with
+ * enough back edges to form large strongly connected components.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class FlowClosureBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class FlowState {
+		/**
+		 * number of instance key flows
+		 */
+		@Param("2000")
+		public int iks;
+
+		/**
+		 * number of intermediate flows
+		 */
+		@Param("20000")
+		public int others;
+
+		public Map<FlowType, Set<FlowType>> flow;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Random random = new Random(42);
+			int n = iks + others;
+			FlowType[] flows = new FlowType[n];
+			for (int i = 0; i < n; i++) {
+				// spread the instance key flows along the chains
+				if (i % (n / iks) == 0 && i / (n / iks) < iks) {
+					flows[i] = new IKFlow(new SyntheticKey(), null, true);
+				} else {
+					flows[i] = new ParameterFlow(null, i, false);
+				}
+			}
+			flow = new HashMap<FlowType, Set<FlowType>>();
+			for (int i = 1; i < n; i++) {
+				// forward edges from shortly before, and the odd back edge
+				add(flows[i - 1 - random.nextInt(Math.min(i, 16))], flows[i]);
+				if (random.nextInt(50) == 0) {
+					add(flows[i], flows[random.nextInt(i)]);
+				}
+			}
+		}
+
+		private void add(FlowType source, FlowType dest) {
+			Set<FlowType> dests = flow.get(source);
+			if (dests == null) {
+				dests = new HashSet<FlowType>();
+				flow.put(source, dests);
+			}
+			dests.add(dest);
+		}
+	}
+
+	/**
+	 * An instance key which is only equal to itself
+	 */
+	private static class SyntheticKey implements InstanceKey {
+		public IClass getConcreteType() {
+			return null;
+		}
+
+		public Iterator<Pair<CGNode, NewSiteReference>> getCreationSites(
+				CallGraph cg) {
+			return null;
+		}
+	}
+
+	@Benchmark
+	public Object closure(FlowState state) {
+		return Checker.computeClosure(state.flow);
+	}
+}
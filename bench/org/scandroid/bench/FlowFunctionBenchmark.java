@@ -0,0 +1,118 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.bench;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.scandroid.flow.functions.TaintTransferFunctions;
+
+import com.google.common.collect.Lists;
+import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.cfg.BasicBlockInContext;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * Applying the normal flow functions to the facts the solver found at their
+ * source blocks, i.e. the inner loop of tabulation without the bookkeeping.
+ * Run with <code>-prof gc</code> to see the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class FlowFunctionBenchmark {
+
+	public static class EdgeState extends FlowState {
+		public IUnaryFlowFunction[] functions;
+		public int[][] facts;
+
+		@Override
+		protected void prepare() throws Exception {
+			super.prepare();
+			final ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> graph = cgContext.graph;
+			final TaintTransferFunctions<IExplodedBasicBlock> transfer = new TaintTransferFunctions<IExplodedBasicBlock>(
+					domain, graph, cgContext.pa);
+			List<IUnaryFlowFunction> fs = Lists.newArrayList();
+			List<int[]> ds = Lists.newArrayList();
+			for (BasicBlockInContext<IExplodedBasicBlock> src : graph) {
+				if (graph.isCall(src) || graph.isExit(src)) {
+					continue;
+				}
+				int[] in = MutableSparseIntSet.make(flowResult.getResult(src))
+						.toIntArray();
+				if (in.length == 0) {
+					continue;
+				}
+				for (Iterator<? extends BasicBlockInContext<IExplodedBasicBlock>> it = graph
+						.getSuccNodes(src); it.hasNext();) {
+					fs.add(transfer.getNormalFlowFunction(src, it.next()));
+					ds.add(in);
+				}
+			}
+			functions = fs.toArray(new IUnaryFlowFunction[fs.size()]);
+			facts = ds.toArray(new int[ds.size()][]);
+		}
+	}
+
+	@Benchmark
+	public void normalFlow(EdgeState state, Blackhole bh) {
+		final IUnaryFlowFunction[] functions = state.functions;
+		final int[][] facts = state.facts;
+		for (int i = 0; i < functions.length; i++) {
+			for (int d : facts[i]) {
+				bh.consume(functions[i].getTargets(d));
+			}
+		}
+	}
+}
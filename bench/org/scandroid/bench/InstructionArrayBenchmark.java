@@ -0,0 +1,119 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+
+package org.scandroid.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.wala.classLoader.DexIMethod;
+import com.ibm.wala.classLoader.DexIRFactory;
+import com.ibm.wala.classLoader.InstructionArray;
+import com.ibm.wala.dex.instructions.Instruction;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+
+/**
+ * Building the pc/index tables of the app's dex methods, querying them, and
+ * building the CFGs that query them. Only meaningful when the app is a dex
+ * or an apk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class InstructionArrayBenchmark {
+
+	public static class ArrayState extends DexMethodsState {
+		public Instruction[][] instructions;
+		public InstructionArray[] arrays;
+
+		@Override
+		protected void prepare() throws Exception {
+			super.prepare();
+			instructions = new Instruction[methods.size()][];
+			arrays = new InstructionArray[methods.size()];
+			for (int i = 0; i < methods.size(); i++) {
+				instructions[i] = methods.get(i).getDexInstructions();
+				arrays[i] = new InstructionArray();
+				arrays[i].addAll(Arrays.asList(instructions[i]));
+			}
+		}
+	}
+
+	@Benchmark
+	public void build(ArrayState state, Blackhole bh) {
+		for (Instruction[] insts : state.instructions) {
+			InstructionArray array = new InstructionArray();
+			for (Instruction inst : insts) {
+				array.add(inst);
+			}
+			bh.consume(array);
+		}
+	}
+
+	@Benchmark
+	public int lookup(ArrayState state) {
+		int sum = 0;
+		for (InstructionArray array : state.arrays) {
+			for (int i = 0; i < array.size(); i++) {
+				sum += array.getIndexFromPc(array.getPcFromIndex(i));
+			}
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public void makeCFG(ArrayState state, Blackhole bh) {
+		DexIRFactory factory = new DexIRFactory();
+		for (DexIMethod m : state.methods) {
+			bh.consume(factory.makeCFG(m, Everywhere.EVERYWHERE));
+		}
+	}
+}
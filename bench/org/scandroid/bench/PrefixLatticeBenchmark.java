@@ -0,0 +1,132 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scandroid.UriPrefixAnalysis;
+import org.scandroid.prefixtransfer.InstanceKeySite;
+import org.scandroid.prefixtransfer.modeledAllocations.ConstantString;
+import org.scandroid.prefixtransfer.modeledAllocations.UriAppendString;
+import org.scandroid.prefixtransfer.modeledAllocations.UriParseString;
+
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.impl.SlowSparseNumberedGraph;
+
+/**
+ * Solving the Uri prefix problem over a synthetic transfer graph: string
+ * constants feeding long chains of Uri.parse and Uri.withAppendedPath. Every
+ * variable ends up holding the prefixes of everything upstream of it, so
+ * this mostly measures copying and meeting {@link
+ * org.scandroid.prefixtransfer.PrefixVariable}s. Run with
+ * <code>-prof gc</code> to see the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class PrefixLatticeBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class GraphState {
+		/**
+		 * number of sites in the transfer graph
+		 */
+		@Param("2000")
+		public int sites;
+
+		public Graph<InstanceKeySite> graph;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Random random = new Random(42);
+			SlowSparseNumberedGraph<InstanceKeySite> g = SlowSparseNumberedGraph
+					.make();
+			InstanceKeySite[] nodes = new InstanceKeySite[sites];
+			int constants = Math.max(1, sites / 4);
+			for (int i = 0; i < sites; i++) {
+				if (i < constants) {
+					nodes[i] = new ConstantString(i, "content://org.scandroid."
+							+ (i % 7) + "/items/" + i);
+					g.addNode(nodes[i]);
+				} else if (random.nextBoolean()) {
+					int string = near(random, i);
+					nodes[i] = new UriParseString(i, string);
+					g.addNode(nodes[i]);
+					g.addEdge(nodes[string], nodes[i]);
+				} else {
+					int uri = near(random, i);
+					int string = random.nextInt(constants);
+					nodes[i] = new UriAppendString(i, uri, string);
+					g.addNode(nodes[i]);
+					g.addEdge(nodes[uri], nodes[i]);
+					g.addEdge(nodes[string], nodes[i]);
+				}
+			}
+			graph = g;
+		}
+
+		/**
+		 * a site shortly before i, so that the graph has long chains
+		 */
+		private static int near(Random random, int i) {
+			return i - 1 - random.nextInt(Math.min(i, 16));
+		}
+	}
+
+	@Benchmark
+	public Object solve(GraphState state) {
+		return UriPrefixAnalysis.solve(state.graph);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.scandroid.synthmethod.BinarySummaryReader;
+import org.scandroid.synthmethod.BinarySummaryWriter;
+import org.scandroid.synthmethod.SSASerializationException;
+import org.scandroid.synthmethod.XMLSummaryWriter;
+
+import com.google.common.collect.Lists;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ipa.summaries.XMLMethodSummaryReader;
+import com.ibm.wala.types.MethodReference;
+
+/**
+ * Writing method summaries out as XML and in the binary format, and reading
+ * one summary back. The summaries come from reading a summary file, by
+ * default the bundled WALA natives, leaving out the ones the XML writer
+ * cannot serialize.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class SummaryWriterBenchmark {
+
+	public static class SummaryState extends AnalysisState {
+		@Param("data/MethodSummaries.xml")
+		public String summaries;
+
+		public List<MethodSummary> methodSummaries;
+
+		// the summary file, and all of its summaries in the binary format
+		public byte[] xml;
+		public byte[] binary;
+		public MethodReference lookup;
+
+		@Override
+		protected void prepare() throws Exception {
+			super.prepare();
+			methodSummaries = Lists.newArrayList();
+			InputStream in = new FileInputStream(summaries);
+			try {
+				xml = IOUtils.toByteArray(in);
+			} finally {
+				in.close();
+			}
+			XMLSummaryWriter scratch = new XMLSummaryWriter();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			BinarySummaryWriter writer = new BinarySummaryWriter(bytes);
+			for (MethodSummary summary : new XMLMethodSummaryReader(
+					new ByteArrayInputStream(xml), analysisContext.getScope())
+					.getSummaries().values()) {
+				writer.add(summary);
+				lookup = (MethodReference) summary.getMethod();
+				try {
+					scratch.add(summary);
+					methodSummaries.add(summary);
+				} catch (SSASerializationException e) {
+					// not expressible in the summary format
+				}
+			}
+			writer.close();
+			binary = bytes.toByteArray();
+		}
+	}
+
+	@Benchmark
+	public String writeSummaries(SummaryState state) throws Exception {
+		XMLSummaryWriter writer = new XMLSummaryWriter();
+		for (MethodSummary summary : state.methodSummaries) {
+			writer.add(summary);
+		}
+		return writer.serialize();
+	}
+
+	@Benchmark
+	public byte[] writeBinarySummaries(SummaryState state) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinarySummaryWriter writer = new BinarySummaryWriter(bytes);
+		for (MethodSummary summary : state.methodSummaries) {
+			writer.add(summary);
+		}
+		writer.close();
+		return bytes.toByteArray();
+	}
+
+	@Benchmark
+	public MethodSummary readXMLSummary(SummaryState state) throws Exception {
+		return new XMLMethodSummaryReader(new ByteArrayInputStream(state.xml),
+				state.analysisContext.getScope()).getSummaries().get(
+				state.lookup);
+	}
+
+	@Benchmark
+	public MethodSummary readBinarySummary(SummaryState state)
+			throws Exception {
+		return new BinarySummaryReader(ByteBuffer.wrap(state.binary),
+				state.analysisContext.getScope()).getSummary(state.lookup);
+	}
+}
@@ -54,6 +54,15 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock>{
     private final DexIMethod dexMethod;
     private final Context context;
 
+    /**
+     * The instructions, handlers and program counters of the method, taken
+     * when this CFG is built: the method drops its decoded instructions once
+     * the IR is built, while the CFG lives on with the IR.
+     */
+    private final Instruction[] instructions;
+    private final ExceptionHandler[][] handlers;
+    private final int[] pcs;
+
     private static int totalEdges = 0;
     private int tempTE;
 
@@ -77,6 +86,25 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock>{
         this.dexMethod = method;
         this.context = context;
         this.hashBase = method.hashCode() * 9967;
+        method.retainInstructions();
+        try {
+            this.instructions = method.getDexInstructions();
+            ExceptionHandler[][] handlers;
+            try {
+                handlers = method.getHandlers();
+            } catch (InvalidClassFileException e) {
+                e.printStackTrace();
+                Assertions.UNREACHABLE();
+                handlers = null;
+            }
+            this.handlers = handlers;
+            this.pcs = new int[instructions.length];
+            for (int i = 0; i < pcs.length; i++) {
+                pcs[i] = method.getAddressFromIndex(i);
+            }
+        } finally {
+            method.releaseInstructions();
+        }
         tempTE = 0;
         makeBasicBlocks();
         init();
@@ -110,8 +138,7 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock>{
     }
 
     public Instruction[] getInstructions() {
-        return (Instruction[])dexMethod.getDexInstructions();
-
+        return instructions;
     }
 
     /**
@@ -146,14 +173,6 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock>{
     }
 
     private void makeBasicBlocks() {
-        ExceptionHandler[][] handlers;
-        try {
-            handlers = dexMethod.getHandlers();
-        } catch (InvalidClassFileException e) {
-            e.printStackTrace();
-            Assertions.UNREACHABLE();
-            handlers = null;
-        }
         boolean[] r = new boolean[getInstructions().length];
         boolean[] catchers = new boolean[getInstructions().length];
         // we initially start with both the entry and exit block.
@@ -572,14 +591,6 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock>{
         }
 
         private ExceptionHandler[] getExceptionHandlers() {
-            ExceptionHandler[][] handlers;
-            try {
-                handlers = dexMethod.getHandlers();
-            } catch (InvalidClassFileException e) {
-                e.printStackTrace();
-                Assertions.UNREACHABLE();
-                handlers = null;
-            }
             ExceptionHandler[] hs = handlers[getLastInstructionIndex()];
             return hs;
         }
@@ -701,7 +712,7 @@ public class DexCFG extends AbstractCFG<Instruction, DexCFG.BasicBlock>{
      * @see com.ibm.wala.cfg.ControlFlowGraph#getProgramCounter(int)
      */
     public int getProgramCounter(int index) {
-        return dexMethod.getAddressFromIndex(index);
+        return pcs[index];
         //    return dexMethod.getInstructionFromIndex(index).pc;
     }
 
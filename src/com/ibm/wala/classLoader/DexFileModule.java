@@ -36,55 +36,129 @@
  *
  */
 
+
 package com.ibm.wala.classLoader;
 
 import static org.jf.dexlib.ItemType.TYPE_CLASS_DEF_ITEM;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Collection;
-import java.util.HashSet;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
+import org.jf.dexlib.ClassDataItem;
+import org.jf.dexlib.ClassDataItem.EncodedMethod;
 import org.jf.dexlib.ClassDefItem;
+import org.jf.dexlib.CodeItem;
 import org.jf.dexlib.DexFile;
+import org.jf.dexlib.Item;
+import org.jf.dexlib.ItemType;
+import org.jf.dexlib.ReadContext;
 import org.jf.dexlib.Section;
+import org.jf.dexlib.Util.ByteArrayInput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A module which is a wrapper around .dex and .apk file.
  *
+ * The class definitions are read through dexlib without their code items,
+ * and the dex image itself is memory-mapped. A method body is only decoded
+ * from the mapping when {@link #readCodeItem(ClassDefItem, EncodedMethod)}
+ * is first asked for it, so the heap holds code for reachable methods only.
+ *
  * @author barjo
  */
 public class DexFileModule implements Module {
 	private static final Logger logger = LoggerFactory.getLogger(DexFileModule.class);
 
+	/**
+	 * Debug info is not used by the analysis; resolving it would require the
+	 * debug info section to be loaded, so it is dropped when decoding code.
+	 */
+	private static final ReadContext NO_DEBUG_INFO = new ReadContext() {
+		@Override
+		public Item getOptionalOffsettedItemByOffset(ItemType itemType, int offset) {
+			return null;
+		}
+	};
+
     private final DexFile dexfile;
-    private final Collection<ModuleEntry> entries;
+
+    /**
+     * Read-only mapping of the dex image, or null when the code items were
+     * loaded eagerly (odex files).
+     */
+    private final ByteBuffer image;
+
+    /**
+     * Method index / code offset pairs per class, parsed from the mapped
+     * class_data_item on first use.
+     */
+    private final ConcurrentMap<ClassDataItem, int[]> codeOffsets =
+    		new ConcurrentHashMap<ClassDataItem, int[]>();
+
+    /**
+     * One entry per class definition, made once so that every walk over the
+     * module sees the same entries.
+     */
+    private final List<ModuleEntry> entries;
 
     /**
      * @param f
      *            the .dex or .apk file
      * @throws IllegalArgumentException
      */
-    public DexFileModule(File f) throws IllegalArgumentException {    	
+    public DexFileModule(File f) throws IllegalArgumentException {
         try {
-            dexfile = new DexFile(f);
+        	File dex = isZip(f) ? extractDex(f) : f;
+        	try {
+        		DexFile lazy = new DexFile(dex, true, true);
+        		if (lazy.getOdexHeader() != null) {
+        			// odex code is rewritten against the dependencies and has to be
+        			// decoded with them, so keep the old eager behavior here
+        			dexfile = new DexFile(dex);
+        			image = null;
+        		} else {
+        			dexfile = lazy;
+        			image = map(dex);
+        		}
+        	} finally {
+        		// a mapping outlives its file, except where the file system
+        		// refuses to remove a mapped file
+        		if (dex != f && !dex.delete()) {
+        			dex.deleteOnExit();
+        		}
+        	}
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
         }
+        entries = makeEntries();
+    }
 
-        // create ModuleEntries from ClassDefItem
-        entries = new HashSet<ModuleEntry>();
-
+    private List<ModuleEntry> makeEntries() {
         Section<ClassDefItem> cldeff = dexfile
                 .getSectionForType(TYPE_CLASS_DEF_ITEM);
-
+        List<ModuleEntry> result = new ArrayList<ModuleEntry>(cldeff.getItems().size());
         for (ClassDefItem cdefitems : cldeff.getItems()) {
-            logger.debug("DexFileModule adding class: " + cdefitems.getConciseIdentity());
-            entries.add(new DexModuleEntry(cdefitems));
+        	logger.debug("DexFileModule adding class: {}", cdefitems.getConciseIdentity());
+        	result.add(new DexModuleEntry(cdefitems, this));
         }
+        return Collections.unmodifiableList(result);
     }
 
     /**
@@ -103,4 +177,185 @@ public class DexFileModule implements Module {
         return entries.iterator();
     }
 
+    /**
+     * Decodes the body of a method declared by a class of this module.
+     *
+     * @return the code item of the method, or null if it has none (abstract
+     *         and native methods)
+     */
+    public CodeItem readCodeItem(ClassDefItem classDef, EncodedMethod method) {
+    	if (method.codeItem != null || image == null) {
+    		return method.codeItem;
+    	}
+    	ClassDataItem classData = classDef.getClassData();
+    	if (classData == null) {
+    		return null;
+    	}
+    	int[] offsets = codeOffsets.get(classData);
+    	if (offsets == null) {
+    		offsets = readCodeOffsets(classData.getOffset());
+    		codeOffsets.putIfAbsent(classData, offsets);
+    	}
+    	int methodIdx = method.method.getIndex();
+    	for (int i = 0; i < offsets.length; i += 2) {
+    		if (offsets[i] == methodIdx) {
+    			return offsets[i + 1] == 0 ? null : new LazyCodeItem(dexfile, copyCodeItem(offsets[i + 1]));
+    		}
+    	}
+    	return null;
+    }
+
+    /**
+     * Parses a class_data_item and returns the method index and code offset
+     * of each of its direct and virtual methods.
+     */
+    private int[] readCodeOffsets(int offset) {
+    	int[] pos = { offset };
+    	int staticFields = readUleb(pos);
+    	int instanceFields = readUleb(pos);
+    	int directMethods = readUleb(pos);
+    	int virtualMethods = readUleb(pos);
+    	for (int i = 0; i < 2 * (staticFields + instanceFields); i++) {
+    		readUleb(pos);
+    	}
+    	int[] offsets = new int[2 * (directMethods + virtualMethods)];
+    	int methodIdx = 0;
+    	for (int i = 0; i < directMethods + virtualMethods; i++) {
+    		if (i == directMethods) {
+    			methodIdx = 0;
+    		}
+    		methodIdx += readUleb(pos);
+    		readUleb(pos); // access flags
+    		offsets[2 * i] = methodIdx;
+    		offsets[2 * i + 1] = readUleb(pos);
+    	}
+    	return offsets;
+    }
+
+    /**
+     * Copies a code_item out of the mapping: the fixed header, the
+     * instructions and, if there are tries, the padding, try items and the
+     * encoded catch handler list.
+     */
+    private byte[] copyCodeItem(int offset) {
+    	int triesSize = image.getShort(offset + 6) & 0xffff;
+    	int insnsSize = image.getInt(offset + 12);
+    	int end = offset + 16 + 2 * insnsSize;
+    	if (triesSize > 0) {
+    		end = ((end + 3) & ~3) + 8 * triesSize;
+    		int[] pos = { end };
+    		int handlers = readUleb(pos);
+    		for (int i = 0; i < handlers; i++) {
+    			int size = readSleb(pos);
+    			for (int j = 0; j < 2 * Math.abs(size); j++) {
+    				readUleb(pos);
+    			}
+    			if (size <= 0) {
+    				readUleb(pos); // catch-all address
+    			}
+    		}
+    		end = pos[0];
+    	}
+    	// one spare byte: dexlib moves its cursor back to the end of the
+    	// handler list, and ByteArrayInput refuses a cursor at the very end
+    	byte[] bytes = new byte[end - offset + 1];
+    	for (int i = 0; i < end - offset; i++) {
+    		bytes[i] = image.get(offset + i);
+    	}
+    	return bytes;
+    }
+
+    private int readUleb(int[] pos) {
+    	int result = 0;
+    	int shift = 0;
+    	int b;
+    	do {
+    		b = image.get(pos[0]++) & 0xff;
+    		result |= (b & 0x7f) << shift;
+    		shift += 7;
+    	} while ((b & 0x80) != 0 && shift < 35);
+    	return result;
+    }
+
+    private int readSleb(int[] pos) {
+    	int result = 0;
+    	int shift = 0;
+    	int b;
+    	do {
+    		b = image.get(pos[0]++) & 0xff;
+    		result |= (b & 0x7f) << shift;
+    		shift += 7;
+    	} while ((b & 0x80) != 0 && shift < 35);
+    	if (shift < 32 && (b & 0x40) != 0) {
+    		result |= -1 << shift;
+    	}
+    	return result;
+    }
+
+    private static boolean isZip(File f) throws IOException {
+    	RandomAccessFile raf = new RandomAccessFile(f, "r");
+    	try {
+    		return raf.length() >= 4 && raf.readInt() == 0x504b0304;
+    	} finally {
+    		raf.close();
+    	}
+    }
+
+    /**
+     * Extracts classes.dex from an .apk or .jar so that it can be mapped.
+     */
+    private static File extractDex(File f) throws IOException {
+    	ZipFile zip = new ZipFile(f);
+    	try {
+    		ZipEntry entry = zip.getEntry("classes.dex");
+    		if (entry == null) {
+    			throw new IOException("no classes.dex in " + f);
+    		}
+    		File dex = File.createTempFile(f.getName(), ".dex");
+    		boolean extracted = false;
+    		try {
+    			InputStream in = zip.getInputStream(entry);
+    			OutputStream out = new FileOutputStream(dex);
+    			try {
+    				byte[] buf = new byte[8192];
+    				int n;
+    				while ((n = in.read(buf)) > 0) {
+    					out.write(buf, 0, n);
+    				}
+    			} finally {
+    				out.close();
+    				in.close();
+    			}
+    			extracted = true;
+    		} finally {
+    			if (!extracted) {
+    				dex.delete();
+    			}
+    		}
+    		return dex;
+    	} finally {
+    		zip.close();
+    	}
+    }
+
+    private static ByteBuffer map(File f) throws IOException {
+    	RandomAccessFile raf = new RandomAccessFile(f, "r");
+    	try {
+    		FileChannel channel = raf.getChannel();
+    		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    		return buffer.order(ByteOrder.LITTLE_ENDIAN);
+    	} finally {
+    		raf.close();
+    	}
+    }
+
+    /**
+     * A code item decoded from bytes copied out of the mapped image.
+     */
+    private static class LazyCodeItem extends CodeItem {
+    	LazyCodeItem(DexFile dexFile, byte[] bytes) {
+    		super(dexFile);
+    		readItem(new ByteArrayInput(bytes), NO_DEBUG_INFO);
+    	}
+    }
 }
@@ -72,6 +72,11 @@ public class DexIClass extends BytecodeClass<IClassLoader> {
      */
     private final ClassDefItem classDef;
 
+    /**
+     * Module the class was read from; decodes method bodies on demand.
+     */
+    private final DexFileModule container;
+
     /**
      * Bitfields of these flags are used to indicate the accessibility and overall properties of classes and class members.
      * i.e. public/private/abstract/interface.
@@ -90,6 +95,7 @@ public class DexIClass extends BytecodeClass<IClassLoader> {
             final DexModuleEntry dexEntry) {
         super(loader, cha);
         classDef = dexEntry.getClassDefItem();
+        container = dexEntry.getContainer();
 
 //        this.loader = loader;
 
@@ -189,6 +195,13 @@ public class DexIClass extends BytecodeClass<IClassLoader> {
         return classDef;
     }
 
+    /**
+     * @return The module this class was read from, or null if unknown.
+     */
+    public DexFileModule getContainer(){
+        return container;
+    }
+
     /*
      * (non-Javadoc)
      * @see com.ibm.wala.classLoader.IClass#isPublic()
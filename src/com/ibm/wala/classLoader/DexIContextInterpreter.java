@@ -82,14 +82,21 @@ public class DexIContextInterpreter implements SSAContextInterpreter {
         return getIR(node).iterateNewSites();
     }
 
+    /**
+     * Answered from the field access table of the method, which does not
+     * depend on the context, so no IR is built.
+     */
     public Iterator<FieldReference> iterateFieldsWritten(CGNode node) {
-        // TODO implement this!
-        throw new RuntimeException("not yet implemented");
+        assert understands(node);
+        return ((DexIMethod) node.getMethod()).getFieldsWritten().iterator();
     }
 
+    /**
+     * @see #iterateFieldsWritten(CGNode)
+     */
     public Iterator<FieldReference> iterateFieldsRead(CGNode node) {
-        // TODO implement this!
-        throw new RuntimeException("not yet implemented");
+        assert understands(node);
+        return ((DexIMethod) node.getMethod()).getFieldsRead().iterator();
     }
 
     public Iterator<CallSiteReference> iterateCallSites(CGNode node) {
@@ -55,11 +55,9 @@ import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.FieldReference;
-import com.ibm.wala.types.TypeName;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.types.annotations.Annotation;
 import com.ibm.wala.util.strings.Atom;
-import com.ibm.wala.util.strings.ImmutableByteArray;
 
 public class DexIField implements IField {
 
@@ -94,14 +92,12 @@ public class DexIField implements IField {
         myClass = klass;
         name = Atom.findOrCreateUnicodeAtom(eField.field.getFieldName().getStringValue());
 
-        ImmutableByteArray fieldType = ImmutableByteArray.make(eField.field.getFieldType().getTypeDescriptor());
-        TypeName T = null;
-        if (fieldType.get(fieldType.length() - 1) == ';') {
-            T = TypeName.findOrCreate(fieldType, 0, fieldType.length() - 1);
-        } else {
-            T = TypeName.findOrCreate(fieldType);
-        }
-        TypeReference type = TypeReference.findOrCreate(myClass.getClassLoader().getReference(), T);
+        String descriptor = eField.field.getFieldType().getTypeDescriptor();
+        if (descriptor.endsWith(";"))
+            descriptor = descriptor.substring(0, descriptor.length() - 1);
+        // TypeReference.findOrCreate guards the TypeName dictionary, which
+        // TypeName.findOrCreate alone does not; classes are loaded in parallel
+        TypeReference type = TypeReference.findOrCreate(myClass.getClassLoader().getReference(), descriptor);
         myFieldRef = FieldReference.findOrCreate(myClass.getReference(), name, type);
     }
 
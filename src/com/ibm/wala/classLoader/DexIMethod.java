@@ -51,12 +51,17 @@ import static org.jf.dexlib.Util.AccessFlags.SYNTHETIC;
 import static org.jf.dexlib.Util.AccessFlags.VOLATILE;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jf.dexlib.AnnotationDirectoryItem;
 import org.jf.dexlib.AnnotationItem;
 import org.jf.dexlib.AnnotationSetItem;
+import org.jf.dexlib.CodeItem;
 import org.jf.dexlib.ClassDataItem.EncodedMethod;
 import org.jf.dexlib.CodeItem.EncodedCatchHandler;
 import org.jf.dexlib.CodeItem.EncodedTypeAddrPair;
@@ -131,6 +136,7 @@ import com.ibm.wala.shrikeBT.IndirectionData;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.types.Selector;
 import com.ibm.wala.types.TypeName;
@@ -151,6 +157,11 @@ public class DexIMethod implements IBytecodeMethod {
 	 */
 	private final EncodedMethod eMethod;
 
+	/**
+	 * The method body, decoded by the declaring module on first use.
+	 */
+	private volatile CodeItem codeItem;
+
 	/**
 	 * The declaring class for this method.
 	 */
@@ -168,13 +179,50 @@ public class DexIMethod implements IBytecodeMethod {
 	 */
 	private TypeReference typeReference;
 
-	private ExceptionHandler[][] handlers;
+	private volatile ExceptionHandler[][] handlers;
 	
+	/**
+	 * Instructions being decoded by parseBytecode(); only touched while
+	 * holding the lock on this method.
+	 */
 	protected InstructionArray instructions;
 
+	/**
+	 * Fully decoded instructions, published once parseBytecode() is done.
+	 */
+	private volatile InstructionArray decoded;
+
+	private volatile Instruction[] dexInstructions;
 
+	/**
+	 * Number of IR constructions currently using the decoded instructions.
+	 */
+	private int retained = 0;
 
-	private static int totalInsts = 0;
+	/**
+	 * Fields read and written by this method, collected when its bytecode is
+	 * first decoded. Unlike the instructions they are not dropped by
+	 * releaseInstructions(), and asking for them alone does not keep the
+	 * instructions.
+	 */
+	private volatile FieldReference[] fieldsRead;
+	private volatile FieldReference[] fieldsWritten;
+
+	private static final FieldReference[] NO_FIELDS = new FieldReference[0];
+
+	/**
+	 * Whether the bytecode was decoded before; set while holding the lock on
+	 * this method.
+	 */
+	private boolean decodedBefore = false;
+
+	private static final AtomicInteger totalInsts = new AtomicInteger();
+
+	/**
+	 * Number of times the bytecode of a method was decoded again after its
+	 * instructions had been released; these are not added to totalInsts.
+	 */
+	private static final AtomicInteger redecodes = new AtomicInteger();
 
 	public DexIMethod(EncodedMethod encodedMethod, DexIClass klass) {
 		eMethod = encodedMethod;
@@ -185,7 +233,11 @@ public class DexIMethod implements IBytecodeMethod {
 	}
 
 	public static int getTotalInsts() {
-		return totalInsts;
+		return totalInsts.get();
+	}
+
+	public static int getRedecodes() {
+		return redecodes.get();
 	}
 
 	//------------------------------------------
@@ -199,6 +251,20 @@ public class DexIMethod implements IBytecodeMethod {
 		return eMethod;
 	}
 
+	/**
+	 * @return the code item of this method, or null if it has no body.
+	 */
+	public CodeItem getCodeItem() {
+		CodeItem code = codeItem;
+		if (code == null) {
+			DexFileModule module = myClass.getContainer();
+			code = module == null ? eMethod.codeItem
+					: module.readCodeItem(myClass.getClassDefItem(), eMethod);
+			codeItem = code;
+		}
+		return code;
+	}
+
 
 	//-------------------------------------------
 	// IMethod methods
@@ -253,16 +319,16 @@ public class DexIMethod implements IBytecodeMethod {
 	 * @see com.ibm.wala.classLoader.IMethod#getMaxLocals()
 	 */
 	public int getMaxLocals() {
-		logger.debug("Max Local Register Count: " + eMethod.codeItem.getRegisterCount() + " + 2");
-		return eMethod.codeItem.getRegisterCount() + 2;
+		logger.debug("Max Local Register Count: " + getCodeItem().getRegisterCount() + " + 2");
+		return getCodeItem().getRegisterCount() + 2;
 	}
 
 	public int getReturnReg() {
-		return eMethod.codeItem.getRegisterCount();
+		return getCodeItem().getRegisterCount();
 	}
 
 	public int getExceptionReg() {
-		return eMethod.codeItem.getRegisterCount()+1;
+		return getCodeItem().getRegisterCount()+1;
 	}
 
 	/*
@@ -387,7 +453,7 @@ public class DexIMethod implements IBytecodeMethod {
 	 * @see com.ibm.wala.classLoader.IMethod#hasExceptionHandler()
 	 */
 	public boolean hasExceptionHandler() {
-		TryItem[] tries = eMethod.codeItem.getTries();;
+		TryItem[] tries = getCodeItem().getTries();;
 		return tries==null?false:tries.length > 0;
 	}
 
@@ -398,7 +464,7 @@ public class DexIMethod implements IBytecodeMethod {
 	public boolean hasLocalVariableTable() {
 		throw new UnsupportedOperationException("DexIMethod: hasLocalVariableTable() not yet implemented");
 		//TODO Compute the local variable name from the DebugInfo Item
-		//eMethod.codeItem.getDebugInfo()
+		//getCodeItem().getDebugInfo()
 		//      return false;
 	}
 
@@ -583,13 +649,15 @@ public class DexIMethod implements IBytecodeMethod {
 
 
 	public ExceptionHandler[][] getHandlers() throws InvalidClassFileException {
+		ExceptionHandler[][] handlers = this.handlers;
 		if (handlers != null)
 			return handlers;
 
-		TryItem[] tries = eMethod.codeItem.getTries();
+		TryItem[] tries = getCodeItem().getTries();
 
-		this.handlers = new ExceptionHandler[instructions().size()][];
+		handlers = new ExceptionHandler[instructions().size()][];
 		if (tries == null){
+			this.handlers = handlers;
 			return handlers;
 		}
 
@@ -617,7 +685,7 @@ public class DexIMethod implements IBytecodeMethod {
 			 */
 			if (endAddress > getAddressFromIndex(instructions().size()-1)) {
 				endInst = instructions().size()-1;
-				if (endAddress != (getAddressFromIndex(endInst) + (eMethod.codeItem.getInstructions())[endInst].getSize(getAddressFromIndex(endInst))))
+				if (endAddress != (getAddressFromIndex(endInst) + (getCodeItem().getInstructions())[endInst].getSize(getAddressFromIndex(endInst))))
 					throw new RuntimeException("Invalid code offset " + endAddress + " for the try block end address");
 			}
 			else {
@@ -650,16 +718,14 @@ public class DexIMethod implements IBytecodeMethod {
 		for (int i = 0; i < instructions().size(); i++)
 			handlers[i] = (ExceptionHandler[])temp_array.get(i).toArray(new ExceptionHandler[temp_array.get(i).size()]);
 
+		this.handlers = handlers;
 		return handlers;
 	}
 
 
 
 	public IInstruction[] getInstructions() {
-		if (instructions == null)
-			parseBytecode();
-
-		logger.debug("Got " + instructions.size()
+		logger.debug("Got " + instructions().size()
 				+ " instructions for method " + myClass.toString() + "."
 				+ eMethod.toString() + ":");
 		for (Instruction inst : instructions()) {
@@ -674,7 +740,7 @@ public class DexIMethod implements IBytecodeMethod {
 	protected void parseBytecode() {
 		logger.debug("DexIMethod: parseByteCode() : " + eMethod.getClass().getSimpleName() + ":" + eMethod.method.getMethodString());
 
-		org.jf.dexlib.Code.Instruction[] instrucs = eMethod.codeItem.getInstructions();
+		org.jf.dexlib.Code.Instruction[] instrucs = getCodeItem().getInstructions();
 
 		//      for (org.jf.dexlib.Code.Instruction inst: instrucs)
 		//      {
@@ -795,7 +861,9 @@ public class DexIMethod implements IBytecodeMethod {
 		int currentCodeAddress = 0;
 		for (org.jf.dexlib.Code.Instruction inst: instrucs)
 		{
-			totalInsts++;
+			if (!decodedBefore) {
+				totalInsts.incrementAndGet();
+			}
 			instCounter++;
 			//          instLoc = pc - instCounter;
 			instLoc = currentCodeAddress;
@@ -3171,15 +3239,149 @@ public class DexIMethod implements IBytecodeMethod {
 	}
 
 	public Instruction[] getDexInstructions() {
-		return (Instruction[]) instructions().toArray(new Instruction[instructions().size()]);
+		Instruction[] result = dexInstructions;
+		if (result == null) {
+			InstructionArray insts = instructions();
+			result = (Instruction[]) insts.toArray(new Instruction[insts.size()]);
+			if (insts == decoded) {
+				dexInstructions = result;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Decodes the bytecode the first time it is needed. Concurrent callers
+	 * wait for the decoding thread; calls made by parseBytecode() itself see
+	 * the instructions decoded so far.
+	 */
+	protected InstructionArray instructions(){
+		InstructionArray result = decoded;
+		if (result == null) {
+			synchronized (this) {
+				result = decoded;
+				if (result == null) {
+					if (instructions != null) {
+						// reentrant call from parseBytecode()
+						return instructions;
+					}
+					if (decodedBefore) {
+						// released, and asked for again by something other
+						// than a DexCFG, which keeps its own copy
+						redecodes.incrementAndGet();
+						logger.debug("decoding {} again", getSignature());
+					}
+					try {
+						parseBytecode();
+						result = instructions;
+						decodedBefore = true;
+						if (fieldsRead == null) {
+							collectFieldAccesses(result);
+						}
+						decoded = result;
+					} finally {
+						instructions = null;
+					}
+				}
+			}
+		}
+		return result;
 	}
 
+	/**
+	 * Keeps the decoded instructions of this method alive until the matching
+	 * {@link #releaseInstructions()}.
+	 */
+	public synchronized void retainInstructions() {
+		retained++;
+	}
 
+	/**
+	 * Drops the decoded instructions and handlers once no caller retains
+	 * them any more. A later query decodes them again, which is counted by
+	 * {@link #getRedecodes()}; the CFGs built so far do not ask.
+	 */
+	public synchronized void releaseInstructions() {
+		if (retained > 0 && --retained > 0) {
+			return;
+		}
+		dropInstructions();
+	}
 
-	protected InstructionArray instructions(){
-		if (instructions == null)
-			parseBytecode();
-		return instructions;
+	private void dropInstructions() {
+		decoded = null;
+		dexInstructions = null;
+		handlers = null;
+	}
+
+	/**
+	 * @return the fields this method reads, each listed once
+	 */
+	public Collection<FieldReference> getFieldsRead() {
+		FieldReference[] result = fieldsRead;
+		if (result == null) {
+			decodeFieldAccesses();
+			result = fieldsRead;
+		}
+		return Collections.unmodifiableList(Arrays.asList(result));
+	}
+
+	/**
+	 * @return the fields this method writes, each listed once
+	 */
+	public Collection<FieldReference> getFieldsWritten() {
+		FieldReference[] result = fieldsWritten;
+		if (result == null) {
+			decodeFieldAccesses();
+			result = fieldsWritten;
+		}
+		return Collections.unmodifiableList(Arrays.asList(result));
+	}
+
+	private void decodeFieldAccesses() {
+		final boolean codeWasRead = codeItem != null;
+		if (getCodeItem() == null) {
+			fieldsWritten = NO_FIELDS;
+			fieldsRead = NO_FIELDS;
+			return;
+		}
+		synchronized (this) {
+			if (fieldsRead != null) {
+				return;
+			}
+			// the tables are filled in while decoding; unless an IR is being
+			// built, nothing else needs the instructions, so they do not stay
+			instructions();
+			if (retained == 0) {
+				dropInstructions();
+				if (!codeWasRead) {
+					codeItem = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Builds the field access tables from the decoded instructions, with the
+	 * same field references the IR uses.
+	 */
+	private void collectFieldAccesses(InstructionArray insts) {
+		ClassLoaderReference loader = myClass.getClassLoader().getReference();
+		Set<FieldReference> read = new LinkedHashSet<FieldReference>();
+		Set<FieldReference> written = new LinkedHashSet<FieldReference>();
+		for (Instruction inst : insts) {
+			if (inst instanceof GetField) {
+				GetField get = (GetField) inst;
+				read.add(FieldReference.findOrCreate(loader, get.clazzName,
+						get.fieldName, get.fieldType));
+			} else if (inst instanceof PutField) {
+				PutField put = (PutField) inst;
+				written.add(FieldReference.findOrCreate(loader, put.clazzName,
+						put.fieldName, put.fieldType));
+			}
+		}
+		fieldsWritten = written.toArray(new FieldReference[written.size()]);
+		fieldsRead = read.toArray(new FieldReference[read.size()]);
 	}
 
 	public int getAddressFromIndex(int index) {
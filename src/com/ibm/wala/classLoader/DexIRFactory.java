@@ -53,6 +53,18 @@ public class DexIRFactory extends DefaultIRFactory {
     		return super.makeIR(_method, C, options);
         final DexIMethod method = (DexIMethod)_method;
 
+        // once built, the IR only goes back to the bytecode for source
+        // positions, so let the method drop its decoded instructions
+        method.retainInstructions();
+        try {
+            return makeDexIR(method, C, options);
+        } finally {
+            method.releaseInstructions();
+        }
+    }
+
+    private IR makeDexIR(final DexIMethod method, Context C, final SSAOptions options) {
+
         //      com.ibm.wala.shrikeBT.IInstruction[] instructions = null;
         //      try {
         //        instructions = method.getInstructions();
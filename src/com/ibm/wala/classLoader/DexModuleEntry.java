@@ -50,9 +50,15 @@ public class DexModuleEntry implements ModuleEntry {
 
     private final ClassDefItem classDefItem;
     private final String className;
+    private final DexFileModule container;
 
     public DexModuleEntry(ClassDefItem cdefitems) {
+        this(cdefitems, null);
+    }
+
+    public DexModuleEntry(ClassDefItem cdefitems, DexFileModule container) {
         classDefItem = cdefitems;
+        this.container = container;
         String temp =cdefitems.getClassType().getTypeDescriptor();
 //      className = temp;
         if (temp.endsWith(";"))
@@ -66,6 +72,13 @@ public class DexModuleEntry implements ModuleEntry {
         return classDefItem;
     }
 
+    /**
+     * @return the module this entry was read from, or null if unknown.
+     */
+    public DexFileModule getContainer() {
+        return container;
+    }
+
     /*
      * (non-Javadoc)
      * @see com.ibm.wala.classLoader.ModuleEntry#asModule()
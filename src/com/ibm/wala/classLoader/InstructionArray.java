@@ -38,12 +38,10 @@
 
 package com.ibm.wala.classLoader;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 import com.ibm.wala.dex.instructions.Instruction;
 
@@ -52,27 +50,37 @@ import com.ibm.wala.dex.instructions.Instruction;
  * index id or from its bytecode index.
  * It's not allowed to remove an element.
  *
+ * Instructions are added in increasing pc order, so the index to pc table is
+ * also sorted by pc and the pc to index mapping is a binary search in it.
  */
 public class InstructionArray implements Collection<Instruction> {
-    List<Instruction> instructions;
-    Map<Integer, Integer> pc2index;
-    List<Integer> index2pc;
+    private Instruction[] instructions;
+    private int[] index2pc;
+    private int size;
+
+    /**
+     * Set when an instruction was added out of pc order; pc lookups then
+     * fall back to a linear scan.
+     */
+    private boolean unordered;
 
     public InstructionArray() {
-        instructions = new ArrayList<Instruction>();
-        pc2index = new HashMap<Integer, Integer>();
-        index2pc = new ArrayList<Integer>();
+        instructions = new Instruction[16];
+        index2pc = new int[16];
     }
 
     public boolean add(Instruction e) {
-        boolean ret = instructions.add(e);
-
-        if (ret) {
-            pc2index.put(e.pc, size() - 1);
-            index2pc.add(e.pc);
+        if (size == instructions.length) {
+            instructions = Arrays.copyOf(instructions, 2 * size);
+            index2pc = Arrays.copyOf(index2pc, 2 * size);
         }
-
-        return ret;
+        if (size > 0 && e.pc < index2pc[size - 1]) {
+            unordered = true;
+        }
+        instructions[size] = e;
+        index2pc[size] = e.pc;
+        size++;
+        return true;
     }
 
     public boolean addAll(Collection<? extends Instruction> c) {
@@ -86,31 +94,31 @@ public class InstructionArray implements Collection<Instruction> {
     }
 
     public boolean contains(Object o) {
-        return instructions.contains(o);
+        return indexOf(o) >= 0;
     }
 
     public boolean containsAll(Collection<?> c) {
-        return instructions.containsAll(c);
+        return asList().containsAll(c);
     }
 
     public boolean equals(Object o) {
-        return instructions.equals(o);
+        return asList().equals(o);
     }
 
     public int hashCode() {
-        return instructions.hashCode();
+        return asList().hashCode();
     }
 
     public int indexOf(Object o) {
-        return instructions.indexOf(o);
+        return asList().indexOf(o);
     }
 
     public boolean isEmpty() {
-        return instructions.isEmpty();
+        return size == 0;
     }
 
     public Iterator<Instruction> iterator() {
-        return instructions.iterator();
+        return asList().iterator();
     }
 
     public void clear() {
@@ -130,24 +138,52 @@ public class InstructionArray implements Collection<Instruction> {
     }
 
     public int size() {
-        return instructions.size();
+        return size;
     }
 
     public Object[] toArray() {
-        return instructions.toArray();
+        return Arrays.copyOf(instructions, size, Object[].class);
     }
 
     public <T> T[] toArray(T[] a) {
-        return instructions.toArray(a);
+        return asList().toArray(a);
+    }
+
+    private List<Instruction> asList() {
+        return Arrays.asList(instructions).subList(0, size);
     }
 
     /**
      * @param pc
      *            the byte code index.
      * @return The index of the instruction of given byte code index
+     * @throws IllegalArgumentException
+     *             if no instruction starts at pc
      */
     public int getIndexFromPc(int pc) {
-        return pc2index.get(pc);
+        int index;
+        if (unordered) {
+            index = findByPc(pc);
+        } else {
+            index = Arrays.binarySearch(index2pc, 0, size, pc);
+            // as with a map, the last instruction added at a pc wins
+            while (index >= 0 && index + 1 < size && index2pc[index + 1] == pc) {
+                index++;
+            }
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException("no instruction at pc " + pc);
+        }
+        return index;
+    }
+
+    private int findByPc(int pc) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (index2pc[i] == pc) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -156,7 +192,10 @@ public class InstructionArray implements Collection<Instruction> {
      * @return The byte code address of the instruction index
      */
     public int getPcFromIndex(int index) {
-        return index2pc.get(index);
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        return index2pc[index];
     }
 
 
@@ -165,7 +204,10 @@ public class InstructionArray implements Collection<Instruction> {
      * @return The instruction from its id.
      */
     public Instruction getFromId(int id) {
-        return instructions.get(id);
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("index " + id + ", size " + size);
+        }
+        return instructions[id];
     }
 
     /**
@@ -173,8 +215,7 @@ public class InstructionArray implements Collection<Instruction> {
      * @return The instruction from its pc.
      */
     public Instruction getFromPc(int pc) {
-        return instructions.get(pc2index.get(pc));
-
+        return instructions[getIndexFromPc(pc)];
     }
 
 }
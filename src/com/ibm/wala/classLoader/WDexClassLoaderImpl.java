@@ -39,12 +39,17 @@
 package com.ibm.wala.classLoader;
 
 import java.io.IOException;
-import java.util.Collection;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,9 +58,7 @@ import com.ibm.wala.ipa.callgraph.impl.SetOfClasses;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.TypeName;
-import com.ibm.wala.util.collections.HashCodeComparator;
 import com.ibm.wala.util.collections.HashSetFactory;
-import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.warnings.Warning;
 import com.ibm.wala.util.warnings.Warnings;
 
@@ -65,6 +68,12 @@ import com.ibm.wala.util.warnings.Warnings;
  */
 public class WDexClassLoaderImpl extends ClassLoaderImpl {
 	private static final Logger logger = LoggerFactory.getLogger(WDexClassLoaderImpl.class);
+
+	/**
+	 * Smallest number of classes handed to one worker; below this the
+	 * classes of a module are constructed on the calling thread.
+	 */
+	private static final int MIN_CLASSES_PER_TASK = 256;
 	
     private SetOfClasses lExclusions;
     private IClassLoader lParent;
@@ -98,15 +107,12 @@ public class WDexClassLoaderImpl extends ClassLoaderImpl {
         for (Iterator<Module> it = modules.iterator(); it.hasNext();) {
             Module archive = it.next();
             logger.debug("add archive: : "+archive);
-            Set<ModuleEntry> classFiles = getDexFiles(archive);
+            List<DexModuleEntry> classFiles = getDexFiles(archive);
             
             removeClassFiles(classFiles, classModuleEntries);
             loadAllDexClasses(classFiles);
             
-            for (Iterator<ModuleEntry> it2 = classFiles.iterator(); it2.hasNext();) {
-            	ModuleEntry file = it2.next();
-            	classModuleEntries.add(file);
-            }
+            classModuleEntries.addAll(classFiles);
         }                       
     }
     
@@ -114,14 +120,14 @@ public class WDexClassLoaderImpl extends ClassLoaderImpl {
     /**
      * Remove from s any class file module entries which already are in t
      */
-    private void removeClassFiles(Set<ModuleEntry> s, Set<ModuleEntry> t) {
+    private void removeClassFiles(List<DexModuleEntry> s, Set<ModuleEntry> t) {
     	Set<String> old = HashSetFactory.make();
     	for (Iterator<ModuleEntry> it = t.iterator(); it.hasNext();) {
     		ModuleEntry m = it.next();
     		old.add(m.getClassName());
     	}
     	HashSet<ModuleEntry> toRemove = HashSetFactory.make();
-    	for (Iterator<ModuleEntry> it = s.iterator(); it.hasNext();) {
+    	for (Iterator<DexModuleEntry> it = s.iterator(); it.hasNext();) {
     		ModuleEntry m = it.next();
     		if (old.contains(m.getClassName())) {
     			toRemove.add(m);
@@ -130,60 +136,119 @@ public class WDexClassLoaderImpl extends ClassLoaderImpl {
     	s.removeAll(toRemove);
     }
     
-    private Set<ModuleEntry> getDexFiles(Module M) throws IOException {
-    	TreeSet<ModuleEntry> sortedEntries = new TreeSet<ModuleEntry>(HashCodeComparator.instance());
-    	sortedEntries.addAll(Iterator2Collection.toSet(M.getEntries()));
-    	HashSet<ModuleEntry> result = HashSetFactory.make();
-    	for (Iterator<ModuleEntry> it = sortedEntries.iterator(); it.hasNext();) {
-    		ModuleEntry entry = (ModuleEntry) it.next();
-    		if (entry instanceof DexModuleEntry) {    		
-    			result.add(entry);
+    /**
+     * @return the dex entries of M, in the order the module lists them
+     */
+    private List<DexModuleEntry> getDexFiles(Module M) throws IOException {
+    	List<DexModuleEntry> result = new ArrayList<DexModuleEntry>();
+    	for (Iterator<ModuleEntry> it = M.getEntries(); it.hasNext();) {
+    		ModuleEntry entry = it.next();
+    		if (entry instanceof DexModuleEntry) {
+    			result.add((DexModuleEntry) entry);
     		}
     	}
     	return result;
     }
     
     
-    private void loadAllDexClasses(Collection<ModuleEntry> moduleEntries) {
-    	
-    	for (Iterator<ModuleEntry> it = moduleEntries.iterator(); it.hasNext();) {
-    		ModuleEntry entry = it.next();
+    /**
+     * Construct the classes of one module and add them to loadedClasses.
+     * The DexIClass objects are independent of each other, so they are built
+     * on a bounded pool; they are then added in module order, which makes
+     * the tables and warnings the same as those of a sequential load.
+     */
+    private void loadAllDexClasses(List<DexModuleEntry> moduleEntries)
+    		throws IOException {
+    	final List<DexModuleEntry> candidates = new ArrayList<DexModuleEntry>(
+    			moduleEntries.size());
+    	final List<TypeName> names = new ArrayList<TypeName>(
+    			moduleEntries.size());
+    	for (DexModuleEntry dexEntry : moduleEntries) {
+    		TypeName tName = TypeName.string2TypeName(dexEntry.getClassName());
+    		if (loadedClasses.get(tName) != null
+    				|| (lParent != null && lParent.lookupClass(tName) != null)) {
+    			Warnings.add(MultipleDexImplementationsWarning
+    					.create(dexEntry.getClassName()));
+    		} else {
+    			candidates.add(dexEntry);
+    			names.add(tName);
+    		}
+    	}
 
-    		// Dalvik class
-    		if (entry instanceof DexModuleEntry) {
-    			DexModuleEntry dexEntry = ((DexModuleEntry) entry);
-    			TypeName tName = TypeName.string2TypeName(dexEntry.getClassName());
-
-    			//if (DEBUG_LEVEL > 0) {
-    			//  System.err.println("Consider dex class: " + tName);
-    			//}
-
-    			//System.out.println("Typename: " + tName.toString());
-    			//System.out.println(tName.getClassName());
-    			if (loadedClasses.get(tName) != null) {
-    				Warnings.add(MultipleDexImplementationsWarning
-    						.create(dexEntry.getClassName()));
-    			} else if (lParent != null && lParent.lookupClass(tName) != null) {
-    				Warnings.add(MultipleDexImplementationsWarning
-    						.create(dexEntry.getClassName()));
+    	final IClass[] classes = makeClasses(candidates);
+
+    	for (int i = 0; i < classes.length; i++) {
+    		DexModuleEntry dexEntry = candidates.get(i);
+    		TypeName tName = names.get(i);
+    		// a class defined twice in the module keeps its first definition
+    		if (loadedClasses.get(tName) != null) {
+    			Warnings.add(MultipleDexImplementationsWarning
+    					.create(dexEntry.getClassName()));
+    		} else if (classes[i].getReference().getName().equals(tName)) {
+    			if (logger.isDebugEnabled()) {
+    				logger.debug("Load class: " + dexEntry.getClassName());
     			}
-    			//if the class is empty, ie an interface
-    			//                  else if (dexEntry.getClassDefItem().getClassData() == null) {
-    			//                      System.out.println("Jumping over (classdata null): "+dexEntry.getClassName());
-    			//                      Warnings.add(MultipleDexImplementationsWarning
-    			//                              .create(dexEntry.getClassName()));
-    			//                  }
-    			else {
-    				IClass iClass = new DexIClass(this, cha, dexEntry);
-    				if (iClass.getReference().getName().equals(tName)) {
-    					logger.debug("Load class: " + dexEntry.getClassName());
-    					loadedClasses.put(tName, iClass);
-    				} else {
-    					Warnings.add(InvalidDexFile.create(dexEntry.getClassName()));
+    			loadedClasses.put(tName, classes[i]);
+    		} else {
+    			Warnings.add(InvalidDexFile.create(dexEntry.getClassName()));
+    		}
+    	}
+    }
+
+    /**
+     * @return a DexIClass for each entry, at the entry's index
+     */
+    private IClass[] makeClasses(final List<DexModuleEntry> entries)
+    		throws IOException {
+    	final IClass[] classes = new IClass[entries.size()];
+    	final int threads = Math.min(Runtime.getRuntime().availableProcessors(),
+    			entries.size() / MIN_CLASSES_PER_TASK);
+    	if (threads <= 1) {
+    		for (int i = 0; i < classes.length; i++) {
+    			classes[i] = new DexIClass(this, cha, entries.get(i));
+    		}
+    		return classes;
+    	}
+
+    	// a few slices per thread so that one slow slice does not hold up the rest
+    	final int tasks = threads * 4;
+    	final int sliceSize = (classes.length + tasks - 1) / tasks;
+    	final List<Callable<Void>> slices = new ArrayList<Callable<Void>>(tasks);
+    	for (int from = 0; from < classes.length; from += sliceSize) {
+    		final int start = from;
+    		final int end = Math.min(from + sliceSize, classes.length);
+    		slices.add(new Callable<Void>() {
+    			public Void call() {
+    				for (int i = start; i < end; i++) {
+    					classes[i] = new DexIClass(WDexClassLoaderImpl.this, cha,
+    							entries.get(i));
     				}
+    				return null;
     			}
+    		});
+    	}
+
+    	final ExecutorService pool = Executors.newFixedThreadPool(threads);
+    	try {
+    		// invokeAll waits for every slice, so the array writes are visible here
+    		for (Future<Void> f : pool.invokeAll(slices)) {
+    			f.get();
+    		}
+    	} catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new InterruptedIOException("interrupted loading dex classes");
+    	} catch (ExecutionException e) {
+    		final Throwable t = e.getCause();
+    		if (t instanceof RuntimeException) {
+    			throw (RuntimeException) t;
+    		} else if (t instanceof Error) {
+    			throw (Error) t;
     		}
+    		throw new RuntimeException(t);
+    	} finally {
+    		pool.shutdownNow();
     	}
+    	return classes;
     }
 
 
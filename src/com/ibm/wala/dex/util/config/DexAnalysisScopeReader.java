@@ -64,6 +64,19 @@ public class DexAnalysisScopeReader extends AnalysisScopeReader {
 	private static final String BASIC_FILE = "conf" + File.separator
 			+ "primordial.txt";
 
+	/**
+	 * @param exclusionsFile
+	 *            file holding class hierarchy exclusions. may be null
+	 * @return a scope holding only the standard library, i.e. the scope the
+	 *         other methods add the class path to
+	 * @throws IOException
+	 */
+	public static AnalysisScope makePrimordialScope(File exclusionsFile)
+			throws IOException {
+		return AnalysisScopeReader.readJavaScope(BASIC_FILE, exclusionsFile,
+				WALA_CLASSLOADER);
+	}
+
 	/**
 	 * @param classPath
 	 *            class path to analyze, delimited by File.pathSeparator
@@ -1319,7 +1319,7 @@ public class DexSSABuilder extends AbstractIntRegisterMachine {
 
         @Override
         public Instruction[] getInstructions() {
-            return dexCFG.getDexMethod().getDexInstructions();
+            return dexCFG.getInstructions();
         }
     }
 
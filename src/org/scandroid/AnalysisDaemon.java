@@ -0,0 +1,124 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+
+import org.scandroid.util.AndroidAnalysisContext;
+import org.scandroid.util.CLISCanDroidOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.wala.util.warnings.Warnings;
+
+/**
+ * Analyzes one app per request in a single long-running JVM, so that the
+ * Android library is loaded once rather than for every app.
+ * 
+ * Requests are read from stdin, one per line; a request is the arguments
+ * {@link SeparateEntryAnalysis} takes on its command line, separated by
+ * whitespace. Each request is answered with exactly one line on stdout:
+ * 
+ * <pre>
+ * ok &lt;number of permission outflows&gt;
+ * error &lt;message&gt;
+ * </pre>
+ * 
+ * The daemon stops at the end of its input or on a line reading
+ * <code>quit</code>. Everything else written to stdout, including the log,
+ * is sent to stderr instead.
+ * 
+ * Nothing built for an app outlives its request: each request builds its
+ * own class hierarchy, which is not cached. What is kept is the library
+ * side: a hierarchy over the Android library alone, whose Primordial loader
+ * every app's hierarchy shares, and which never refers to any app's classes.
+ * Listener callbacks are looked up among the library classes of each app's
+ * own hierarchy.
+ */
+public class AnalysisDaemon {
+	private static final Logger logger = LoggerFactory
+			.getLogger(AnalysisDaemon.class);
+
+	public static void main(String[] args) throws IOException {
+		final PrintStream out = System.out;
+		System.setOut(System.err);
+
+		AndroidAnalysisContext.setShareLibraryLoader(true);
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				System.in));
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.length() == 0) {
+				continue;
+			}
+			if (line.equals("quit")) {
+				break;
+			}
+			out.println(handle(line.split("\\s+")));
+			out.flush();
+		}
+	}
+
+	/**
+	 * @return the answer to a request
+	 */
+	static String handle(String[] args) {
+		long start = System.currentTimeMillis();
+		try {
+			int outflows = SeparateEntryAnalysis.run(new CLISCanDroidOptions(
+					args, true, false));
+			logger.info("analyzed in {} ms", System.currentTimeMillis()
+					- start);
+			return "ok " + outflows;
+		} catch (Throwable e) {
+			logger.error("request failed", e);
+			String message = e.getMessage() == null ? e.toString() : e
+					.getMessage();
+			return "error " + message.replaceAll("\\s+", " ");
+		} finally {
+			Warnings.clear();
+		}
+	}
+}
@@ -37,8 +37,13 @@ package org.scandroid;
  *
  */
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -57,107 +62,155 @@ import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 public class Checker {
 	private static final Logger logger = LoggerFactory.getLogger(Checker.class);
 
-    private static boolean addFlow(IKFlow source, IKFlow dest, Map<IKFlow, Set<IKFlow>> flow)
+    /**
+     * Computes the transitive closure of permissionFlow between instance key
+     * flows: for each IKFlow, the IKFlows reachable from it over one or more
+     * edges, through flows of any type. Sources which reach nothing are left
+     * out.
+     *
+     * The strongly connected components of the flow graph are collapsed
+     * (Tarjan), and reachability is propagated over the resulting DAG as bit
+     * sets, each component after all of the components it reaches. Sources in
+     * the same component share one unmodifiable set.
+     */
+    public static Map<IKFlow, Set<IKFlow>> computeClosure(Map<FlowType, Set<FlowType>> permissionFlow)
     {
-        Set<IKFlow> dests = flow.get(source);
-        if(dests == null)
+        // number the flows, and the instance key flows among them separately
+        Map<FlowType, Integer> ids = new HashMap<FlowType, Integer>();
+        List<FlowType> flows = new ArrayList<FlowType>();
+        List<IKFlow> ikFlows = new ArrayList<IKFlow>();
+        for(Entry<FlowType, Set<FlowType>> e: permissionFlow.entrySet())
         {
-            dests = new HashSet<IKFlow>();
-            flow.put(source, dests);
+            number(e.getKey(), ids, flows, ikFlows);
+            for(FlowType v: e.getValue())
+            {
+                number(v, ids, flows, ikFlows);
+            }
         }
-        return dests.add(dest);
-    }
-
-    private static boolean addFlow(FlowType source, FlowType dest, Map<FlowType, Set<FlowType>> flow)
-    {
-        Set<FlowType> dests = flow.get(source);
-        if(dests == null)
+        int n = flows.size();
+        int[][] succs = new int[n][];
+        int[] ikIds = new int[n];
+        int ikCount = 0;
+        for(int i = 0; i < n; i++)
         {
-            dests = new HashSet<FlowType>();
-            flow.put(source, dests);
+            FlowType flow = flows.get(i);
+            // numbered in the same order as flows
+            ikIds[i] = flow instanceof IKFlow ? ikCount++ : -1;
+            Set<FlowType> dests = permissionFlow.get(flow);
+            succs[i] = new int[dests == null ? 0 : dests.size()];
+            int j = 0;
+            if(dests != null)
+            {
+                for(FlowType v: dests)
+                {
+                    succs[i][j++] = ids.get(v);
+                }
+            }
         }
-        return dests.add(dest);
-    }
 
-    private static Map<IKFlow, Set<IKFlow>> computeClosure(Map<FlowType, Set<FlowType>> permissionFlow)
-    {
-        Map<IKFlow, Set<IKFlow>> uriFlow = new HashMap<IKFlow, Set<IKFlow>>();
-        boolean changed = true;
-        Map<FlowType, Set<FlowType>> growingFlow = new HashMap<FlowType,Set<FlowType>>(permissionFlow);
-        Map<FlowType, Set<FlowType>> newFlow = new HashMap<FlowType,Set<FlowType>>();
-        while(changed)
+        int[] index = new int[n];
+        int[] lowlink = new int[n];
+        int[] next = new int[n];
+        int[] component = new int[n];
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+        int[] stack = new int[n];
+        int[] path = new int[n];
+        int sp = 0;
+        int counter = 0;
+        List<BitSet> reach = new ArrayList<BitSet>();
+        for(int root = 0; root < n; root++)
         {
-            changed = false;
-            newFlow.clear();
-            for(Entry<FlowType, Set<FlowType>> e: growingFlow.entrySet())
+            if(index[root] != -1)
+                continue;
+            int pp = 0;
+            index[root] = lowlink[root] = counter++;
+            stack[sp++] = root;
+            path[pp++] = root;
+            while(pp > 0)
             {
-                if(e.getKey() instanceof IKFlow)
+                int u = path[pp - 1];
+                if(next[u] < succs[u].length)
                 {
-                    for(FlowType v:e.getValue())
+                    int v = succs[u][next[u]++];
+                    if(index[v] == -1)
                     {
-                        /*
-                        if(v instanceof IKFlow)
-                            addFlow((IKFlow)e.getKey(),(IKFlow)v,uriFlow);
-                        else
-                        {
-                            // find all of the possible targets
-                            if(v instanceof ActivityCallFlow || v instanceof ServiceCallFlow)
-                            {
-                                // find all instances of InputFlow
-                                for(Entry<FlowType, Set<FlowType>> e2:permissionFlow.entrySet())
-                                {
-                                    if(e2.getKey() instanceof InputFlow)
-                                    {
-                                        for(FlowType v2: e2.getValue())
-                                        {
-                                            addFlow(e.getKey(),v2,newFlow);
-                                        }
-                                    }
-                                }
-                            }
-                            else if(v instanceof ReturnFlow)
-                            {
-                                for(Entry<FlowType, Set<FlowType>> e2:permissionFlow.entrySet())
-                                {
-                                    if(e2.getKey() instanceof ReturnFlow)
-                                    {
-                                        for(FlowType v2: e2.getValue())
-                                        {
-                                            addFlow(e.getKey(),v2,newFlow);
-                                        }
-                                    }
-                                }
-                            }
-                            else if(v instanceof BinderFlow)
-                            {
-                                for(Entry<FlowType, Set<FlowType>> e2:permissionFlow.entrySet())
-                                {
-                                    if(e2.getKey() instanceof BinderFlow)
-                                    {
-                                        for(FlowType v2: e2.getValue())
-                                        {
-                                            addFlow(e.getKey(),v2,newFlow);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                        */
+                        index[v] = lowlink[v] = counter++;
+                        stack[sp++] = v;
+                        path[pp++] = v;
+                    }
+                    else if(component[v] == -1)
+                    {
+                        // still on the component stack
+                        lowlink[u] = Math.min(lowlink[u], index[v]);
                     }
+                    continue;
                 }
+                pp--;
+                if(pp > 0)
+                {
+                    int parent = path[pp - 1];
+                    lowlink[parent] = Math.min(lowlink[parent], lowlink[u]);
+                }
+                if(lowlink[u] != index[u])
+                    continue;
+                // u is the root of a component, and the components it
+                // reaches are all done
+                int c = reach.size();
+                int top = sp;
+                do
+                {
+                    component[stack[--sp]] = c;
+                } while(stack[sp] != u);
+                BitSet r = new BitSet();
+                for(int k = sp; k < top; k++)
+                {
+                    for(int v: succs[stack[k]])
+                    {
+                        if(ikIds[v] != -1)
+                            r.set(ikIds[v]);
+                        if(component[v] != c)
+                            r.or(reach.get(component[v]));
+                    }
+                }
+                reach.add(r);
             }
-            for(Entry<FlowType,Set<FlowType>> e: newFlow.entrySet())
+        }
+
+        Map<IKFlow, Set<IKFlow>> uriFlow = new HashMap<IKFlow, Set<IKFlow>>();
+        Map<Integer, Set<IKFlow>> componentFlow = new HashMap<Integer, Set<IKFlow>>();
+        for(int i = 0; i < n; i++)
+        {
+            if(ikIds[i] == -1 || reach.get(component[i]).isEmpty())
+                continue;
+            Set<IKFlow> dests = componentFlow.get(component[i]);
+            if(dests == null)
             {
-                for(FlowType v:e.getValue())
+                BitSet r = reach.get(component[i]);
+                dests = new HashSet<IKFlow>();
+                for(int j = r.nextSetBit(0); j >= 0; j = r.nextSetBit(j + 1))
                 {
-                    changed = addFlow(e.getKey(),v,growingFlow) || changed;
+                    dests.add(ikFlows.get(j));
                 }
+                dests = Collections.unmodifiableSet(dests);
+                componentFlow.put(component[i], dests);
             }
+            uriFlow.put((IKFlow) flows.get(i), dests);
         }
-
         return uriFlow;
     }
 
+    private static void number(FlowType flow, Map<FlowType, Integer> ids,
+            List<FlowType> flows, List<IKFlow> ikFlows)
+    {
+        if(ids.containsKey(flow))
+            return;
+        ids.put(flow, flows.size());
+        flows.add(flow);
+        if(flow instanceof IKFlow)
+            ikFlows.add((IKFlow) flow);
+    }
+
     public static void check(
             Map<FlowType, Set<FlowType>> permissionOutflow,
             Permissions perms, Map<InstanceKey, String> prefixes) {
@@ -38,30 +38,30 @@
 package org.scandroid;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.Collection;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
+import javax.xml.parsers.ParserConfigurationException;
+
 import org.apache.commons.io.FileUtils;
+import org.scandroid.synthmethod.BinarySummaryWriter;
+import org.scandroid.synthmethod.SSASerializationException;
+import org.scandroid.synthmethod.XMLSummaryWriter;
+import org.scandroid.util.AndroidAnalysisContext;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
-import com.ibm.wala.ssa.ISSABasicBlock;
-import com.ibm.wala.util.CancelRuntimeException;
+import com.ibm.wala.ipa.summaries.MethodSummary;
 
 /**
  * @author creswick
@@ -75,9 +75,13 @@ public class JarAnalysis {
 	private static int THREAD_COUNT = 3;
 	protected static final String PRG = "[PRG] ";
 	private static String OUTPUT_DIR = "results";
+	// write XML summaries instead of the binary format
+	private static boolean XML_OUTPUT = false;
 
 	/**
 	 * @param args
+	 *            thread count, app jar, package list file and optionally
+	 *            "xml" to export the summaries as XML
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 */
@@ -87,6 +91,7 @@ public class JarAnalysis {
 		final String appJar = args[1];
 		final String pkglistFile = args[2];
 		Set<String> interesting = loadLinesAsSet(pkglistFile);
+		XML_OUTPUT = args.length > 3 && "xml".equals(args[3]);
 
 		analyzeJar(appJar, interesting);
 	}
@@ -101,82 +106,98 @@ public class JarAnalysis {
 			throws ClassNotFoundException, IOException {
 		final Multimap<String, String> pkgMethods = getMethodsByPackage(appJar);
 
-		Set<Future<?>> futures = Sets.newHashSet();
-		// ExecutorService pool = Executors.newFixedThreadPool(THREAD_COUNT);
-		
-		int tcount = Math.min(interestingPkgs.size(), THREAD_COUNT);
-		ExecutorService pool = Executors.newFixedThreadPool(tcount);
-
-//		Set<String> fullPkgSet = pkgMethods.keySet();
-//
-//		SetView<String> interestingPkgs = Sets
-//				.difference(fullPkgSet, blacklist);
+		Multimap<String, String> work = HashMultimap.create();
 		System.out.println("Working on these packages:");
 		for (final String pkg : interestingPkgs) {
 			System.out.println("   "+pkg);
+			work.putAll(pkg, pkgMethods.get(pkg));
 		}
 		System.out.println("--------------------------");
-		for (final String pkg : interestingPkgs) {
-			Runnable runner = new Runnable() {
-				public void run() {
-					System.out.println(PRG + "Starting work on: " + pkg);
-					Collection<String> methodDescriptors = pkgMethods.get(pkg);
-					try {
-						Summarizer<ISSABasicBlock> s = new Summarizer<ISSABasicBlock>(
-								appJar);
-
-						for (String mDescr : methodDescriptors) {
-							try {
-								System.out.println(PRG + "Summarizing: "
-										+ mDescr);
-								s.summarize(mDescr,
-										new TimedMonitor(TIME_LIMIT));
-								System.out.println(PRG + "Summarized: "
-										+ mDescr);
-							} catch (CancelRuntimeException cre) {
-								System.out.println(PRG
-										+ "Summary time out for: " + mDescr);
-								System.out.println(PRG + "   cause: "
-										+ cre.getCause().toString());
-							} catch (Exception e) {
-								System.err.println(PRG
-										+ "Could not summarize method: "
-										+ mDescr);
-								e.printStackTrace();
-							}
+
+		// one class hierarchy per worker, built here one after the other;
+		// the workers then balance the individual methods between them
+		final int workers = Math.max(1, Math.min(THREAD_COUNT, work.size()));
+		List<AndroidAnalysisContext> analysisContexts = Lists.newArrayList();
+		try {
+			for (int i = 0; i < workers; i++) {
+				analysisContexts.add(Summarizer.makeAnalysisContext(appJar));
+			}
+		} catch (Exception e) {
+			System.err.println("Could not create summarizer for appJar: "
+					+ appJar);
+			e.printStackTrace();
+			return;
+		}
+
+		Map<String, List<MethodSummary>> summaries;
+		try {
+			summaries = new SummaryScheduler(analysisContexts, TIME_LIMIT)
+					.run(work);
+		} catch (InterruptedException e) {
+			System.out.println("   Exception: "+e.getMessage());
+			Thread.currentThread().interrupt();
+			return;
+		}
+
+		for (String pkg : interestingPkgs) {
+			if (XML_OUTPUT) {
+				store(pkg, serialize(summaries.get(pkg)));
+			} else {
+				write(pkg, summaries.get(pkg));
+			}
+		}
+	}
+
+	private static void write(String pkg, List<MethodSummary> summaries) {
+		String pathname = OUTPUT_DIR + "/" + pkg + ".summaries";
+		File file = new File(pathname);
+		try {
+			FileUtils.forceMkdir(file.getParentFile());
+			BinarySummaryWriter writer = new BinarySummaryWriter(
+					new FileOutputStream(file));
+			try {
+				if (summaries != null) {
+					for (MethodSummary summary : summaries) {
+						try {
+							writer.add(summary);
+						} catch (SSASerializationException e) {
+							System.err.println(PRG
+									+ "Could not summarize method: "
+									+ summary.getMethod().getSignature());
+							e.printStackTrace();
 						}
-						store(pkg, s.serialize());
-					} catch (Exception e) {
-						System.err
-								.println("Could not create summarizer for appJar: "
-										+ appJar);
-						e.printStackTrace();
 					}
 				}
-			};
-
-			futures.add(pool.submit(runner));
+			} finally {
+				writer.close();
+			}
+			System.out.println("Wrote summaries to: " + pathname);
+		} catch (IOException e) {
+			System.err.println("Could not write package summaries to: "
+					+ pathname);
+			e.printStackTrace();
 		}
+	}
 
-		System.out.println("Joining on futures. "+futures.size()+" to wait on.");
-		for (Future<?> f : futures) {
-			try {
-				System.out.print("Waiting...");
-				f.get();
-				System.out.println("...future joined.");
-			} catch (InterruptedException e) {
-				System.out.println("   Exception: "+e.getMessage());
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			} catch (ExecutionException e) {
-				System.out.println("   Exception: "+e.getMessage());
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			} 
-			System.out.println("Are we exiting now, or looping more?");
+	private static String serialize(List<MethodSummary> summaries) {
+		XMLSummaryWriter writer;
+		try {
+			writer = new XMLSummaryWriter();
+		} catch (ParserConfigurationException e) {
+			throw new RuntimeException(e);
+		}
+		if (summaries != null) {
+			for (MethodSummary summary : summaries) {
+				try {
+					writer.add(summary);
+				} catch (Exception e) {
+					System.err.println(PRG + "Could not summarize method: "
+							+ summary.getMethod().getSignature());
+					e.printStackTrace();
+				}
+			}
 		}
-		pool.shutdown();
-		System.out.println("Why are we still here?");
+		return writer.serialize();
 	}
 
 	private static Set<String> loadLinesAsSet(String blacklistFile)
@@ -0,0 +1,398 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+
+/**
+ * The PScout permission mappings: which API methods require which
+ * permissions. Methods are named by signature, as in
+ * <code>android/location/LocationManager.getLastKnownLocation(Ljava/lang/String;)Landroid/location/Location;</code>.
+ * 
+ * The mappings are stored in a sorted string table holding the permission
+ * names and the class and selector halves of each method signature. The
+ * methods are kept sorted by class and then selector, so that the
+ * permissions of a method are found by binary search:
+ * 
+ * <pre>
+ * int magic, int version
+ * int count, UTF string per string, in sorted order
+ * int count, int string per permission
+ * int count, (int class, int selector, short count, short permission per
+ *            permission) per method
+ * </pre>
+ * 
+ * {@link #read(InputStream)} also accepts the older serialized
+ * java.util.Map from permission names to sets of method signatures, and
+ * {@link #main(String[])} converts such a file to this format.
+ */
+public class PermissionMapping {
+
+	final static int MAGIC = 0x5343504d; // "SCPM"
+	final static int VERSION = 1;
+
+	// first two bytes of a java.io serialization stream
+	private final static int SERIALIZED_MAGIC = 0xaced;
+
+	private final String[] strings;
+	private final int[] permissions;
+
+	// methods, sorted by their class and selector strings
+	private final int[] methodClasses;
+	private final int[] methodSelectors;
+
+	// permissions of method i are permissionIndex[permissionStart[i] ..
+	// permissionStart[i+1]), as indices into permissions
+	private final int[] permissionStart;
+	private final int[] permissionIndex;
+
+	// and the methods of permission p likewise
+	private final int[] methodStart;
+	private final int[] methodIndex;
+
+	private PermissionMapping(String[] strings, int[] permissions,
+			int[] methodClasses, int[] methodSelectors, int[] permissionStart,
+			int[] permissionIndex) {
+		this.strings = strings;
+		this.permissions = permissions;
+		this.methodClasses = methodClasses;
+		this.methodSelectors = methodSelectors;
+		this.permissionStart = permissionStart;
+		this.permissionIndex = permissionIndex;
+
+		methodStart = new int[permissions.length + 1];
+		for (int p : permissionIndex) {
+			methodStart[p + 1]++;
+		}
+		for (int p = 0; p < permissions.length; p++) {
+			methodStart[p + 1] += methodStart[p];
+		}
+		methodIndex = new int[permissionIndex.length];
+		int[] next = Arrays.copyOf(methodStart, permissions.length);
+		for (int m = 0; m < methodClasses.length; m++) {
+			for (int i = permissionStart[m]; i < permissionStart[m + 1]; i++) {
+				methodIndex[next[permissionIndex[i]]++] = m;
+			}
+		}
+	}
+
+	/**
+	 * Read mappings in this format, or as a serialized map from permission
+	 * names to sets of method signatures.
+	 */
+	public static PermissionMapping read(InputStream in) throws IOException {
+		in = new BufferedInputStream(in);
+		in.mark(2);
+		int magic = (in.read() << 8) | in.read();
+		in.reset();
+		if (magic == SERIALIZED_MAGIC) {
+			try {
+				@SuppressWarnings("unchecked")
+				Map<String, ? extends Collection<String>> map = (Map<String, ? extends Collection<String>>) new ObjectInputStream(
+						in).readObject();
+				return fromMap(map);
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+		}
+
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC) {
+			throw new IOException("not a permission mapping file");
+		}
+		int version = data.readInt();
+		if (version != VERSION) {
+			throw new IOException("unsupported permission mapping version: "
+					+ version);
+		}
+		String[] strings = new String[data.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = data.readUTF();
+		}
+		int[] permissions = new int[data.readInt()];
+		for (int p = 0; p < permissions.length; p++) {
+			permissions[p] = data.readInt();
+		}
+		int methods = data.readInt();
+		int[] methodClasses = new int[methods];
+		int[] methodSelectors = new int[methods];
+		int[] permissionStart = new int[methods + 1];
+		int[] permissionIndex = new int[16];
+		for (int m = 0; m < methods; m++) {
+			methodClasses[m] = data.readInt();
+			methodSelectors[m] = data.readInt();
+			int count = data.readUnsignedShort();
+			permissionStart[m + 1] = permissionStart[m] + count;
+			if (permissionStart[m + 1] > permissionIndex.length) {
+				permissionIndex = Arrays.copyOf(permissionIndex, Math.max(
+						2 * permissionIndex.length, permissionStart[m + 1]));
+			}
+			for (int i = permissionStart[m]; i < permissionStart[m + 1]; i++) {
+				permissionIndex[i] = data.readUnsignedShort();
+			}
+		}
+		return new PermissionMapping(strings, permissions, methodClasses,
+				methodSelectors, permissionStart, Arrays.copyOf(
+						permissionIndex, permissionStart[methods]));
+	}
+
+	/**
+	 * Index a map from permission names to method signatures.
+	 */
+	public static PermissionMapping fromMap(
+			Map<String, ? extends Collection<String>> map) {
+		SortedSet<String> stringSet = Sets.newTreeSet();
+		// method class and selector -> permission names
+		Map<List<String>, SortedSet<String>> byMethod = Maps.newHashMap();
+		for (Map.Entry<String, ? extends Collection<String>> e : map
+				.entrySet()) {
+			stringSet.add(e.getKey());
+			for (String signature : e.getValue()) {
+				List<String> method = split(signature);
+				stringSet.addAll(method);
+				SortedSet<String> perms = byMethod.get(method);
+				if (perms == null) {
+					perms = Sets.newTreeSet();
+					byMethod.put(method, perms);
+				}
+				perms.add(e.getKey());
+			}
+		}
+
+		String[] strings = stringSet.toArray(new String[stringSet.size()]);
+		SortedSet<String> permissionNames = Sets.newTreeSet(map.keySet());
+		int[] permissions = new int[permissionNames.size()];
+		int p = 0;
+		for (String permission : permissionNames) {
+			permissions[p++] = Arrays.binarySearch(strings, permission);
+		}
+
+		// string indices follow the sort order, so sorting the methods by
+		// their index pairs sorts them by class and selector
+		List<int[]> methods = Lists.newArrayList();
+		for (List<String> method : byMethod.keySet()) {
+			methods.add(new int[] {
+					Arrays.binarySearch(strings, method.get(0)),
+					Arrays.binarySearch(strings, method.get(1)) });
+		}
+		Collections.sort(methods, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				return a[0] != b[0] ? a[0] - b[0] : a[1] - b[1];
+			}
+		});
+
+		int[] methodClasses = new int[methods.size()];
+		int[] methodSelectors = new int[methods.size()];
+		int[] permissionStart = new int[methods.size() + 1];
+		List<Integer> permissionIndex = Lists.newArrayList();
+		for (int m = 0; m < methods.size(); m++) {
+			methodClasses[m] = methods.get(m)[0];
+			methodSelectors[m] = methods.get(m)[1];
+			for (String permission : byMethod.get(Arrays.asList(
+					strings[methodClasses[m]], strings[methodSelectors[m]]))) {
+				permissionIndex.add(Arrays.binarySearch(permissions,
+						Arrays.binarySearch(strings, permission)));
+			}
+			permissionStart[m + 1] = permissionIndex.size();
+		}
+		return new PermissionMapping(strings, permissions, methodClasses,
+				methodSelectors, permissionStart, Ints.toArray(permissionIndex));
+	}
+
+	public void write(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+				out));
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(strings.length);
+		for (String s : strings) {
+			data.writeUTF(s);
+		}
+		data.writeInt(permissions.length);
+		for (int p : permissions) {
+			data.writeInt(p);
+		}
+		data.writeInt(methodClasses.length);
+		for (int m = 0; m < methodClasses.length; m++) {
+			data.writeInt(methodClasses[m]);
+			data.writeInt(methodSelectors[m]);
+			data.writeShort(permissionStart[m + 1] - permissionStart[m]);
+			for (int i = permissionStart[m]; i < permissionStart[m + 1]; i++) {
+				data.writeShort(permissionIndex[i]);
+			}
+		}
+		data.flush();
+	}
+
+	/**
+	 * @return the names of all permissions, sorted
+	 */
+	public Set<String> getPermissions() {
+		ImmutableSortedSet.Builder<String> result = ImmutableSortedSet
+				.naturalOrder();
+		for (int p : permissions) {
+			result.add(strings[p]);
+		}
+		return result.build();
+	}
+
+	/**
+	 * @return the signatures of the methods that require a permission, or
+	 *         an empty set for an unknown permission
+	 */
+	public Set<String> getMethods(String permission) {
+		int s = Arrays.binarySearch(strings, permission);
+		int p = s < 0 ? -1 : Arrays.binarySearch(permissions, s);
+		if (p < 0) {
+			return Collections.emptySet();
+		}
+		ImmutableSortedSet.Builder<String> result = ImmutableSortedSet
+				.naturalOrder();
+		for (int i = methodStart[p]; i < methodStart[p + 1]; i++) {
+			int m = methodIndex[i];
+			result.add(strings[methodClasses[m]] + "."
+					+ strings[methodSelectors[m]]);
+		}
+		return result.build();
+	}
+
+	/**
+	 * @return the permissions a method requires, or an empty set if the
+	 *         method is not in the mappings
+	 */
+	public Set<String> getPermissions(String methodSignature) {
+		List<String> method = split(methodSignature);
+		int c = Arrays.binarySearch(strings, method.get(0));
+		int s = Arrays.binarySearch(strings, method.get(1));
+		int m = c < 0 || s < 0 ? -1 : findMethod(c, s);
+		if (m < 0) {
+			return Collections.emptySet();
+		}
+		ImmutableSortedSet.Builder<String> result = ImmutableSortedSet
+				.naturalOrder();
+		for (int i = permissionStart[m]; i < permissionStart[m + 1]; i++) {
+			result.add(strings[permissions[permissionIndex[i]]]);
+		}
+		return result.build();
+	}
+
+	private int findMethod(int c, int s) {
+		int low = 0;
+		int high = methodClasses.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = methodClasses[mid] != c ? methodClasses[mid] - c
+					: methodSelectors[mid] - s;
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Split a method signature into its class and its selector.
+	 */
+	private static List<String> split(String signature) {
+		int paren = signature.indexOf('(');
+		int dot = signature.lastIndexOf('.', paren < 0 ? signature.length()
+				: paren);
+		if (dot < 0) {
+			throw new IllegalArgumentException("not a method signature: "
+					+ signature);
+		}
+		return Arrays.asList(signature.substring(0, dot),
+				signature.substring(dot + 1));
+	}
+
+	/**
+	 * Convert a serialized permission map to this format.
+	 * 
+	 * @param args
+	 *            the serialized map and the file to write
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("usage: PermissionMapping <mappings.bin> <output>");
+			System.exit(1);
+		}
+		InputStream in = new FileInputStream(args[0]);
+		PermissionMapping mapping;
+		try {
+			mapping = read(in);
+		} finally {
+			in.close();
+		}
+		OutputStream out = new FileOutputStream(args[1]);
+		try {
+			mapping.write(out);
+		} finally {
+			out.close();
+		}
+	}
+}
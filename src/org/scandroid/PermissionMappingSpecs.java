@@ -41,11 +41,8 @@ package org.scandroid;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.io.UTFDataFormatException;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 import org.scandroid.spec.CallArgSinkSpec;
@@ -64,14 +61,15 @@ import com.ibm.wala.util.strings.StringStuff;
 /**
  * An ISpecs implementation generated from the PScout permission mappings. The
  * inputstream these constructors expect is *not* the raw PScout file, but
- * rather a parsed version of that file that has been serialized as a
- * java.util.Map from permission names to sets of method signatures.
+ * rather a parsed version of that file, either in the format of
+ * {@link PermissionMapping} or serialized as a java.util.Map from permission
+ * names to sets of method signatures.
  * 
  * @author acfoltzer
  * 
  */
 public class PermissionMappingSpecs implements ISpecs {
-	private final Map<String, Set<String>> mappings;
+	private final PermissionMapping mappings;
 	private final SourceSpec[] sources;
 	private final SinkSpec[] sinks;
 
@@ -83,16 +81,15 @@ public class PermissionMappingSpecs implements ISpecs {
 	 * @throws IOException
 	 * @throws ClassNotFoundException
 	 */
-	@SuppressWarnings("unchecked")
 	public PermissionMappingSpecs(InputStream mappingStream)
 			throws ClassNotFoundException, IOException {
-		this.mappings = (Map<String, Set<String>>) new ObjectInputStream(
-				mappingStream).readObject();
+		this.mappings = PermissionMapping.read(mappingStream);
 		Set<SourceSpec> sourceSet = Sets.newHashSet();
 		Set<SinkSpec> sinkSet = Sets.newHashSet();
-		for (Entry<String, Set<String>> entry : mappings.entrySet()) {
-			sourceSet.addAll(sourcesForSet(entry.getValue()));
-			sinkSet.addAll(sinksForSet(entry.getValue()));
+		for (String permission : mappings.getPermissions()) {
+			Set<String> methods = mappings.getMethods(permission);
+			sourceSet.addAll(sourcesForSet(methods));
+			sinkSet.addAll(sinksForSet(methods));
 		}
 		this.sources = (SourceSpec[]) sourceSet.toArray(new SourceSpec[sourceSet.size()]);
 		this.sinks = (SinkSpec[]) sinkSet.toArray(new SinkSpec[sinkSet.size()]);
@@ -113,21 +110,20 @@ public class PermissionMappingSpecs implements ISpecs {
 	public PermissionMappingSpecs(InputStream mappingStream,
 			Set<String> sourcePermissions, Set<String> sinkPermissions)
 			throws ClassNotFoundException, IOException {
-		this.mappings = (Map<String, Set<String>>) new ObjectInputStream(
-				mappingStream).readObject();
+		this.mappings = PermissionMapping.read(mappingStream);
 		Set<SourceSpec> sourceSet = Sets.newHashSet();
 		Set<SinkSpec> sinkSet = Sets.newHashSet();
 
 		for (String sourcePermission : sourcePermissions) {
-			sourceSet.addAll(sourcesForSet(mappings.get(sourcePermission)));
+			sourceSet.addAll(sourcesForSet(mappings.getMethods(sourcePermission)));
 		}
 
 		for (String sinkPermission : sinkPermissions) {
-			sinkSet.addAll(sinksForSet(mappings.get(sinkPermission)));
+			sinkSet.addAll(sinksForSet(mappings.getMethods(sinkPermission)));
 		}
 
-		this.sources = (SourceSpec[]) sourceSet.toArray();
-		this.sinks = (SinkSpec[]) sinkSet.toArray();
+		this.sources = sourceSet.toArray(new SourceSpec[sourceSet.size()]);
+		this.sinks = sinkSet.toArray(new SinkSpec[sinkSet.size()]);
 	}
 
 	private List<SourceSpec> sourcesForSet(Set<String> set)
@@ -185,6 +181,13 @@ public class PermissionMappingSpecs implements ISpecs {
 		return result;
 	}
 
+	/**
+	 * @return the permission mappings the specs were generated from
+	 */
+	public PermissionMapping getMappings() {
+		return mappings;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
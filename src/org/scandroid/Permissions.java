@@ -39,14 +39,50 @@ package org.scandroid;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
-import java.util.Map.Entry;
 
 
 public class Permissions {
 
-    private HashMap<String, String> readPerms = new HashMap<String, String>();
-    private HashMap<String, String> writePerms = new HashMap<String, String>();
+    /**
+     * URI prefixes with the permission each one requires. Looking up a URI
+     * walks it once, picking up the permissions of all of its prefixes on
+     * the way, instead of testing it against every rule.
+     */
+    private static class PrefixTrie {
+        private final Map<Character, PrefixTrie> children = new HashMap<Character, PrefixTrie>();
+        private String permission;
+
+        void put(String prefix, String perm) {
+            PrefixTrie node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                Character c = prefix.charAt(i);
+                PrefixTrie child = node.children.get(c);
+                if (child == null) {
+                    child = new PrefixTrie();
+                    node.children.put(c, child);
+                }
+                node = child;
+            }
+            node.permission = perm;
+        }
+
+        HashSet<String> match(String uri) {
+            HashSet<String> perms = new HashSet<String>();
+            PrefixTrie node = this;
+            for (int i = 0; ; i++) {
+                if (node.permission != null) perms.add(node.permission);
+                if (i == uri.length()) break;
+                node = node.children.get(uri.charAt(i));
+                if (node == null) break;
+            }
+            return perms;
+        }
+    }
+
+    private PrefixTrie readPerms = new PrefixTrie();
+    private PrefixTrie writePerms = new PrefixTrie();
 
     public Permissions() {
         readPerms.put("content://some.authority1", "READ1");
@@ -69,18 +105,10 @@ public class Permissions {
     }
 
     public HashSet<String> readPerms(String uri) {
-        HashSet<String> perms = new HashSet<String>();
-        for (Entry<String,String> e: readPerms.entrySet()) {
-            if (uri.startsWith(e.getKey())) perms.add(e.getValue());
-        }
-        return perms;
+        return readPerms.match(uri);
     }
 
     public HashSet<String> writePerms(String uri) {
-        HashSet<String> perms = new HashSet<String>();
-        for (Entry<String,String> e: writePerms.entrySet()) {
-            if (uri.startsWith(e.getKey())) perms.add(e.getValue());
-        }
-        return perms;
+        return writePerms.match(uri);
     }
 }
@@ -41,6 +41,7 @@ package org.scandroid;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -82,7 +83,16 @@ public class SeparateEntryAnalysis {
 
 	public static void main(String[] args) throws Exception {
 		CLISCanDroidOptions options = new CLISCanDroidOptions(args, true);
+		run(options);
+	}
 
+	/**
+	 * Analyze the app given by the options, as the command line tool does.
+	 * 
+	 * @return the number of permission outflows detected, over all the
+	 *         entry points
+	 */
+	public static int run(CLISCanDroidOptions options) throws Exception {
 		logger.info("Loading app.");
 		AndroidAnalysisContext analysisContext = new AndroidAnalysisContext(
 				options);
@@ -94,11 +104,23 @@ public class SeparateEntryAnalysis {
 
 			if (!summariesFile.exists()) {
 				logger.error("Could not find summaries file: " + summariesFile);
-				System.exit(1);
+				throw new FileNotFoundException(summariesFile.toString());
 			}
 
 			summaryStream = new FileInputStream(summariesFile);
 		}
+		try {
+			return run(options, analysisContext, summaryStream);
+		} finally {
+			if (summaryStream != null) {
+				summaryStream.close();
+			}
+		}
+	}
+
+	private static int run(CLISCanDroidOptions options,
+			AndroidAnalysisContext analysisContext, InputStream summaryStream)
+			throws Exception {
 
 //		for (IClass c : analysisContext.getClassHierarchy()) {
 //			logger.error(" class loaded: {}", c);
@@ -116,6 +138,7 @@ public class SeparateEntryAnalysis {
 			logger.info("Entry point: " + entry);
 		}
 
+		int outflows = 0;
 		if (options.separateEntries()) {
 			int i = 1;
 			for (final Entrypoint entry : entrypoints) {
@@ -129,7 +152,7 @@ public class SeparateEntryAnalysis {
 						});
 				logger.info("** Processing entry point " + i + "/"
 						+ entrypoints.size() + ": " + entry);
-				analyze(cgContext, summaryStream, null);
+				outflows += analyze(cgContext, summaryStream, null);
 				i++;
 			}
 		} else {
@@ -141,8 +164,9 @@ public class SeparateEntryAnalysis {
 							return entrypoints;
 						}
 					});
-			analyze(cgContext, summaryStream, null);
+			outflows += analyze(cgContext, summaryStream, null);
 		}
+		return outflows;
 	}
 
 	/**
@@ -241,7 +241,7 @@ public class StringPrefixAnalysis {
                 BasicBlockInContext<IExplodedBasicBlock>[] entryBlocks = graph.getEntriesForProcedure(entryProc);
                 for(BasicBlockInContext<IExplodedBasicBlock> entryBlock: entryBlocks) {
                     for (int i = 0; i < entryProc.getIR().getNumberOfParameters(); i++) {
-                        list.add(PathEdge.createPathEdge(entryBlock, 0, entryBlock, domain.getMappedIndex(new DomainElement(new LocalElement(i+1),null))));
+                        list.add(PathEdge.createPathEdge(entryBlock, 0, entryBlock, domain.getMappedIndex(new LocalElement(i+1),null)));
                     }
                 }
                 return list;
@@ -162,7 +162,27 @@ public class Summarizer<E extends ISSABasicBlock> {
 	public Summarizer(final String appJar) throws IllegalArgumentException,
 			ClassHierarchyException, IOException, CancelException,
 			URISyntaxException, ParserConfigurationException {
-		analysisContext = new AndroidAnalysisContext(
+		this(makeAnalysisContext(appJar));
+	}
+
+	/**
+	 * Summarize methods against an existing analysis context. Summarizing
+	 * builds call graphs, which write to the class hierarchy of the context,
+	 * so summarizers running on different threads need a context each.
+	 */
+	public Summarizer(AndroidAnalysisContext analysisContext)
+			throws ParserConfigurationException {
+		this.analysisContext = analysisContext;
+		writer = new XMLSummaryWriter();
+	}
+
+	/**
+	 * The analysis context used to summarize the methods of appJar.
+	 */
+	public static AndroidAnalysisContext makeAnalysisContext(final String appJar)
+			throws IllegalArgumentException, ClassHierarchyException,
+			IOException, CancelException, URISyntaxException {
+		return new AndroidAnalysisContext(
 				new DefaultSCanDroidOptions() {
 					@Override
 					public URI getClasspath() {
@@ -184,7 +204,6 @@ public class Summarizer<E extends ISSABasicBlock> {
 					}
 
 				});
-		writer = new XMLSummaryWriter();
 	}
 
 	public void summarize(String methodDescriptor)
@@ -213,6 +232,23 @@ public class Summarizer<E extends ISSABasicBlock> {
 	public void summarize(String methodDescriptor, IProgressMonitor monitor,
 			ISpecs additionalSpecs) throws IOException,
 			ClassHierarchyException, CallGraphBuilderCancelException {
+		MethodSummary summary = summarizeMethod(methodDescriptor, monitor,
+				additionalSpecs);
+		if (summary != null) {
+			writer.add(summary);
+		}
+	}
+
+	/**
+	 * Create the summary of a method without adding it to this summarizer's
+	 * output.
+	 * 
+	 * @return the summary, or null for constructors and class initializers
+	 */
+	public MethodSummary summarizeMethod(String methodDescriptor,
+			IProgressMonitor monitor, ISpecs additionalSpecs)
+			throws IOException, ClassHierarchyException,
+			CallGraphBuilderCancelException {
 
 		MethodReference methodRef = StringStuff
 				.makeMethodReference(methodDescriptor);
@@ -230,7 +266,7 @@ public class Summarizer<E extends ISSABasicBlock> {
 
 		// let's ignore constructors and class initializers
 		if (imethod.isInit() || imethod.isClinit())
-			return;
+			return null;
 
 		MethodSummary summary = new MethodSummary(methodRef);
 		summary.setStatic(imethod.isStatic());
@@ -264,7 +300,7 @@ public class Summarizer<E extends ISSABasicBlock> {
 			summary.addStatement(inst);
 		}
 
-		writer.add(summary);
+		return summary;
 	}
 
 	/**
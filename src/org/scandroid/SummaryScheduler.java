@@ -0,0 +1,228 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, Rogan Creswick <creswick@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import org.scandroid.spec.ISpecs;
+import org.scandroid.util.AndroidAnalysisContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.util.CancelRuntimeException;
+
+/**
+ * Summarizes methods one at a time on a fixed number of workers, each with
+ * its own {@link AndroidAnalysisContext}.
+ * 
+ * Building call graphs writes to the class hierarchy, e.g. its target cache
+ * and the synthetic classes it registers, so a context is never used by two
+ * workers. The contexts are built by the caller, one after the other, since
+ * building one also sets process-wide state such as the callbacks of
+ * {@link org.scandroid.spec.AndroidSpecs}. They must not share the library
+ * loader, see {@link AndroidAnalysisContext#setShareLibraryLoader(boolean)}.
+ * 
+ * The methods are dealt round-robin onto one deque per worker. A worker takes
+ * methods from the head of its own deque and, once that is empty, steals
+ * from the tail of the others', so a package with many expensive methods is
+ * spread over all workers instead of keeping one of them busy to the end.
+ * 
+ * The summaries of a package are returned in the order of their method
+ * descriptors, whichever worker produced them.
+ */
+public class SummaryScheduler {
+
+	private final List<AndroidAnalysisContext> analysisContexts;
+	private final long timeLimit;
+
+	/**
+	 * @param analysisContexts
+	 *            one context per worker, over the same application
+	 * @param timeLimit
+	 *            time limit for summarizing one method, in seconds
+	 */
+	public SummaryScheduler(List<AndroidAnalysisContext> analysisContexts,
+			long timeLimit) {
+		if (analysisContexts.isEmpty()) {
+			throw new IllegalArgumentException("no analysis contexts");
+		}
+		this.analysisContexts = analysisContexts;
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * @param methodsByPackage
+	 *            descriptors of the methods to summarize, by package
+	 * @return the summaries of each package, sorted by method descriptor.
+	 *         Methods that could not be summarized are left out.
+	 */
+	public Map<String, List<MethodSummary>> run(
+			Multimap<String, String> methodsByPackage)
+			throws InterruptedException {
+		final List<String> pkgs = Ordering.natural().sortedCopy(
+				methodsByPackage.keySet());
+		final List<Task> tasks = Lists.newArrayList();
+		for (String pkg : pkgs) {
+			for (String descr : Ordering.natural().sortedCopy(
+					methodsByPackage.get(pkg))) {
+				tasks.add(new Task(tasks.size(), pkg, descr));
+			}
+		}
+
+		final MethodSummary[] results = new MethodSummary[tasks.size()];
+		final int n = Math.max(1,
+				Math.min(analysisContexts.size(), tasks.size()));
+		final List<LinkedBlockingDeque<Task>> deques = Lists.newArrayList();
+		for (int i = 0; i < n; i++) {
+			deques.add(new LinkedBlockingDeque<Task>());
+		}
+		for (Task task : tasks) {
+			deques.get(task.id % n).addLast(task);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(n);
+		try {
+			List<Future<Void>> futures = Lists.newArrayList();
+			for (int i = 0; i < n; i++) {
+				futures.add(pool.submit(new Worker(i, deques, results)));
+			}
+			for (Future<Void> f : futures) {
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					System.err.println(JarAnalysis.PRG + "Worker failed: "
+							+ e.getCause());
+					e.getCause().printStackTrace();
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		Map<String, List<MethodSummary>> summaries = Maps.newLinkedHashMap();
+		for (String pkg : pkgs) {
+			summaries.put(pkg, Lists.<MethodSummary> newArrayList());
+		}
+		for (Task task : tasks) {
+			if (results[task.id] != null) {
+				summaries.get(task.pkg).add(results[task.id]);
+			}
+		}
+		return summaries;
+	}
+
+	private static final class Task {
+		final int id;
+		final String pkg;
+		final String descriptor;
+
+		Task(int id, String pkg, String descriptor) {
+			this.id = id;
+			this.pkg = pkg;
+			this.descriptor = descriptor;
+		}
+	}
+
+	private final class Worker implements Callable<Void> {
+		private final int index;
+		private final List<LinkedBlockingDeque<Task>> deques;
+		private final MethodSummary[] results;
+
+		Worker(int index, List<LinkedBlockingDeque<Task>> deques,
+				MethodSummary[] results) {
+			this.index = index;
+			this.deques = deques;
+			this.results = results;
+		}
+
+		public Void call() throws Exception {
+			Summarizer<ISSABasicBlock> s = new Summarizer<ISSABasicBlock>(
+					analysisContexts.get(index));
+			Task task;
+			while (!Thread.currentThread().isInterrupted()
+					&& (task = next()) != null) {
+				results[task.id] = summarize(s, task.descriptor);
+			}
+			return null;
+		}
+
+		/**
+		 * No tasks are added once the workers run, so when every deque is
+		 * found empty the work is done.
+		 */
+		private Task next() {
+			Task task = deques.get(index).pollFirst();
+			for (int i = 1; task == null && i < deques.size(); i++) {
+				task = deques.get((index + i) % deques.size()).pollLast();
+			}
+			return task;
+		}
+
+		private MethodSummary summarize(Summarizer<ISSABasicBlock> s,
+				String mDescr) {
+			try {
+				System.out.println(JarAnalysis.PRG + "Summarizing: " + mDescr);
+				MethodSummary summary = s.summarizeMethod(mDescr,
+						new TimedMonitor(timeLimit), ISpecs.EMPTY_SPECS);
+				System.out.println(JarAnalysis.PRG + "Summarized: " + mDescr);
+				return summary;
+			} catch (CancelRuntimeException cre) {
+				System.out.println(JarAnalysis.PRG + "Summary time out for: "
+						+ mDescr);
+				System.out.println(JarAnalysis.PRG + "   cause: "
+						+ cre.getCause().toString());
+			} catch (Exception e) {
+				System.err.println(JarAnalysis.PRG
+						+ "Could not summarize method: " + mDescr);
+				e.printStackTrace();
+			}
+			return null;
+		}
+	}
+}
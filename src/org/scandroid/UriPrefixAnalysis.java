@@ -45,6 +45,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.scandroid.prefixtransfer.InstanceKeySite;
+import org.scandroid.prefixtransfer.PrefixTable;
 import org.scandroid.prefixtransfer.PrefixTransferFunctionProvider;
 import org.scandroid.prefixtransfer.PrefixVariable;
 import org.scandroid.prefixtransfer.UriPrefixTransferGraph;
@@ -83,25 +84,12 @@ public class UriPrefixAnalysis {
         return keylist;
     }
 
-    public static Map<InstanceKey,String> runAnalysisHelper(CallGraph cg, PointerAnalysis pa) throws CancelRuntimeException
+    /**
+     * Solves the prefix dataflow problem over a transfer graph
+     */
+    public static DataflowSolver<InstanceKeySite, PrefixVariable> solve(final Graph<InstanceKeySite> g) throws CancelRuntimeException
     {
-
-        logger.debug("*******************************************************");
-        logger.debug("* Prefix Analysis: Constructing Prefix Transfer Graph *");
-
-
-        final Graph<InstanceKeySite> g = new UriPrefixTransferGraph(pa);
-        logger.debug("* The Graph:                                          *");
-        logger.debug("*******************************************************");
-        Iterator<InstanceKeySite> iksI = g.iterator();
-        while (iksI.hasNext()) {
-            InstanceKeySite iks = iksI.next();
-            logger.debug("# " + iks);
-            Iterator<InstanceKeySite> edgesI = g.getSuccNodes(iks);
-            while (edgesI.hasNext()) {
-                logger.debug("? \t -->" + edgesI.next());
-            }
-        }
+        final PrefixTable table = new PrefixTable();
         final PrefixTransferFunctionProvider tfp = new PrefixTransferFunctionProvider();
 
         IKilldallFramework<InstanceKeySite, PrefixVariable> framework = new IKilldallFramework<InstanceKeySite, PrefixVariable>()
@@ -122,14 +110,14 @@ public class UriPrefixAnalysis {
             @Override
             protected PrefixVariable makeEdgeVariable(InstanceKeySite src,
                     InstanceKeySite dst) {
-                return new PrefixVariable(){};
+                return new PrefixVariable(table){};
             }
 
             @Override
             protected PrefixVariable makeNodeVariable(InstanceKeySite n,
                     boolean IN) {
                 // TODO Auto-generated method stub
-                PrefixVariable var = new PrefixVariable(){};
+                PrefixVariable var = new PrefixVariable(table){};
 //              if (n instanceof StringBuilderToStringInstanceKeySite) var.setOrderNumber(0);
 //              else var.setOrderNumber(10);
 //              var.add(3);
@@ -151,11 +139,34 @@ public class UriPrefixAnalysis {
         } catch (CancelException e) {
             throw new CancelRuntimeException(e);
         }
+        return dfs;
+    }
+
+    public static Map<InstanceKey,String> runAnalysisHelper(CallGraph cg, PointerAnalysis pa) throws CancelRuntimeException
+    {
+
+        logger.debug("*******************************************************");
+        logger.debug("* Prefix Analysis: Constructing Prefix Transfer Graph *");
+
+
+        final Graph<InstanceKeySite> g = new UriPrefixTransferGraph(pa);
+        logger.debug("* The Graph:                                          *");
+        logger.debug("*******************************************************");
+        Iterator<InstanceKeySite> iksI = g.iterator();
+        while (iksI.hasNext()) {
+            InstanceKeySite iks = iksI.next();
+            logger.debug("# " + iks);
+            Iterator<InstanceKeySite> edgesI = g.getSuccNodes(iks);
+            while (edgesI.hasNext()) {
+                logger.debug("? \t -->" + edgesI.next());
+            }
+        }
+        DataflowSolver<InstanceKeySite, PrefixVariable> dfs = solve(g);
         Map<InstanceKey,String> prefixes = new HashMap<InstanceKey,String>();
         iksI = g.iterator();
         while (iksI.hasNext()) {
             InstanceKeySite iks = iksI.next();
-            prefixes.put(pa.getInstanceKeyMapping().getMappedObject(iks.instanceID()), dfs.getOut(iks).knownPrefixes.get(iks.instanceID()));
+            prefixes.put(pa.getInstanceKeyMapping().getMappedObject(iks.instanceID()), dfs.getOut(iks).getPrefix(iks.instanceID()));
 //          logger.debug(iks + " ~> " + dfs.getOut(iks));
         }
 //      logger.debug("\nLocalPointerKeys that point to String constants: \n" + stringConstants);
@@ -38,66 +38,274 @@
 
 package org.scandroid.domain;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.scandroid.flow.types.FlowType;
+
+import com.google.common.collect.Sets;
 import com.ibm.wala.dataflow.IFDS.PathEdge;
 import com.ibm.wala.dataflow.IFDS.TabulationDomain;
 import com.ibm.wala.ipa.cfg.BasicBlockInContext;
 import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
 
+/**
+ * Numbers the domain elements of the taint analysis.
+ * 
+ * Code elements and flow types are interned to dense ids, so a domain element
+ * is identified by the pair of ids packed into a long. The packed keys map to
+ * domain indices in an open-addressing table of primitives, which lets the
+ * flow functions look up an element with
+ * {@link #getMappedIndex(CodeElement, FlowType)} without allocating a
+ * {@link DomainElement} first.
+ * 
+ * Lookups may happen concurrently with insertions, so that the domain can be
+ * shared by the workers of a {@link org.scandroid.flow.ParallelTabulationSolver}:
+ * only inserting a new element takes a lock. Every array is only ever written
+ * at slots that are not visible yet, and is replaced rather than grown, so a
+ * lock-free reader either sees a complete entry or falls back to the lock.
+ */
 public class IFDSTaintDomain <E extends ISSABasicBlock>
   implements TabulationDomain<DomainElement, BasicBlockInContext<E>> {
-    private Map<DomainElement, Integer> table = new HashMap<DomainElement, Integer>();
-    private ArrayList<DomainElement> objects = new ArrayList<DomainElement>();
+    private static final int INITIAL_CAPACITY = 64;
 
-    private Map<CodeElement, Set<DomainElement>> elementIndex = new HashMap<CodeElement, Set<DomainElement>>();
+    /**
+     * code element and flow type ids; both start at 1, and flow type 0 stands
+     * for a missing taint source
+     */
+    private final ConcurrentHashMap<CodeElement, Integer> codeIds = new ConcurrentHashMap<CodeElement, Integer>();
+    private final ConcurrentHashMap<FlowType, Integer> flowIds = new ConcurrentHashMap<FlowType, Integer>();
 
-    Set<DomainElement> emptySet = new HashSet<DomainElement>();
-    public Set<DomainElement> getPossibleElements(CodeElement codeElement)
-    {
-        Set<DomainElement> elts = elementIndex.get(codeElement);
-        if(elts != null)
-            return elts;
-        return emptySet;
+    /**
+     * open-addressing table from packed keys to domain indices; 0 marks an
+     * empty slot, which no packed key can be since code ids start at 1
+     */
+    private volatile long[] tableKeys = new long[INITIAL_CAPACITY * 2];
+    private volatile int[] tableIndices = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * element with index i is at objects[i - 1], and its packed key at
+     * keys[i - 1]; the size is only bumped after both are stored, so readers
+     * that see a size also see the elements below it
+     */
+    private volatile DomainElement[] objects = new DomainElement[INITIAL_CAPACITY];
+    private volatile long[] keys = new long[INITIAL_CAPACITY];
+    private volatile IntSet[] singletons = new IntSet[INITIAL_CAPACITY];
+    private volatile int size = 0;
+
+    /**
+     * code element with id c is codes[c]; only accessed under the lock
+     */
+    private CodeElement[] codes = new CodeElement[INITIAL_CAPACITY];
+
+    /**
+     * domain indices of each code element as linked lists: the most recent
+     * index for code id c is codeHead[c], the one before index i is
+     * sameCode[i - 1]; only accessed under the lock
+     */
+    private int[] codeHead = new int[INITIAL_CAPACITY];
+    private int[] sameCode = new int[INITIAL_CAPACITY];
+
+    private static long pack(int codeId, int flowId) {
+        return ((long) codeId << 32) | (flowId & 0xffffffffL);
     }
 
-    private void index(DomainElement e)
+    private static int slot(long key, int mask) {
+        // the finalizer of MurmurHash3, to spread the ids over the table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    /**
+     * @return the domain index of <code>key</code>, or 0 if it could not be
+     *         found without taking the lock
+     */
+    private int find(long key) {
+        final int n = size;
+        final long[] tk = tableKeys;
+        final int[] ti = tableIndices;
+        final int mask = tk.length - 1;
+        for (int s = slot(key, mask); ; s = (s + 1) & mask) {
+            final long k = tk[s];
+            if (k == 0)
+                return 0;
+            if (k == key) {
+                final int i = ti[s];
+                // a racing insert may not have published the index yet
+                return i > 0 && i <= n && keys[i - 1] == key ? i : 0;
+            }
+        }
+    }
+
+    private int flowId(FlowType taintSource) {
+        if (taintSource == null)
+            return 0;
+        final Integer id = flowIds.get(taintSource);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the index of the domain element for <code>codeElement</code>
+     *         tainted by <code>taintSource</code>, adding it if needed
+     */
+    public int getMappedIndex(CodeElement codeElement, FlowType taintSource) {
+        final Integer codeId = codeIds.get(codeElement);
+        if (codeId != null) {
+            final int flowId = flowId(taintSource);
+            if (flowId >= 0) {
+                final int i = find(pack(codeId, flowId));
+                if (i > 0)
+                    return i;
+            }
+        }
+        return add(new DomainElement(codeElement, taintSource));
+    }
+
+    public int getMappedIndex(DomainElement o)
     {
-        Set<DomainElement> elements = elementIndex.get(e.codeElement);
-        if(elements == null)
-        {
-            elements = new HashSet<DomainElement>();
-            elementIndex.put(e.codeElement, elements);
+        return getMappedIndex(o.codeElement, o.taintSource);
+    }
+
+    /**
+     * @return the index of the domain element for the code element with id
+     *         <code>codeId</code>, tainted by the same source as the element
+     *         with index <code>n</code>; adding it if needed
+     */
+    public int getMappedIndex(int codeId, int n) {
+        final int i = find(pack(codeId, (int) keys[n - 1]));
+        if (i > 0)
+            return i;
+        synchronized (this) {
+            return add(new DomainElement(codes[codeId],
+                    objects[n - 1].taintSource));
         }
-        elements.add(e);
     }
 
-    public int add(DomainElement o) {
-        Integer i = table.get(o);
-        if(i == null)
-        {
-            objects.add(o);
-            i = table.size() + 1;
-            table.put(o, i);
-            //System.out.println("Adding domain element "+i+": "+o);
+    /**
+     * @return the id of <code>codeElement</code>, assigning one if needed
+     */
+    public int getCodeId(CodeElement codeElement) {
+        final Integer codeId = codeIds.get(codeElement);
+        if (codeId != null)
+            return codeId;
+        synchronized (this) {
+            return internCode(codeElement);
         }
-        index(o);
+    }
+
+    /**
+     * @return the id of the code element of the domain element with index
+     *         <code>n</code>, or 0 if there is no such element
+     */
+    public int getCodeId(int n) {
+        if (n > 0 && n <= size)
+            return (int) (keys[n - 1] >>> 32);
+        return 0;
+    }
+
+    /**
+     * @return an immutable set holding just <code>n</code>, shared by all
+     *         callers so that flow functions passing a fact through need not
+     *         allocate
+     */
+    public IntSet getSingleton(int n) {
+        if (n > 0 && n <= size)
+            return singletons[n - 1];
+        return SparseIntSet.singleton(n);
+    }
+
+    private int internCode(CodeElement codeElement) {
+        Integer codeId = codeIds.get(codeElement);
+        if (codeId == null) {
+            codeId = codeIds.size() + 1;
+            if (codeId == codeHead.length) {
+                codeHead = Arrays.copyOf(codeHead, codeHead.length * 2);
+                codes = Arrays.copyOf(codes, codes.length * 2);
+            }
+            codes[codeId] = codeElement;
+            codeIds.put(codeElement, codeId);
+        }
+        return codeId;
+    }
+
+    public synchronized int add(DomainElement o) {
+        final int codeId = internCode(o.codeElement);
+        int flowId = 0;
+        if (o.taintSource != null) {
+            Integer id = flowIds.get(o.taintSource);
+            if (id == null) {
+                id = flowIds.size() + 1;
+                flowIds.put(o.taintSource, id);
+            }
+            flowId = id;
+        }
+        final long key = pack(codeId, flowId);
+        final int mask = tableKeys.length - 1;
+        int s = slot(key, mask);
+        for (; tableKeys[s] != 0; s = (s + 1) & mask) {
+            if (tableKeys[s] == key)
+                return tableIndices[s];
+        }
+
+        final int i = size + 1;
+        if (size == objects.length) {
+            objects = Arrays.copyOf(objects, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            singletons = Arrays.copyOf(singletons, size * 2);
+            sameCode = Arrays.copyOf(sameCode, size * 2);
+        }
+        objects[size] = o;
+        keys[size] = key;
+        singletons[size] = SparseIntSet.singleton(i);
+        sameCode[size] = codeHead[codeId];
+        codeHead[codeId] = i;
+
+        tableIndices[s] = i;
+        tableKeys[s] = key;
+        size = i;
+        //System.out.println("Adding domain element "+i+": "+o);
+        if (i * 2 > mask)
+            rehash();
 
         return i;
     }
 
+    /**
+     * Move the packed keys to a table twice the size. The old table is left
+     * alone, so that lock-free readers still using it see consistent slots.
+     */
+    private void rehash() {
+        final long[] tk = new long[tableKeys.length * 2];
+        final int[] ti = new int[tk.length];
+        final int mask = tk.length - 1;
+        for (int i = 1; i <= size; i++) {
+            final long key = keys[i - 1];
+            int s = slot(key, mask);
+            while (tk[s] != 0)
+                s = (s + 1) & mask;
+            tk[s] = key;
+            ti[s] = i;
+        }
+        tableIndices = ti;
+        tableKeys = tk;
+    }
 
-    public synchronized int getMappedIndex(DomainElement o)
+    public synchronized Set<DomainElement> getPossibleElements(CodeElement codeElement)
     {
-        Integer i = table.get(o);
-        if(i == null)
-            return add(o);
-        return i;
+        final Integer codeId = codeIds.get(codeElement);
+        if (codeId == null)
+            return Collections.emptySet();
+        final Set<DomainElement> elts = Sets.newHashSet();
+        for (int i = codeHead[codeId]; i != 0; i = sameCode[i - 1])
+            elts.add(objects[i - 1]);
+        return elts;
     }
 
     public boolean hasPriorityOver(
@@ -107,28 +315,50 @@ public class IFDSTaintDomain <E extends ISSABasicBlock>
     }
 
     public DomainElement getMappedObject(int n) {
-        if(n > 0 && n <= objects.size())
-            return objects.get(n - 1);
+        // read the size before the array, see objects
+        if(n > 0 && n <= size)
+            return objects[n - 1];
         return null;
     }
 
     public int getMaximumIndex() {
-        return objects.size();
+        return size;
     }
 
     public int getSize() {
-        return objects.size()+1;
+        return size+1;
     }
 
     public boolean hasMappedIndex(DomainElement o) {
-        return table.keySet().contains(o);
+        final Integer codeId = codeIds.get(o.codeElement);
+        if (codeId == null)
+            return false;
+        final int flowId = flowId(o.taintSource);
+        if (flowId < 0)
+            return false;
+        if (find(pack(codeId, flowId)) > 0)
+            return true;
+        synchronized (this) {
+            return find(pack(codeId, flowId)) > 0;
+        }
     }
 
     public Iterator<DomainElement> iterator() {
-        return table.keySet().iterator();
+        final int n = size;
+        return Collections.unmodifiableList(
+                Arrays.asList(objects).subList(0, n)).iterator();
     }
     
-    public Set<CodeElement> codeElements () {
-    	return elementIndex.keySet();
+    /**
+     * @return the code elements of all domain elements so far
+     */
+    public synchronized Set<CodeElement> codeElements () {
+        final Set<CodeElement> elts = Sets.newHashSet();
+        for (int c = 1; c <= codeIds.size(); c++) {
+            // flow functions may intern code elements without elements
+            if (codeHead[c] != 0)
+                elts.add(codes[c]);
+        }
+        return Collections.unmodifiableSet(elts);
     }
 }
@@ -86,7 +86,8 @@ public class FlowAnalysis {
           IFDSTaintDomain<E> d,
           IProgressMonitor progressMonitor
           ) throws CancelRuntimeException {
-        return analyze(analysisContext.graph, analysisContext.cg, analysisContext.pa, initialTaints, d, progressMonitor);
+        return analyze(analysisContext, initialTaints, d, progressMonitor,
+                new TaintTransferFunctions<E>(d, analysisContext.graph, analysisContext.pa));
     }
     
     public static <E extends ISSABasicBlock>
@@ -98,7 +99,8 @@ public class FlowAnalysis {
           IProgressMonitor progressMonitor,
           IFlowFunctionMap<BasicBlockInContext<E>> flowFunctionMap
           ) throws CancelRuntimeException {
-        return analyze(analysisContext.graph, analysisContext.cg, analysisContext.pa, initialTaints, d, progressMonitor, flowFunctionMap);
+        return analyze(analysisContext.graph, analysisContext.cg, analysisContext.pa, initialTaints, d, progressMonitor, flowFunctionMap,
+                analysisContext.getOptions().ifdsThreads());
     }
     
     public static <E extends ISSABasicBlock>
@@ -133,6 +135,26 @@ public class FlowAnalysis {
               IProgressMonitor progressMonitor, 
               final IFlowFunctionMap<BasicBlockInContext<E>> flowFunctionMap
             ) {
+        return analyze(graph, cg, pa, initialTaints, d, progressMonitor, flowFunctionMap, 1);
+    }
+
+    /**
+     * Run the flow analysis with the given number of solver threads. With
+     * more than one thread, the flow function map must be safe for
+     * concurrent use, as {@link TaintTransferFunctions} is.
+     */
+    public static <E extends ISSABasicBlock>
+      TabulationResult<BasicBlockInContext<E>, CGNode, DomainElement> 
+      analyze(final ISupergraph<BasicBlockInContext<E>, 
+    		  CGNode> graph,
+              CallGraph cg,
+              PointerAnalysis pa,
+              Map<BasicBlockInContext<E>, Map<FlowType<E>,Set<CodeElement>>> initialTaints,
+              IFDSTaintDomain<E> d,
+              IProgressMonitor progressMonitor, 
+              final IFlowFunctionMap<BasicBlockInContext<E>> flowFunctionMap,
+              int threads
+            ) {
 
         logger.info("*************************");
         logger.info("* Running flow analysis *");
@@ -155,7 +177,7 @@ public class FlowAnalysis {
                 	BasicBlockInContext<E>[] entryBlocks = graph.getEntriesForProcedure(taintBB.getNode());
                 	for (int i = 0; i < entryBlocks.length; i++) {
                 		//Add PathEdge <s_p,0> -> <n,d1>
-                		initialEdges.add(PathEdge.createPathEdge(entryBlocks[i], 0, taintBB, domain.getMappedIndex(new DomainElement(taintElement,taintType))));
+                		initialEdges.add(PathEdge.createPathEdge(entryBlocks[i], 0, taintBB, domain.getMappedIndex(taintElement,taintType)));
                 	}
                     //initialEdges.add(PathEdge.createPathEdge(e.getKey(), 0, e.getKey(), domain.getMappedIndex(new DomainElement(o,e2.getKey()))));
                 }
@@ -202,11 +224,14 @@ public class FlowAnalysis {
             }
 
         };
-        TabulationSolver<BasicBlockInContext<E>, CGNode, DomainElement> solver =
-            TabulationSolver.make(problem, progressMonitor);
-
         try {
-        	TabulationResult<BasicBlockInContext<E>,CGNode, DomainElement> flowResult = solver.solve();
+        	TabulationResult<BasicBlockInContext<E>,CGNode, DomainElement> flowResult;
+        	if (threads > 1) {
+        		logger.debug("solving with {} threads", threads);
+        		flowResult = ParallelTabulationSolver.make(problem, progressMonitor, threads).solve();
+        	} else {
+        		flowResult = TabulationSolver.make(problem, progressMonitor).solve();
+        	}
 //        	if (options.ifdsExplorer()) {
 //        		for (int i = 1; i < domain.getSize(); i++) {        			
 //                    logger.debug("DomainElement #"+i+" = " + domain.getMappedObject(i));        			
@@ -49,7 +49,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -64,6 +63,7 @@ import org.scandroid.spec.ISpecs;
 import org.scandroid.spec.SourceSpec;
 import org.scandroid.spec.StaticFieldSourceSpec;
 import org.scandroid.util.CGAnalysisContext;
+import org.scandroid.util.CallSiteIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -79,8 +79,7 @@ import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.cfg.BasicBlockInContext;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ssa.ISSABasicBlock;
-import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAInvokeInstruction;
+import com.ibm.wala.util.graph.Graph;
 
 
 public class InflowAnalysis <E extends ISSABasicBlock> {
@@ -166,6 +165,7 @@ public class InflowAnalysis <E extends ISSABasicBlock> {
     	ss.addDomainElements(ctx, taintMap, bb.getMethod(), bb, null, null, graph, pa, cg);
     }
     
+    @SuppressWarnings("unchecked")
     private static<E extends ISSABasicBlock> 
     void processFunctionCalls(CGAnalysisContext<E> ctx,
     						  Map<BasicBlockInContext<E>,
@@ -173,47 +173,28 @@ public class InflowAnalysis <E extends ISSABasicBlock> {
                               ArrayList<SourceSpec> ssAL, ISupergraph<BasicBlockInContext<E>, CGNode> graph, 
                               PointerAnalysis pa, 
                               ClassHierarchy cha, CallGraph cg) {
-    	Collection<IMethod> targets = new HashSet<IMethod>();
-    	ArrayList<Collection<IMethod>> targetList = new ArrayList<Collection<IMethod>>();
-    	
-    	for (int i = 0; i < ssAL.size(); i++) {
-    		Collection<IMethod> tempList = ssAL.get(i).getNamePattern().getPossibleTargets(cha);
-    		targets.addAll(tempList);
-    		targetList.add(tempList);
-    	}
-    	
-		Iterator<BasicBlockInContext<E>> graphIt = graph.iterator();
-		while (graphIt.hasNext()) {
-			BasicBlockInContext<E> block = graphIt.next();
-			Iterator<SSAInstruction> instructions = block.iterator();
-
-			while (instructions.hasNext()) {
-				SSAInstruction inst = instructions.next();
+    	CallSiteIndex callSites = ctx.getCallSiteIndex();
+    	Graph<CGNode> procedures = (Graph<CGNode>) graph.getProcedureGraph();
 
-				if (!(inst instanceof SSAInvokeInstruction)) {
-					continue;
-				}
+    	for (SourceSpec ss : ssAL) {
+    		for (IMethod target : ss.getNamePattern().getPossibleTargets(cha)) {
+    			Collection<CallSiteIndex.Site> sites = callSites.getInvokeSites(target);
+    			if (sites.isEmpty()) {
+    				continue;
+    			}
+    			int[] argNums = ss.getArgNums();
+    			argNums = (argNums == null) ? SourceSpec.getNewArgNums((target.isStatic())?target.getNumberOfParameters():target.getNumberOfParameters()-1) : argNums;
 
-				SSAInvokeInstruction invInst = (SSAInvokeInstruction) inst;
-				for (IMethod target : cha.getPossibleTargets(invInst.getDeclaredTarget())) {
-					if (targets.contains(target)) {
-						System.out.println("howdie: " + target);
-						System.out.println(invInst);
-						System.out.println(block);
-						for (int i = 0; i < targetList.size(); i++) {
-							if (targetList.get(i).contains(target)) {
-
-								int[] argNums = ssAL.get(i).getArgNums();
-								argNums = (argNums == null) ? SourceSpec.getNewArgNums((target.isStatic())?target.getNumberOfParameters():target.getNumberOfParameters()-1) : argNums;
-
-								ssAL.get(i).addDomainElements(ctx, taintMap, target, block, invInst, argNums, graph, pa, cg);
-
-							}
-						}
-					}
-				}
-			}
-		}
+    			for (CallSiteIndex.Site site : sites) {
+    				// only seed callers that are part of the supergraph
+    				if (!procedures.containsNode(site.caller)) {
+    					continue;
+    				}
+    				logger.debug("found call to source {} in {}", target, site.caller);
+    				ss.addDomainElements(ctx, taintMap, target, (BasicBlockInContext<E>) site.getBlock(), site.invoke, argNums, graph, pa, cg);
+    			}
+    		}
+    	}
     }
 
     public static <E extends ISSABasicBlock>
@@ -65,6 +65,7 @@ import org.scandroid.spec.ISpecs;
 import org.scandroid.spec.SinkSpec;
 import org.scandroid.spec.StaticFieldSinkSpec;
 import org.scandroid.util.CGAnalysisContext;
+import org.scandroid.util.CallSiteIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,12 +87,10 @@ import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.cfg.BasicBlockInContext;
 import com.ibm.wala.ipa.cha.ClassHierarchy;
 import com.ibm.wala.ssa.SSAInstruction;
-import com.ibm.wala.ssa.SSAInstruction.Visitor;
 import com.ibm.wala.ssa.SSAInvokeInstruction;
 import com.ibm.wala.ssa.SSAReturnInstruction;
 import com.ibm.wala.ssa.SSAThrowInstruction;
 import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
-import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.util.debug.UnimplementedError;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
@@ -110,6 +109,7 @@ public class OutflowAnalysis {
 	private final PointerAnalysis pa;
 	private final ICFGSupergraph graph;
 	private final ISpecs specs;
+	private final CallSiteIndex callSites;
 
 	public OutflowAnalysis(CGAnalysisContext<IExplodedBasicBlock> ctx,
 			ISpecs specs) {
@@ -119,6 +119,7 @@ public class OutflowAnalysis {
 		this.pa = ctx.pa;
 		this.graph = (ICFGSupergraph) ctx.graph;
 		this.specs = specs;
+		this.callSites = ctx.getCallSiteIndex();
 	}
 
 	private void addEdge(
@@ -537,7 +538,7 @@ public class OutflowAnalysis {
 		}
 
 		for (IMethod method : methods) {
-			for (CGNode node : cg.getNodes(method.getReference())) {
+			for (CGNode node : callSites.getNodes(method)) {
 				BasicBlockInContext<IExplodedBasicBlock> entryBlock = graph
 						.getICFG().getEntry(node);
 				BasicBlockInContext<IExplodedBasicBlock> exitBlock = graph
@@ -564,63 +565,21 @@ public class OutflowAnalysis {
 			logger.warn("no methods found for sink spec {}", sinkSpec);
 		}
 
-		Set<CGNode> callees = Sets.newHashSet();
-		final Set<MethodReference> calleeRefs = Sets.newHashSet();
-		for (IMethod method : methods) {
-			callees.addAll(cg.getNodes(method.getReference()));
-			calleeRefs.add(method.getReference());
-		}
-		logger.debug("callee nodes {}", callees);
-		logger.debug("callee refs {}", calleeRefs);
-
 		// for each possible callee
-		for (CGNode callee : callees) {
-			Iterator<CGNode> callers = cg.getPredNodes(callee);
-			// for each possible caller of that callee
-			while (callers.hasNext()) {
-				final CGNode caller = callers.next();
-				// look for invoke instructions
-				caller.getIR().visitAllInstructions(new Visitor() {
-					@Override
-					public void visitInvoke(SSAInvokeInstruction invokeInst) {
-						// if the invoke instruction targets a possible callee
-						if (calleeRefs.contains(invokeInst.getDeclaredTarget())) {
-							// look up the instruction's block in context
-							// (surely there's a more straightforward way to do
-							// this!)
-							final SSAInstruction[] insts = graph.getICFG()
-									.getCFG(caller).getInstructions();
-							int invokeIndex = -1;
-							for (int i = 0; i < insts.length; i++) {
-								if (insts[i] instanceof SSAInvokeInstruction) {
-									SSAInvokeInstruction invokeInst2 = (SSAInvokeInstruction) insts[i];
-									if (invokeInst.getDeclaredTarget().equals(invokeInst2.getDeclaredTarget())) {
-										invokeIndex = i;
-										break;
-									}
-								}
-							}
-							if (invokeIndex == -1) {
-								logger.error("couldn't find invoke instruction in caller node");
-							}
-							final IExplodedBasicBlock block = graph.getICFG()
-									.getCFG(caller)
-									.getBlockForInstruction(invokeIndex);
-							BasicBlockInContext<IExplodedBasicBlock> callBlock = new BasicBlockInContext<IExplodedBasicBlock>(
-									caller, block);
-
-							for (int argNum : sinkSpec.getArgNums()) {
-								// and add a sink point for each arg num
-								final int ssaVal = invokeInst.getUse(argNum);
-								final ParameterFlow<IExplodedBasicBlock> sinkFlow = new ParameterFlow<IExplodedBasicBlock>(
-										callBlock, argNum, false);
-								final LocalSinkPoint sinkPoint = new LocalSinkPoint(
-										callBlock, ssaVal, sinkFlow);
-								points.add(sinkPoint);
-							}
-						}
-					}
-				});
+		for (IMethod method : methods) {
+			// for each invoke instruction that may call it
+			for (CallSiteIndex.Site site : callSites.getCallSites(method)) {
+				final BasicBlockInContext<IExplodedBasicBlock> block = site
+						.getBlock();
+				for (int argNum : sinkSpec.getArgNums()) {
+					// add a sink point for each arg num
+					final int ssaVal = site.invoke.getUse(argNum);
+					final ParameterFlow<IExplodedBasicBlock> sinkFlow = new ParameterFlow<IExplodedBasicBlock>(
+							block, argNum, false);
+					final LocalSinkPoint sinkPoint = new LocalSinkPoint(
+							block, ssaVal, sinkFlow);
+					points.add(sinkPoint);
+				}
 			}
 		}
 
@@ -638,7 +597,7 @@ public class OutflowAnalysis {
 		// for all possible returning methods
 		for (IMethod method : methods) {
 			// for all possible CGNodes of that method
-			for (CGNode node : cg.getNodes(method.getReference())) {
+			for (CGNode node : callSites.getNodes(method)) {
 				// get the unique (null) exit block
 				BasicBlockInContext<IExplodedBasicBlock> nullExitBlock = graph
 						.getICFG().getExit(node);
@@ -674,7 +633,7 @@ public class OutflowAnalysis {
 		Set<ISinkPoint> points = Sets.newHashSet();
 
 		ICFGSupergraph graph = (ICFGSupergraph) ctx.graph;
-		for (CGNode node : ctx.cg.getNodes(sinkSpec.getMethod().getReference())) {
+		for (CGNode node : callSites.getNodes(sinkSpec.getMethod())) {
 			points.add(new StaticFieldSinkPoint(sinkSpec, graph.getICFG()
 					.getExit(node)));
 		}
@@ -693,7 +652,7 @@ public class OutflowAnalysis {
 		// for all possible exception throwing methods that match pattern
 		for (IMethod method: methods) {
 			//for all possible CGNodes of that method
-			for (CGNode node : cg.getNodes(method.getReference())) {
+			for (CGNode node : callSites.getNodes(method)) {
 				Iterator<IExplodedBasicBlock> bbI = graph.getICFG().getCFG(node).iterator();
 				while (bbI.hasNext()) {
 					IExplodedBasicBlock bb = bbI.next();
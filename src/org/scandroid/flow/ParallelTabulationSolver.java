@@ -0,0 +1,727 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.flow;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.ibm.wala.dataflow.IFDS.CallFlowEdges;
+import com.ibm.wala.dataflow.IFDS.IBinaryReturnFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IFlowFunctionMap;
+import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
+import com.ibm.wala.dataflow.IFDS.LocalPathEdges;
+import com.ibm.wala.dataflow.IFDS.LocalSummaryEdges;
+import com.ibm.wala.dataflow.IFDS.PathEdge;
+import com.ibm.wala.dataflow.IFDS.TabulationProblem;
+import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.graph.Graph;
+import com.ibm.wala.util.graph.NumberedGraph;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+
+/**
+ * A parallel version of WALA's {@link TabulationSolver} which computes the
+ * same path edges, summary edges and results, spreading the work over a fixed
+ * pool of workers.
+ *
+ * Work is sharded by procedure: each procedure of the supergraph is owned by
+ * exactly one worker, and only that worker ever reads or writes the path
+ * edges, summary edges and call flow edges of that procedure. Facts that cross
+ * a procedure boundary are handed to the owning worker as messages:
+ *
+ * <ul>
+ * <li>a {@link PathEdge} asks the owner of its target to propagate it</li>
+ * <li>a {@link CallMessage} asks the owner of a callee to record a call flow
+ * edge and to apply the callee's existing summary edges to the caller</li>
+ * <li>a {@link ReturnMessage} asks the owner of a caller to propagate a new
+ * summary edge of the callee to the caller's return sites</li>
+ * </ul>
+ *
+ * The supergraph is fully constructed before the workers start, so that the
+ * lazily-built WALA graph structures are only read concurrently. The flow
+ * function map and the domain must be safe for concurrent use.
+ *
+ * Merge functions and domain priorities are not supported; problems that need
+ * them should use the sequential solver.
+ *
+ *
+ */
+public class ParallelTabulationSolver<T, P, F> {
+	private static final Logger logger = LoggerFactory
+			.getLogger(ParallelTabulationSolver.class);
+
+	/**
+	 * number of local path edges a worker processes before draining its inbox
+	 */
+	private static final int BATCH_SIZE = 256;
+
+	/**
+	 * milliseconds an idle worker blocks on its inbox before checking whether
+	 * the solver is finished
+	 */
+	private static final long IDLE_WAIT_MS = 10;
+
+	/**
+	 * wakes up idle workers once the solver is finished
+	 */
+	private static final Object STOP = new Object();
+
+	private final TabulationProblem<T, P, F> problem;
+	private final ISupergraph<T, P> supergraph;
+	private final IFlowFunctionMap<T> flowFunctionMap;
+	private final IProgressMonitor progressMonitor;
+	private final NumberedGraph<P> procedureGraph;
+	private final List<Worker> workers;
+
+	/**
+	 * number of messages and path edges enqueued but not yet processed, over
+	 * all workers; the solver is finished when this drops to zero
+	 */
+	private final AtomicLong pending = new AtomicLong();
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private volatile boolean finished = false;
+
+	private final Map<P, Set<PathEdge<T>>> seeds = Maps.newHashMap();
+	private final Set<PathEdge<T>> allSeeds = Sets.newHashSet();
+
+	@SuppressWarnings("unchecked")
+	protected ParallelTabulationSolver(TabulationProblem<T, P, F> problem,
+			IProgressMonitor progressMonitor, int numWorkers) {
+		if (problem == null) {
+			throw new IllegalArgumentException("null problem");
+		}
+		if (numWorkers < 1) {
+			throw new IllegalArgumentException("need at least one worker, got "
+					+ numWorkers);
+		}
+		if (problem.getMergeFunction() != null) {
+			throw new IllegalArgumentException(
+					"merge functions are not supported by the parallel solver");
+		}
+		this.problem = problem;
+		this.supergraph = problem.getSupergraph();
+		this.flowFunctionMap = problem.getFunctionMap();
+		this.progressMonitor = progressMonitor;
+		final Graph<? extends P> procs = supergraph.getProcedureGraph();
+		this.procedureGraph = procs instanceof NumberedGraph ? (NumberedGraph<P>) procs
+				: null;
+		this.workers = Lists.newArrayListWithCapacity(numWorkers);
+		for (int i = 0; i < numWorkers; i++) {
+			workers.add(new Worker(i));
+		}
+	}
+
+	public static <T, P, F> ParallelTabulationSolver<T, P, F> make(
+			TabulationProblem<T, P, F> problem,
+			IProgressMonitor progressMonitor, int numWorkers) {
+		return new ParallelTabulationSolver<T, P, F>(problem, progressMonitor,
+				numWorkers);
+	}
+
+	/**
+	 * Solve the problem with the configured number of workers.
+	 *
+	 * @return the same result {@link TabulationSolver#solve()} would compute
+	 * @throws CancelException
+	 *             if the progress monitor cancels the computation
+	 */
+	public TabulationResult<T, P, F> solve() throws CancelException {
+		constructSupergraph();
+
+		for (PathEdge<T> seed : problem.initialSeeds()) {
+			addSeed(seed);
+		}
+		if (pending.get() == 0) {
+			finished = true;
+		}
+
+		final ExecutorService pool = Executors.newFixedThreadPool(workers
+				.size());
+		try {
+			pool.invokeAll(workers);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancelException(e);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		final Throwable t = failure.get();
+		if (t instanceof CancelException) {
+			throw (CancelException) t;
+		} else if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		} else if (t instanceof Error) {
+			throw (Error) t;
+		} else if (t != null) {
+			throw new RuntimeException(t);
+		}
+		return new Result();
+	}
+
+	private void addSeed(PathEdge<T> seed) {
+		if (allSeeds.contains(seed)) {
+			return;
+		}
+		final P proc = supergraph.getProcOf(seed.getEntry());
+		Set<PathEdge<T>> s = seeds.get(proc);
+		if (s == null) {
+			s = Sets.newHashSet();
+			seeds.put(proc, s);
+		}
+		s.add(seed);
+		allSeeds.add(seed);
+		send(ownerOf(seed.getTarget()), seed);
+	}
+
+	/**
+	 * The WALA interprocedural CFGs add nodes and edges on demand the first
+	 * time they are queried, which is not safe with concurrent readers. Touch
+	 * everything the workers will ask for up front so that they only ever read.
+	 */
+	private void constructSupergraph() {
+		final long start = System.currentTimeMillis();
+		for (Iterator<T> it = supergraph.iterator(); it.hasNext();) {
+			final T n = it.next();
+			supergraph.getSuccNodeCount(n);
+			supergraph.getPredNodeCount(n);
+			final P proc = supergraph.getProcOf(n);
+			supergraph.getEntriesForProcedure(proc);
+			supergraph.getExitsForProcedure(proc);
+			if (supergraph.isCall(n)) {
+				for (Iterator<? extends T> callees = supergraph
+						.getCalledNodes(n); callees.hasNext();) {
+					supergraph.getReturnSites(n,
+							supergraph.getProcOf(callees.next()));
+				}
+				supergraph.getReturnSites(n, null);
+			}
+		}
+		logger.debug("constructed supergraph with {} nodes in {}ms",
+				supergraph.getNumberOfNodes(), System.currentTimeMillis()
+						- start);
+	}
+
+	private int ownerOf(T n) {
+		final P proc = supergraph.getProcOf(n);
+		final int h = procedureGraph == null ? proc.hashCode()
+				: procedureGraph.getNumber(proc);
+		return (h & Integer.MAX_VALUE) % workers.size();
+	}
+
+	private void send(int owner, Object msg) {
+		pending.incrementAndGet();
+		workers.get(owner).inbox.add(msg);
+	}
+
+	private void done() {
+		if (pending.decrementAndGet() == 0) {
+			finish();
+		}
+	}
+
+	private void finish() {
+		finished = true;
+		for (Worker w : workers) {
+			w.inbox.add(STOP);
+		}
+	}
+
+	private void fail(Throwable t) {
+		failure.compareAndSet(null, t);
+		finish();
+	}
+
+	/**
+	 * Sent to the owner of a callee: the fact <code>d1</code> flows from the
+	 * call site <code>callEdge</code> to the callee entry
+	 */
+	private static final class CallMessage<T> {
+		final PathEdge<T> callEdge;
+		final T calleeEntry;
+		final int d1;
+
+		CallMessage(PathEdge<T> callEdge, T calleeEntry, int d1) {
+			this.callEdge = callEdge;
+			this.calleeEntry = calleeEntry;
+			this.d1 = d1;
+		}
+	}
+
+	/**
+	 * Sent to the owner of a caller: the callee reached <code>exitEdge</code>,
+	 * which returns to <code>call</code> for each of the call site facts in
+	 * <code>callFacts</code>
+	 */
+	private static final class ReturnMessage<T> {
+		final PathEdge<T> exitEdge;
+		final T call;
+		final IntSet callFacts;
+
+		ReturnMessage(PathEdge<T> exitEdge, T call, IntSet callFacts) {
+			this.exitEdge = exitEdge;
+			this.call = call;
+			this.callFacts = callFacts;
+		}
+	}
+
+	private final class Worker implements Callable<Void> {
+		private final int id;
+		private final LinkedBlockingQueue<Object> inbox = new LinkedBlockingQueue<Object>();
+		private final ArrayDeque<PathEdge<T>> worklist = new ArrayDeque<PathEdge<T>>();
+
+		private final Map<T, LocalPathEdges> pathEdges = Maps.newHashMap();
+		private final Map<P, LocalSummaryEdges> summaryEdges = Maps
+				.newHashMap();
+		private final Map<T, CallFlowEdges> callFlowEdges = Maps.newHashMap();
+
+		Worker(int id) {
+			this.id = id;
+		}
+
+		@Override
+		public Void call() {
+			try {
+				while (!finished) {
+					Object msg;
+					while ((msg = inbox.poll()) != null) {
+						receive(msg);
+					}
+					int processed = 0;
+					PathEdge<T> edge;
+					while (processed < BATCH_SIZE
+							&& (edge = worklist.poll()) != null) {
+						process(edge);
+						done();
+						processed++;
+					}
+					if (processed == 0) {
+						msg = inbox.poll(IDLE_WAIT_MS, TimeUnit.MILLISECONDS);
+						if (msg != null) {
+							receive(msg);
+						}
+					}
+					MonitorUtil.throwExceptionIfCanceled(progressMonitor);
+				}
+			} catch (Throwable t) {
+				fail(t);
+			}
+			return null;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void receive(Object msg) {
+			if (msg == STOP) {
+				return;
+			}
+			if (msg instanceof PathEdge) {
+				final PathEdge<T> edge = (PathEdge<T>) msg;
+				propagateLocal(edge.getEntry(), edge.getD1(),
+						edge.getTarget(), edge.getD2());
+			} else if (msg instanceof CallMessage) {
+				final CallMessage<T> call = (CallMessage<T>) msg;
+				enterCallee(call.callEdge, call.calleeEntry, call.d1);
+			} else {
+				final ReturnMessage<T> ret = (ReturnMessage<T>) msg;
+				propagateToReturnSites(ret.exitEdge, ret.call, ret.callFacts);
+			}
+			done();
+		}
+
+		private void process(PathEdge<T> edge) {
+			if (supergraph.isCall(edge.getTarget())) {
+				processCall(edge);
+			} else if (supergraph.isExit(edge.getTarget())) {
+				processExit(edge);
+			} else {
+				processNormal(edge);
+			}
+		}
+
+		private void processNormal(PathEdge<T> edge) {
+			for (Iterator<? extends T> it = supergraph.getSuccNodes(edge
+					.getTarget()); it.hasNext();) {
+				final T m = it.next();
+				final IUnaryFlowFunction f = flowFunctionMap
+						.getNormalFlowFunction(edge.getTarget(), m);
+				propagateAll(edge.getEntry(), edge.getD1(), m,
+						f.getTargets(edge.getD2()));
+			}
+		}
+
+		private void processCall(PathEdge<T> edge) {
+			final T call = edge.getTarget();
+			final Set<T> allReturnSites = Sets.newHashSet();
+			for (Iterator<? extends T> it = supergraph.getReturnSites(call,
+					null); it.hasNext();) {
+				allReturnSites.add(it.next());
+			}
+			boolean hasCallee = false;
+			for (Iterator<? extends T> it = supergraph.getCalledNodes(call); it
+					.hasNext();) {
+				hasCallee = true;
+				processParticularCallee(edge, allReturnSites, it.next());
+			}
+			// in backwards problems, a call node may have normal successors
+			for (Iterator<? extends T> it = supergraph
+					.getNormalSuccessors(call); it.hasNext();) {
+				final T m = it.next();
+				final IUnaryFlowFunction f = flowFunctionMap
+						.getNormalFlowFunction(call, m);
+				propagateAll(edge.getEntry(), edge.getD1(), m,
+						f.getTargets(edge.getD2()));
+			}
+			for (T returnSite : allReturnSites) {
+				final IUnaryFlowFunction f = hasCallee ? flowFunctionMap
+						.getCallToReturnFlowFunction(call, returnSite)
+						: flowFunctionMap.getCallNoneToReturnFlowFunction(call,
+								returnSite);
+				propagateAll(edge.getEntry(), edge.getD1(), returnSite,
+						f.getTargets(edge.getD2()));
+			}
+		}
+
+		private void processParticularCallee(PathEdge<T> edge,
+				Set<T> allReturnSites, T calleeEntry) {
+			final T call = edge.getTarget();
+			final MutableSparseIntSet reached = MutableSparseIntSet
+					.makeEmpty();
+			for (Iterator<? extends T> it = supergraph.getReturnSites(call,
+					supergraph.getProcOf(calleeEntry)); it.hasNext();) {
+				final T returnSite = it.next();
+				allReturnSites.add(returnSite);
+				addAll(reached,
+						flowFunctionMap.getCallFlowFunction(call, calleeEntry,
+								returnSite).getTargets(edge.getD2()));
+			}
+			// flow into a callee that can never return
+			addAll(reached,
+					flowFunctionMap.getCallFlowFunction(call, calleeEntry, null)
+							.getTargets(edge.getD2()));
+
+			final int owner = ownerOf(calleeEntry);
+			for (IntIterator it = reached.intIterator(); it.hasNext();) {
+				final int d1 = it.next();
+				if (owner == id) {
+					enterCallee(edge, calleeEntry, d1);
+				} else {
+					send(owner, new CallMessage<T>(edge, calleeEntry, d1));
+				}
+			}
+		}
+
+		/**
+		 * The fact <code>d1</code> reaches the entry of a callee owned by this
+		 * worker from the call site in <code>callEdge</code>. Record the call
+		 * flow edge and apply the summary edges computed so far.
+		 */
+		private void enterCallee(PathEdge<T> callEdge, T calleeEntry, int d1) {
+			final T call = callEdge.getTarget();
+			propagateLocal(calleeEntry, d1, calleeEntry, d1);
+			findOrCreateCallFlowEdges(calleeEntry).addCallEdge(
+					supergraph.getNumber(call), callEdge.getD2(), d1);
+
+			final P callee = supergraph.getProcOf(calleeEntry);
+			final LocalSummaryEdges summaries = summaryEdges.get(callee);
+			if (summaries == null) {
+				return;
+			}
+			final int s_p = supergraph.getLocalBlockNumber(calleeEntry);
+			for (T exit : supergraph.getExitsForProcedure(callee)) {
+				final IntSet reachedBySummary = summaries.getSummaryEdges(s_p,
+						supergraph.getLocalBlockNumber(exit), d1);
+				if (reachedBySummary == null) {
+					continue;
+				}
+				for (Iterator<? extends T> it = supergraph.getReturnSites(call,
+						callee); it.hasNext();) {
+					final T returnSite = it.next();
+					if (!supergraph.hasEdge(exit, returnSite)) {
+						continue;
+					}
+					final IFlowFunction retf = flowFunctionMap
+							.getReturnFlowFunction(call, exit, returnSite);
+					for (IntIterator d2s = reachedBySummary.intIterator(); d2s
+							.hasNext();) {
+						final int d2 = d2s.next();
+						final IntSet d5s = retf instanceof IBinaryReturnFlowFunction ? ((IBinaryReturnFlowFunction) retf)
+								.getTargets(callEdge.getD2(), d2)
+								: ((IUnaryFlowFunction) retf).getTargets(d2);
+						propagateAll(callEdge.getEntry(), callEdge.getD1(),
+								returnSite, d5s);
+					}
+				}
+			}
+		}
+
+		private void processExit(PathEdge<T> edge) {
+			final P proc = supergraph.getProcOf(edge.getTarget());
+			LocalSummaryEdges summaries = summaryEdges.get(proc);
+			if (summaries == null) {
+				summaries = new LocalSummaryEdges();
+				summaryEdges.put(proc, summaries);
+			}
+			final int s_p = supergraph.getLocalBlockNumber(edge.getEntry());
+			final int x = supergraph.getLocalBlockNumber(edge.getTarget());
+			if (!summaries.contains(s_p, x, edge.getD1(), edge.getD2())) {
+				summaries.insertSummaryEdge(s_p, x, edge.getD1(), edge.getD2());
+			}
+
+			final CallFlowEdges callFlow = findOrCreateCallFlowEdges(edge
+					.getEntry());
+			final IntSet callNodes = callFlow.getCallFlowSourceNodes(edge
+					.getD1());
+			if (callNodes == null) {
+				return;
+			}
+			for (IntIterator it = callNodes.intIterator(); it.hasNext();) {
+				final int globalC = it.next();
+				final T call = supergraph.getNode(globalC);
+				final IntSet callFacts = callFlow.getCallFlowSources(globalC,
+						edge.getD1());
+				final int owner = ownerOf(call);
+				if (owner == id) {
+					propagateToReturnSites(edge, call, callFacts);
+				} else {
+					// the caller's owner reads this later, so hand it a copy
+					send(owner, new ReturnMessage<T>(edge, call,
+							MutableSparseIntSet.make(callFacts)));
+				}
+			}
+		}
+
+		/**
+		 * The callee reached <code>exitEdge</code>; propagate to the return
+		 * sites of a call owned by this worker, for each fact in
+		 * <code>callFacts</code> which flowed into the callee at that call.
+		 */
+		private void propagateToReturnSites(PathEdge<T> exitEdge, T call,
+				IntSet callFacts) {
+			final T exit = exitEdge.getTarget();
+			final T[] entries = supergraph.getEntriesForProcedure(supergraph
+					.getProcOf(call));
+			for (Iterator<? extends T> it = supergraph.getReturnSites(call,
+					supergraph.getProcOf(exit)); it.hasNext();) {
+				final T returnSite = it.next();
+				final IFlowFunction retf = flowFunctionMap
+						.getReturnFlowFunction(call, exit, returnSite);
+				final IntSet unaryTargets = retf instanceof IBinaryReturnFlowFunction ? null
+						: ((IUnaryFlowFunction) retf).getTargets(exitEdge
+								.getD2());
+				for (IntIterator d4s = callFacts.intIterator(); d4s.hasNext();) {
+					final int d4 = d4s.next();
+					final IntSet d5s = unaryTargets != null ? unaryTargets
+							: ((IBinaryReturnFlowFunction) retf).getTargets(d4,
+									exitEdge.getD2());
+					if (d5s == null || d5s.isEmpty()) {
+						continue;
+					}
+					for (T s_p : entries) {
+						final LocalPathEdges lp = pathEdges.get(s_p);
+						if (lp == null) {
+							continue;
+						}
+						final IntSet d3s = lp.getInverse(
+								supergraph.getLocalBlockNumber(call), d4);
+						if (d3s == null) {
+							continue;
+						}
+						for (IntIterator d3it = d3s.intIterator(); d3it
+								.hasNext();) {
+							propagateAll(s_p, d3it.next(), returnSite, d5s);
+						}
+					}
+				}
+			}
+		}
+
+		private void propagateAll(T s_p, int d1, T n, IntSet d2s) {
+			if (d2s == null) {
+				return;
+			}
+			final int owner = ownerOf(n);
+			for (IntIterator it = d2s.intIterator(); it.hasNext();) {
+				final int d2 = it.next();
+				if (owner == id) {
+					propagateLocal(s_p, d1, n, d2);
+				} else {
+					send(owner, PathEdge.createPathEdge(s_p, d1, n, d2));
+				}
+			}
+		}
+
+		/**
+		 * Record the path edge &lt;s_p, d1&gt; -&gt; &lt;n, d2&gt; for a
+		 * procedure owned by this worker, and queue it up if it is new.
+		 *
+		 * @return whether the path edge is new
+		 */
+		private boolean propagateLocal(T s_p, int d1, T n, int d2) {
+			LocalPathEdges pLocal = pathEdges.get(s_p);
+			if (pLocal == null) {
+				pLocal = new LocalPathEdges(false);
+				pathEdges.put(s_p, pLocal);
+			}
+			final int local = supergraph.getLocalBlockNumber(n);
+			if (pLocal.contains(d1, local, d2)) {
+				return false;
+			}
+			pLocal.addPathEdge(d1, local, d2);
+			pending.incrementAndGet();
+			worklist.add(PathEdge.createPathEdge(s_p, d1, n, d2));
+			return true;
+		}
+
+		private CallFlowEdges findOrCreateCallFlowEdges(T s_p) {
+			CallFlowEdges result = callFlowEdges.get(s_p);
+			if (result == null) {
+				result = new CallFlowEdges();
+				callFlowEdges.put(s_p, result);
+			}
+			return result;
+		}
+	}
+
+	private static void addAll(MutableIntSet set, IntSet other) {
+		if (other != null) {
+			set.addAll(other);
+		}
+	}
+
+	/**
+	 * The per-worker tables merged into one view. Procedures are owned by a
+	 * single worker, so the key sets of the worker tables are disjoint.
+	 */
+	private final class Result implements TabulationResult<T, P, F> {
+		private final Map<T, LocalPathEdges> pathEdges = Maps.newHashMap();
+		private final Map<P, LocalSummaryEdges> summaryEdges = Maps
+				.newHashMap();
+
+		Result() {
+			for (Worker w : workers) {
+				pathEdges.putAll(w.pathEdges);
+				summaryEdges.putAll(w.summaryEdges);
+			}
+		}
+
+		@Override
+		public IntSet getResult(T node) {
+			final P proc = supergraph.getProcOf(node);
+			final int n = supergraph.getLocalBlockNumber(node);
+			final Set<T> allEntries = Sets.newHashSet(Arrays.asList(supergraph
+					.getEntriesForProcedure(proc)));
+			final Set<PathEdge<T>> pSeeds = seeds.get(proc);
+			if (pSeeds != null) {
+				for (PathEdge<T> seed : pSeeds) {
+					allEntries.add(seed.getEntry());
+				}
+			}
+			final MutableIntSet result = MutableSparseIntSet.makeEmpty();
+			for (T entry : allEntries) {
+				final LocalPathEdges lp = pathEdges.get(entry);
+				if (lp != null) {
+					result.addAll(lp.getReachable(n));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public TabulationProblem<T, P, F> getProblem() {
+			return problem;
+		}
+
+		@Override
+		public Collection<T> getSupergraphNodesReached() {
+			final Set<T> result = Sets.newHashSet();
+			for (Map.Entry<T, LocalPathEdges> e : pathEdges.entrySet()) {
+				final P proc = supergraph.getProcOf(e.getKey());
+				for (IntIterator it = e.getValue().getReachedNodeNumbers()
+						.intIterator(); it.hasNext();) {
+					result.add(supergraph.getLocalBlock(proc, it.next()));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public IntSet getSummaryTargets(T n1, int d1, T n2) {
+			final LocalSummaryEdges summaries = summaryEdges.get(supergraph
+					.getProcOf(n1));
+			if (summaries == null) {
+				return null;
+			}
+			return summaries.getSummaryEdges(
+					supergraph.getLocalBlockNumber(n1),
+					supergraph.getLocalBlockNumber(n2), d1);
+		}
+
+		@Override
+		public Collection<PathEdge<T>> getSeeds() {
+			return allSeeds;
+		}
+	}
+}
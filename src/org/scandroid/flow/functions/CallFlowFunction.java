@@ -133,8 +133,8 @@ public class CallFlowFunction<E extends ISSABasicBlock> implements
 		final Set<CodeElement> formals = paramArgsMap.get(de.codeElement);
 		if (null != formals) {
 			for (CodeElement formal : formals) {
-				set.add(domain.getMappedIndex(new DomainElement(formal,
-						de.taintSource)));
+				set.add(domain.getMappedIndex(formal,
+						de.taintSource));
 			}
 		}		
 		return set;
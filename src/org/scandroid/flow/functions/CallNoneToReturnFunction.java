@@ -76,7 +76,7 @@ public final class CallNoneToReturnFunction <E extends ISSABasicBlock> implement
 		FlowType<E> taint = de.taintSource;
 		
 		for (CodeElement ce : domain.codeElements() ){
-			int elt = domain.getMappedIndex(new DomainElement(ce, taint));
+			int elt = domain.getMappedIndex(ce, taint);
 			set.add(elt);
 		}
 		return set;
@@ -51,8 +51,6 @@ import org.slf4j.LoggerFactory;
 import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.util.intset.IntSet;
-import com.ibm.wala.util.intset.MutableSparseIntSet;
-import com.ibm.wala.util.intset.SparseIntSet;
 
 
 public class CallToReturnFunction <E extends ISSABasicBlock> 
@@ -67,8 +65,6 @@ public class CallToReturnFunction <E extends ISSABasicBlock>
 
 	@Override
 	public IntSet getTargets(int d) {
-		MutableSparseIntSet set = MutableSparseIntSet.makeEmpty();
-        
 		// Local elements (and the 0 element) flow through CallToReturn edges, 
 		// but nothing else does (everything else is subject to whatever 
 		// happened in the invoked function)
@@ -79,7 +75,7 @@ public class CallToReturnFunction <E extends ISSABasicBlock>
 		DomainElement de = domain.getMappedObject(d);
 		if (de.codeElement instanceof LocalElement || de.codeElement instanceof ReturnElement ||
 				de.codeElement instanceof ThrowElement) {
-			return SparseIntSet.singleton(d);
+			return domain.getSingleton(d);
 		} else {
 			logger.trace("throwing away {}", de);
 			return TaintTransferFunctions.EMPTY_SET;
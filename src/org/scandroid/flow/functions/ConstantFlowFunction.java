@@ -48,7 +48,6 @@ import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
-import com.ibm.wala.util.intset.SparseIntSet;
 
 /**
  * A flow function which maps the zero fact to a set of new dataflow facts,
@@ -58,9 +57,11 @@ import com.ibm.wala.util.intset.SparseIntSet;
  * 
  */
 public class ConstantFlowFunction <E extends ISSABasicBlock> implements IUnaryFlowFunction {
+	private final IFDSTaintDomain<E> domain;
 	private final MutableSparseIntSet result;
 	
 	public ConstantFlowFunction(IFDSTaintDomain<E> domain, Set<DomainElement> elts) {
+		this.domain = domain;
 		result = MutableSparseIntSet.make(TaintTransferFunctions.ZERO_SET);
 		for (DomainElement de : elts) {
 			result.add(domain.getMappedIndex(de));
@@ -74,7 +75,7 @@ public class ConstantFlowFunction <E extends ISSABasicBlock> implements IUnaryFl
 	 */
 	@Override
 	public IntSet getTargets(int d1) {
-		return 0 == d1 ? result : SparseIntSet.singleton(d1);
+		return 0 == d1 ? result : domain.getSingleton(d1);
 	}
 
 }
@@ -48,7 +48,6 @@ import org.slf4j.LoggerFactory;
 import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.util.intset.IntSet;
-import com.ibm.wala.util.intset.SparseIntSet;
 
 
 /**
@@ -82,7 +81,7 @@ public class GlobalIdentityFunction <E extends ISSABasicBlock>
 			logger.trace("taking {} to emptyset", de);
 			return TaintTransferFunctions.EMPTY_SET;
 		} else {
-			return SparseIntSet.singleton(d1);
+			return domain.getSingleton(d1);
 		}
 	}
 }
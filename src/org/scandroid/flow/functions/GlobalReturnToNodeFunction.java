@@ -114,8 +114,8 @@ public class GlobalReturnToNodeFunction<E extends ISSABasicBlock> implements
 				Set<CodeElement> elts = ikMap.get(ik);
 				if (null != elts) {
 					for (CodeElement elt : elts) {
-						set.add(domain.getMappedIndex(new DomainElement(elt,
-								de.taintSource)));
+						set.add(domain.getMappedIndex(elt,
+								de.taintSource));
 					}
 				}
 			} else {
@@ -401,7 +401,7 @@ implements IFlowFunctionMap<BasicBlockInContext<E>> {
 					for(CodeElement i:p.defs)
 					{
 						//System.out.println("\t\tadding outflow "+i);
-						set.add(domain.getMappedIndex(new DomainElement(i,taintType)));
+						set.add(domain.getMappedIndex(i,taintType));
 					}
 				}
 			}
@@ -464,7 +464,7 @@ implements IFlowFunctionMap<BasicBlockInContext<E>> {
 				}
 				DomainElement de = domain.getMappedObject(d1);
 				if(de!=null && parameterMap.containsKey(de.codeElement))
-					set.add(domain.getMappedIndex(new DomainElement(parameterMap.get(de.codeElement),de.taintSource)));
+					set.add(domain.getMappedIndex(parameterMap.get(de.codeElement),de.taintSource));
 				return set;
 			}
 
@@ -564,7 +564,7 @@ implements IFlowFunctionMap<BasicBlockInContext<E>> {
 				BitVectorIntSet set = new BitVectorIntSet();
 				if(callSet != null) {
 //					System.out.println("callset: " + callSet);
-					set.add(domain.getMappedIndex(new DomainElement(callSet,domain.getMappedObject(d1).taintSource)));
+					set.add(domain.getMappedIndex(callSet,domain.getMappedObject(d1).taintSource));
 				}
 				return set;
 			}
@@ -576,7 +576,7 @@ implements IFlowFunctionMap<BasicBlockInContext<E>> {
 			{
 				BitVectorIntSet set = new BitVectorIntSet();
 				if(callSet != null)
-					set.add(domain.getMappedIndex(new DomainElement(callSet,domain.getMappedObject(d1).taintSource)));
+					set.add(domain.getMappedIndex(callSet,domain.getMappedObject(d1).taintSource));
 				set.addAll(super.getTargets(d1));
 				return set;
 			}
@@ -37,10 +37,9 @@
  */
 package org.scandroid.flow.functions;
 
+import java.util.Arrays;
 import java.util.List;
 
-import org.scandroid.domain.CodeElement;
-import org.scandroid.domain.DomainElement;
 import org.scandroid.domain.IFDSTaintDomain;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,16 +50,47 @@ import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 
 
+/**
+ * Passes a fact through unless its code element is a def, and adds the facts
+ * for the defs of its code element's uses. The use/def pairs are turned into
+ * tables of code ids up front, so that applying the function is a couple of
+ * binary searches over ints.
+ */
 final class PairBasedFlowFunction <E extends ISSABasicBlock> implements IUnaryFlowFunction {
 	private static final Logger logger = 
 			LoggerFactory.getLogger(PairBasedFlowFunction.class);
 	
-    private final List<UseDefPair> useToDefList;
 	private final IFDSTaintDomain<E> domain;
+	/** sorted code ids of the defs */
+	private final int[] defIds;
+	/**
+	 * code ids of the pairs, sorted by use; the defs of use uses[k] are
+	 * useDefs[k]
+	 */
+	private final int[] uses;
+	private final int[] useDefs;
 
     public PairBasedFlowFunction(IFDSTaintDomain<E> domain, List<UseDefPair> useToDefList) {
     	this.domain = domain;
-        this.useToDefList = useToDefList;
+    	final int n = useToDefList.size();
+    	final long[] pairs = new long[n];
+    	final int[] defs = new int[n];
+    	for (int k = 0; k < n; k++) {
+    		UseDefPair udPair = useToDefList.get(k);
+    		final int use = domain.getCodeId(udPair.getUse());
+    		final int def = domain.getCodeId(udPair.getDef());
+    		pairs[k] = ((long) use << 32) | def;
+    		defs[k] = def;
+    	}
+    	Arrays.sort(pairs);
+    	this.uses = new int[n];
+    	this.useDefs = new int[n];
+    	for (int k = 0; k < n; k++) {
+    		uses[k] = (int) (pairs[k] >>> 32);
+    		useDefs[k] = (int) pairs[k];
+    	}
+    	Arrays.sort(defs);
+    	this.defIds = defs;
     }
     
     @Override
@@ -71,9 +101,8 @@ final class PairBasedFlowFunction <E extends ISSABasicBlock> implements IUnaryFl
     		return TaintTransferFunctions.ZERO_SET;
     	}
     	
-        MutableSparseIntSet set = MutableSparseIntSet.makeEmpty();
+        final int code = domain.getCodeId(d);
 
-        DomainElement de = domain.getMappedObject(d);
         // Here we list what facts we pass through. If a fact was true
         // before executing this instruction, it'll be true after,
         // unless we created a new definition of its associated
@@ -85,36 +114,31 @@ final class PairBasedFlowFunction <E extends ISSABasicBlock> implements IUnaryFl
     	// is evidence to the contrary.  Because of this, instructions will
     	// 'default' to propagating taints that were not relevant to that 
     	// instruction, which is what we want.
-    	set.add(d);
-    	for (UseDefPair udPair : useToDefList) {
-			CodeElement def = udPair.getDef();
-			
-			if (def.equals(de.codeElement)) {
-				// this instruction redefined D, so we 
-				// do *not* pass it through - this conditional has 
-				// contradicted our assumption that D should be passed through,
-				// so remove it from the set:
-				set.remove(d);
-				break;
-			}
-		}
+    	final boolean passThrough = Arrays.binarySearch(defIds, code) < 0;
     	
     	////////////////////////////////////////////////////////////////
     	// see if the taints associated with D also flow through to any 
     	// other domain elements:
-    	
-    	for (UseDefPair udPair : useToDefList) {
-			CodeElement use = udPair.getUse();
-			
-			if (use.equals(de.codeElement)) {
-				// ok, the d element flows to the def, so we add that def
-				// and keep looking.
-				DomainElement newDE = 
-				     new DomainElement(udPair.getDef(), de.taintSource);
-				set.add(domain.getMappedIndex(newDE));
-			}
+    	int k = Arrays.binarySearch(uses, code);
+    	if (k < 0) {
+    		// nothing flows, so the shared sets will do
+    		return passThrough ? domain.getSingleton(d)
+    				: TaintTransferFunctions.EMPTY_SET;
+    	}
+    	while (k > 0 && uses[k - 1] == code) {
+    		k--;
+    	}
+
+        MutableSparseIntSet set = MutableSparseIntSet.makeEmpty();
+        if (passThrough) {
+        	set.add(d);
+        }
+    	for (; k < uses.length && uses[k] == code; k++) {
+			// ok, the d element flows to the def, so we add that def
+			// and keep looking.
+			set.add(domain.getMappedIndex(useDefs[k], d));
     	}	
     	// logger.debug("getTargets("+d+"): "+set);
         return set;
     }
-}
\ No newline at end of file
+}
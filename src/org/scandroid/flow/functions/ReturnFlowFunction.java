@@ -49,7 +49,6 @@ import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
-import com.ibm.wala.util.intset.SparseIntSet;
 
 /**
  * @author creswick
@@ -85,8 +84,8 @@ public class ReturnFlowFunction<E extends ISSABasicBlock> implements
 		DomainElement de = domain.getMappedObject(d1);
 		// if the domain element is a return element, propagate its taint
 		if (de.codeElement instanceof ReturnElement) {
-			return SparseIntSet.singleton(domain
-					.getMappedIndex(new DomainElement(ce, de.taintSource)));
+			return domain.getSingleton(domain
+					.getMappedIndex(ce, de.taintSource));
 		}
 		return TaintTransferFunctions.EMPTY_SET;
 	}
@@ -68,10 +68,8 @@ import com.google.common.collect.Sets;
 import com.ibm.wala.classLoader.IField;
 import com.ibm.wala.dataflow.IFDS.IFlowFunction;
 import com.ibm.wala.dataflow.IFDS.IFlowFunctionMap;
-import com.ibm.wala.dataflow.IFDS.IReversibleFlowFunction;
 import com.ibm.wala.dataflow.IFDS.ISupergraph;
 import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
-import com.ibm.wala.dataflow.IFDS.IdentityFlowFunction;
 import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.propagation.ConcreteTypeKey;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
@@ -96,8 +94,8 @@ import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
 import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
-import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
 import com.ibm.wala.util.intset.SparseIntSet;
@@ -127,7 +125,7 @@ public class TaintTransferFunctions<E extends ISSABasicBlock> implements
 	public static final IntSet EMPTY_SET = new SparseIntSet();
 	public static final IntSet ZERO_SET = SparseIntSet.singleton(0);
 
-	private static final IReversibleFlowFunction IDENTITY_FN = new IdentityFlowFunction();
+	private final IUnaryFlowFunction identity;
 
 	public TaintTransferFunctions(IFDSTaintDomain<E> domain,
 			ISupergraph<BasicBlockInContext<E>, CGNode> graph,
@@ -142,6 +140,13 @@ public class TaintTransferFunctions<E extends ISSABasicBlock> implements
 		this.pa = pa;
 		this.globalId = new GlobalIdentityFunction<E>(domain);
 		this.callToReturn = new CallToReturnFunction<E>(domain);
+		this.identity = new IUnaryFlowFunction() {
+			@Override
+			public IntSet getTargets(int d1) {
+				return 0 == d1 ? ZERO_SET : TaintTransferFunctions.this.domain
+						.getSingleton(d1);
+			}
+		};
 		this.callFlowFunctions = CacheBuilder.newBuilder().maximumSize(10000)
 				.expireAfterWrite(10, TimeUnit.MINUTES)
 				.build(new CacheLoader<BlockPair<E>, IUnaryFlowFunction>() {
@@ -180,7 +185,7 @@ public class TaintTransferFunctions<E extends ISSABasicBlock> implements
 		SSAInstruction srcInst = src.getLastInstruction();
 		if (null == srcInst) {
 			logger.warn("null source for a call");
-			return IDENTITY_FN;
+			return identity;
 		}
 
 		if (srcInst instanceof SSAInvokeInstruction) {
@@ -223,7 +228,7 @@ public class TaintTransferFunctions<E extends ISSABasicBlock> implements
 		 * Switching this to the identity for now improves performance
 		 * drastically.
 		 */
-		return IDENTITY_FN;
+		return identity;
 	}
 
 	@Override
@@ -270,7 +275,7 @@ public class TaintTransferFunctions<E extends ISSABasicBlock> implements
 			// if we don't have a Phi inst in this basicblock, then return identify_fn
 			if (!phiI.hasNext()) {
 				logger.trace("Using identity fn. for normal flow (dest instruction null)");
-				return IDENTITY_FN;
+				return identity;
 			}
 		}
 
@@ -617,7 +622,17 @@ public class TaintTransferFunctions<E extends ISSABasicBlock> implements
 		return new IUnaryFlowFunction() {
 			@Override
 			public IntSet getTargets(int d1) {
-				return g.getTargets(d1).union(h.getTargets(d1));
+				final IntSet a = g.getTargets(d1);
+				final IntSet b = h.getTargets(d1);
+				// most facts only come out of one side, or the same on both,
+				// and then there is no need for a new set
+				if (b.isSubset(a)) {
+					return a;
+				}
+				if (a.isSubset(b)) {
+					return b;
+				}
+				return a.union(b);
 			}
 		};
 	}
@@ -635,14 +650,17 @@ public class TaintTransferFunctions<E extends ISSABasicBlock> implements
 
 			@Override
 			public IntSet getTargets(int d1) {
+				final IntSet ys = g.getTargets(d1);
+				if (ys.isEmpty()) {
+					return EMPTY_SET;
+				}
+				if (ys.size() == 1) {
+					return f.getTargets(ys.max());
+				}
 				final MutableSparseIntSet set = MutableSparseIntSet.makeEmpty();
-				g.getTargets(d1).foreach(new IntSetAction() {
-
-					@Override
-					public void act(int x) {
-						set.addAll(f.getTargets(x));
-					}
-				});
+				for (IntIterator it = ys.intIterator(); it.hasNext();) {
+					set.addAll(f.getTargets(it.next()));
+				}
 				return set;
 			}
 		};
@@ -10,7 +10,6 @@ import org.scandroid.domain.ThrowElement;
 import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.util.intset.IntSet;
-import com.ibm.wala.util.intset.SparseIntSet;
 
 public class ThrowFlowFunction<E extends ISSABasicBlock> implements 
         IUnaryFlowFunction {
@@ -42,8 +41,8 @@ public class ThrowFlowFunction<E extends ISSABasicBlock> implements
 		DomainElement de = domain.getMappedObject(d1);
 		// if the domain element is a return element, propagate its taint
 		if (de.codeElement instanceof ThrowElement) {
-			return SparseIntSet.singleton(domain
-					.getMappedIndex(new DomainElement(ce, de.taintSource)));
+			return domain.getSingleton(domain
+					.getMappedIndex(ce, de.taintSource));
 		}
 		return TaintTransferFunctions.EMPTY_SET;
 	}
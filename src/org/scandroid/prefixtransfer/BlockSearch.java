@@ -39,6 +39,7 @@
 package org.scandroid.prefixtransfer;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -49,6 +50,8 @@ import com.ibm.wala.ssa.SSACFG;
 public class BlockSearch {
 
     private ArrayList<ISSABasicBlock> blockQueue = new ArrayList<ISSABasicBlock>();
+    // blocks already queued; without it a loop in the CFG is walked forever
+    private HashSet<ISSABasicBlock> queued = new HashSet<ISSABasicBlock>();
     private int location = 0;
 
     private final SSACFG cfg;
@@ -61,11 +64,12 @@ public class BlockSearch {
     public ISSABasicBlock searchFromBlock(ISSABasicBlock b, Set<ISSABasicBlock> targets)
     {
         blockQueue.clear();
+        queued.clear();
         location = 0;
         Iterator<ISSABasicBlock> startNodes = cfg.getPredNodes(b);
         while(startNodes.hasNext())
         {
-            blockQueue.add(startNodes.next());
+            enqueue(startNodes.next());
         }
 
         ISSABasicBlock candidate = null;
@@ -91,10 +95,18 @@ public class BlockSearch {
                 Iterator<ISSABasicBlock> predNodes = cfg.getPredNodes(current);
                 while(predNodes.hasNext())
                 {
-                    blockQueue.add(predNodes.next());
+                    enqueue(predNodes.next());
                 }
             }
         }
         return candidate;
     }
+
+    private void enqueue(ISSABasicBlock block)
+    {
+        if(queued.add(block))
+        {
+            blockQueue.add(block);
+        }
+    }
 }
@@ -0,0 +1,137 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Adam Fuchs          <afuchs@cs.umd.edu>
+ *  Avik Chaudhuri      <avik@cs.umd.edu>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+
+package org.scandroid.prefixtransfer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The universe shared by the {@link PrefixVariable}s of one prefix analysis.
+ * Prefix strings are interned to ids, so variables compare and copy ints,
+ * and the instance keys that ever get a prefix are numbered densely, so a
+ * variable can keep its prefixes in a plain array.
+ */
+public class PrefixTable {
+	private final HashMap<String, Integer> prefixIds = new HashMap<String, Integer>();
+	private final ArrayList<String> prefixes = new ArrayList<String>();
+
+	// slot + 1 of each instance id, 0 for none
+	private int[] slots = new int[64];
+	private int[] instances = new int[64];
+	private int slotCount = 0;
+
+	/**
+	 * @return the id of an interned prefix string
+	 */
+	public int prefixId(String prefix) {
+		Integer id = prefixIds.get(prefix);
+		if (id == null) {
+			id = prefixes.size();
+			prefixIds.put(prefix, id);
+			prefixes.add(prefix);
+		}
+		return id;
+	}
+
+	public String prefix(int id) {
+		return prefixes.get(id);
+	}
+
+	/**
+	 * @return the id of the longest common prefix of two interned prefixes
+	 */
+	public int intersect(int one, int two) {
+		if (one == two) {
+			return one;
+		}
+		String s1 = prefixes.get(one);
+		String s2 = prefixes.get(two);
+		int i = 0;
+		while (i < s1.length() && i < s2.length()
+				&& s1.charAt(i) == s2.charAt(i)) {
+			i++;
+		}
+		if (i == s1.length()) {
+			return one;
+		}
+		if (i == s2.length()) {
+			return two;
+		}
+		return prefixId(s1.substring(0, i));
+	}
+
+	/**
+	 * @return the slot of an instance id, numbering it if it has none yet
+	 */
+	public int slot(int instance) {
+		if (instance >= slots.length) {
+			slots = Arrays.copyOf(slots,
+					Math.max(instance + 1, 2 * slots.length));
+		}
+		int slot = slots[instance] - 1;
+		if (slot < 0) {
+			slot = slotCount++;
+			slots[instance] = slot + 1;
+			if (slot >= instances.length) {
+				instances = Arrays.copyOf(instances, 2 * instances.length);
+			}
+			instances[slot] = instance;
+		}
+		return slot;
+	}
+
+	/**
+	 * @return the slot of an instance id, or -1 if it has none
+	 */
+	public int slotOf(int instance) {
+		if (instance < 0 || instance >= slots.length) {
+			return -1;
+		}
+		return slots[instance] - 1;
+	}
+
+	/**
+	 * @return the instance id numbered by a slot
+	 */
+	public int instance(int slot) {
+		return instances[slot];
+	}
+}
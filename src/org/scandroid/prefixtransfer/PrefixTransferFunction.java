@@ -54,10 +54,10 @@ public class PrefixTransferFunction extends UnaryOperator<PrefixVariable>
     public byte evaluate(PrefixVariable lhs,
             PrefixVariable rhs) {
         PrefixVariable newLhs = node.propagate(rhs);
-//      if(lhs.equals(newLhs))
-//          return 1;
+        if(lhs.sameState(newLhs))
+            return NOT_CHANGED;
         lhs.copyState(newLhs);
-        return 1;
+        return CHANGED;
     }
 
     @Override
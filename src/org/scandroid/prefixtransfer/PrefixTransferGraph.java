@@ -85,6 +85,7 @@ public class PrefixTransferGraph implements Graph<InstanceKeySite> {
         Map<InstanceKeySite, Set<InstanceKey>> unresolvedDependencies = new HashMap<InstanceKeySite, Set<InstanceKey>>();
         ArrayList<InstanceKey> instanceKeys = new ArrayList<InstanceKey>();
         instanceKeys.addAll(pa.getInstanceKeys());
+        ReversePointsToIndex index = new ReversePointsToIndex(pa);
         for(InstanceKey k:instanceKeys)
         {
             if(k.getConcreteType().getName().toString().equals("Ljava/lang/StringBuilder"))
@@ -97,7 +98,7 @@ public class PrefixTransferGraph implements Graph<InstanceKeySite> {
                         StringBuilderUseAnalysis sbua;
                         try
                         {
-                            sbua = new StringBuilderUseAnalysis(k,pa);
+                            sbua = new StringBuilderUseAnalysis(k,pa,index);
                         }
                         catch(Exception e)
                         {
@@ -38,27 +38,74 @@
 
 package org.scandroid.prefixtransfer;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map.Entry;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import com.ibm.wala.fixpoint.AbstractVariable;
 
 
+/**
+ * The known prefixes of string instance keys, by the slots of a shared
+ * {@link PrefixTable}: sorted slots with their interned prefix ids, and a
+ * bitset of the slots whose string is known in full.
+ * 
+ * The solver copies a variable on every transfer, so {@link #copyState}
+ * only shares the arrays; they are copied when one of the variables is
+ * changed afterwards.
+ */
 public class PrefixVariable extends AbstractVariable<PrefixVariable>{
 
-    // map instance keys to their prefixes
-    public HashMap<Integer, String> knownPrefixes = new HashMap<Integer,String>();
-    public HashSet<Integer> fullPrefixKnown = new HashSet<Integer>();
+    private static final int[] EMPTY = new int[0];
+
+    private final PrefixTable table;
+
+    // map instance keys to their prefixes: sorted slots and their prefix ids
+    private int[] slots = EMPTY;
+    private int[] prefixIds = EMPTY;
+    private int size = 0;
+    private BitSet fullPrefixKnown = new BitSet();
+
+    // whether the arrays or the bitset may be seen by another variable
+    private boolean prefixesShared = false;
+    private boolean fullShared = false;
 
     // TODO: keep track of completely known strings (not just known by prefix)
     //  HashMap<Integer, String> knownStrings = new HashMap<Integer,String>();
 
+    public PrefixVariable(PrefixTable table) {
+        this.table = table;
+    }
+
+    /**
+     * @return a new, empty variable over the same prefix table
+     */
+    public PrefixVariable newVariable() {
+        return new PrefixVariable(table);
+    }
+
     public void copyState(PrefixVariable v) {
-        knownPrefixes.clear();
-        knownPrefixes.putAll(v.knownPrefixes);
-        fullPrefixKnown.clear();
-        fullPrefixKnown.addAll(v.fullPrefixKnown);
+        slots = v.slots;
+        prefixIds = v.prefixIds;
+        size = v.size;
+        fullPrefixKnown = v.fullPrefixKnown;
+        prefixesShared = v.prefixesShared = true;
+        fullShared = v.fullShared = true;
+    }
+
+    /**
+     * @return true if v holds the same prefixes as this variable
+     */
+    public boolean sameState(PrefixVariable v) {
+        if (size != v.size)
+            return false;
+        if (slots != v.slots || prefixIds != v.prefixIds) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] != v.slots[i] || prefixIds[i] != v.prefixIds[i])
+                    return false;
+            }
+        }
+        return fullPrefixKnown == v.fullPrefixKnown
+                || fullPrefixKnown.equals(v.fullPrefixKnown);
     }
 
     public static String intersect(String one, String two)
@@ -75,51 +122,161 @@ public class PrefixVariable extends AbstractVariable<PrefixVariable>{
 
     public String getPrefix(int instance)
     {
-        return knownPrefixes.get(instance);
+        int slot = table.slotOf(instance);
+        if (slot < 0)
+            return null;
+        int pos = Arrays.binarySearch(slots, 0, size, slot);
+        if (pos < 0)
+            return null;
+        return table.prefix(prefixIds[pos]);
+    }
+
+    /**
+     * @return true if the string of the instance key is known in full, not
+     *         just by its prefix
+     */
+    public boolean isFullPrefixKnown(int instance)
+    {
+        int slot = table.slotOf(instance);
+        return slot >= 0 && fullPrefixKnown.get(slot);
     }
 
     public boolean updateAll(PrefixVariable other)
     {
-        boolean changed = false;
-        for(Entry<Integer,String> e:other.knownPrefixes.entrySet())
-        {
-            changed = update(e.getKey(),e.getValue()) || changed;
-        }
-        for (Integer i: other.fullPrefixKnown) {
-            changed = include(i) || changed;
+        boolean changed = mergePrefixes(other);
+        BitSet full = other.fullPrefixKnown;
+        if (full != fullPrefixKnown) {
+            for (int slot = full.nextSetBit(0); slot >= 0; slot = full.nextSetBit(slot + 1)) {
+                if (!fullPrefixKnown.get(slot)) {
+                    ownFull();
+                    fullPrefixKnown.or(full);
+                    changed = true;
+                    break;
+                }
+            }
         }
         return changed;
     }
 
-    public boolean include(Integer i)
+    /**
+     * Meets the prefixes of other into this variable, and only copies the
+     * arrays if that changes anything.
+     */
+    private boolean mergePrefixes(PrefixVariable other)
+    {
+        if (other.slots == slots && other.prefixIds == prefixIds && other.size == size)
+            return false;
+        int added = 0;
+        boolean narrowed = false;
+        int i = 0;
+        for (int j = 0; j < other.size; j++) {
+            while (i < size && slots[i] < other.slots[j])
+                i++;
+            if (i < size && slots[i] == other.slots[j]) {
+                if (!narrowed && table.intersect(prefixIds[i], other.prefixIds[j]) != prefixIds[i])
+                    narrowed = true;
+            } else {
+                added++;
+            }
+        }
+        if (added == 0 && !narrowed)
+            return false;
+        int[] newSlots = new int[size + added];
+        int[] newIds = new int[size + added];
+        int n = 0;
+        i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && slots[i] < other.slots[j])) {
+                newSlots[n] = slots[i];
+                newIds[n++] = prefixIds[i++];
+            } else if (i == size || other.slots[j] < slots[i]) {
+                newSlots[n] = other.slots[j];
+                newIds[n++] = other.prefixIds[j++];
+            } else {
+                newSlots[n] = slots[i];
+                newIds[n++] = table.intersect(prefixIds[i++], other.prefixIds[j++]);
+            }
+        }
+        slots = newSlots;
+        prefixIds = newIds;
+        size = n;
+        prefixesShared = false;
+        return true;
+    }
+
+    public boolean include(int i)
     {
-        if (fullPrefixKnown.contains(i)) return false;
-        fullPrefixKnown.add(i);
+        int slot = table.slot(i);
+        if (fullPrefixKnown.get(slot)) return false;
+        ownFull();
+        fullPrefixKnown.set(slot);
         return true;
     }
 
-    // set an instance key to have a known prefix
-    public boolean update(Integer instance, String prefix)
+    // set an instance key to have a known prefix; a null prefix is unknown
+    // and changes nothing
+    public boolean update(int instance, String prefix)
     {
-        String prevPrefix = knownPrefixes.get(instance);
+        if (prefix == null)
+            return false;
+        int slot = table.slot(instance);
+        int prefixId = table.prefixId(prefix);
+        int pos = Arrays.binarySearch(slots, 0, size, slot);
 
-        if(prevPrefix == null)
+        if(pos < 0)
         {
-            knownPrefixes.put(instance, prefix);
+            pos = -pos - 1;
+            int[] newSlots = slots;
+            int[] newIds = prefixIds;
+            if (prefixesShared || size == slots.length) {
+                newSlots = new int[Math.max(4, 2 * size)];
+                newIds = new int[newSlots.length];
+                System.arraycopy(slots, 0, newSlots, 0, pos);
+                System.arraycopy(prefixIds, 0, newIds, 0, pos);
+            }
+            System.arraycopy(slots, pos, newSlots, pos + 1, size - pos);
+            System.arraycopy(prefixIds, pos, newIds, pos + 1, size - pos);
+            newSlots[pos] = slot;
+            newIds[pos] = prefixId;
+            slots = newSlots;
+            prefixIds = newIds;
+            size++;
+            prefixesShared = false;
             return true;
         }
         else
         {
-            String newPrefix = intersect(prevPrefix,prefix);
-            if(newPrefix.equals(prevPrefix))
+            int prevPrefix = prefixIds[pos];
+            int newPrefix = table.intersect(prevPrefix, prefixId);
+            if(newPrefix == prevPrefix)
                 return false;
-            knownPrefixes.put(instance, newPrefix);
+            if (prefixesShared) {
+                slots = Arrays.copyOf(slots, size);
+                prefixIds = Arrays.copyOf(prefixIds, size);
+                prefixesShared = false;
+            }
+            prefixIds[pos] = newPrefix;
             return true;
         }
     }
 
+    private void ownFull()
+    {
+        if (fullShared) {
+            fullPrefixKnown = (BitSet) fullPrefixKnown.clone();
+            fullShared = false;
+        }
+    }
+
     public String toString() {
-        return knownPrefixes.toString();
+        StringBuilder b = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                b.append(", ");
+            b.append(table.instance(slots[i])).append('=').append(table.prefix(prefixIds[i]));
+        }
+        return b.append('}').toString();
     }
 
     // set an instance key to be a particular constant
@@ -0,0 +1,167 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Adam Fuchs          <afuchs@cs.umd.edu>
+ *  Avik Chaudhuri      <avik@cs.umd.edu>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+
+package org.scandroid.prefixtransfer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.ReturnValueKey;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+
+/**
+ * Maps instance keys back to the pointer keys that may point to them, built
+ * with a single pass over the pointer analysis. The prefix analysis asks
+ * this for every StringBuilder instance, which used to cost a scan of all
+ * pointer keys each time.
+ */
+public class ReversePointsToIndex {
+	private final PointerAnalysis pa;
+
+	/**
+	 * Local pointer keys of application methods, by the instance keys they
+	 * may point to.
+	 */
+	private final Map<InstanceKey, List<LocalPointerKey>> applicationLocals = new HashMap<InstanceKey, List<LocalPointerKey>>();
+
+	/**
+	 * Mapped indices of the instance keys pointed to by a pointer key that is
+	 * neither local nor a return value.
+	 */
+	private final BitVectorIntSet nonLocal = new BitVectorIntSet();
+
+	/**
+	 * All nodes that own at least one local pointer key, in the order the
+	 * pointer analysis reports them; collected on first use.
+	 */
+	private Set<CGNode> nodes;
+
+	private boolean indexed = false;
+
+	public ReversePointsToIndex(PointerAnalysis pa) {
+		this.pa = pa;
+	}
+
+	/**
+	 * Reads the points-to sets on first use, so an app without any
+	 * StringBuilder to analyze does not pay for them.
+	 */
+	private void index() {
+		if (indexed) {
+			return;
+		}
+		indexed = true;
+		for (PointerKey pk : pa.getPointerKeys()) {
+			if (pk instanceof LocalPointerKey) {
+				LocalPointerKey lpk = (LocalPointerKey) pk;
+				if (!lpk.getNode().getMethod().getReference()
+						.getDeclaringClass().getClassLoader()
+						.equals(ClassLoaderReference.Application)) {
+					continue;
+				}
+				for (InstanceKey ik : pa.getPointsToSet(pk)) {
+					List<LocalPointerKey> locals = applicationLocals.get(ik);
+					if (locals == null) {
+						locals = new ArrayList<LocalPointerKey>(2);
+						applicationLocals.put(ik, locals);
+					}
+					locals.add(lpk);
+				}
+			} else if (!(pk instanceof ReturnValueKey)) {
+				OrdinalSet<InstanceKey> pointsTo = pa.getPointsToSet(pk);
+				IntSet backing = pointsTo == null ? null : pointsTo
+						.getBackingSet();
+				if (backing != null) {
+					nonLocal.addAll(backing);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the local pointer keys of application methods that may point to
+	 *         ik
+	 */
+	public List<LocalPointerKey> getApplicationLocals(InstanceKey ik) {
+		index();
+		List<LocalPointerKey> locals = applicationLocals.get(ik);
+		if (locals == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(locals);
+	}
+
+	/**
+	 * @return true if a pointer key other than a local or a return value, for
+	 *         example a field or a static, may point to ik
+	 */
+	public boolean hasNonLocalReference(InstanceKey ik) {
+		index();
+		int index = pa.getInstanceKeyMapping().getMappedIndex(ik);
+		return index >= 0 && nonLocal.contains(index);
+	}
+
+	/**
+	 * @return the nodes that own at least one local pointer key
+	 */
+	public Set<CGNode> getNodesWithLocals() {
+		if (nodes == null) {
+			nodes = new LinkedHashSet<CGNode>();
+			for (PointerKey pk : pa.getPointerKeys()) {
+				if (pk instanceof LocalPointerKey) {
+					nodes.add(((LocalPointerKey) pk).getNode());
+				}
+			}
+		}
+		return Collections.unmodifiableSet(nodes);
+	}
+}
@@ -54,12 +54,9 @@ import com.ibm.wala.ipa.callgraph.propagation.ConstantKey;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
-import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
-import com.ibm.wala.ipa.callgraph.propagation.ReturnValueKey;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAInvokeInstruction;
-import com.ibm.wala.types.ClassLoaderReference;
 
 public class StringBuilderUseAnalysis {
 	private static final Logger logger = LoggerFactory.getLogger(StringBuilderUseAnalysis.class);
@@ -70,13 +67,28 @@ public class StringBuilderUseAnalysis {
 	final Set<LocalPointerKey> localPointerKeys = new HashSet<LocalPointerKey>();
 	final List<SSAInstruction> instructions;
 	public Map<ISSABasicBlock, ISSABasicBlock> blockOrdering;
+
+	/**
+	 * Indexes pa for this one StringBuilder; to analyze several, share one
+	 * {@link ReversePointsToIndex} between them.
+	 */
 	public StringBuilderUseAnalysis(InstanceKey ik, PointerAnalysis pa) throws Exception
+	{
+		this(ik, pa, new ReversePointsToIndex(pa));
+	}
+
+	/**
+	 * @param index
+	 *            the pointer keys of pa by instance key, shared by all the
+	 *            StringBuilders of one analysis
+	 */
+	public StringBuilderUseAnalysis(InstanceKey ik, PointerAnalysis pa, ReversePointsToIndex index) throws Exception
 	{
 		assert(ik.getConcreteType().getName().toString().equals("Ljava/lang/StringBuilder"));
 //		System.out.println("Analyzing StringBuilder key "+ik);
 		this.sbik = ik;
 		this.pa = pa;
-		node = findCGNode(ik, pa);
+		node = findCGNode(ik, index);
 //		System.out.println("Found node: "+node);
 //		System.out.println("Local pointer count: "+localPointerKeys.size());
 //		for(LocalPointerKey lpk:localPointerKeys)
@@ -117,69 +129,25 @@ public class StringBuilderUseAnalysis {
 		this.blockOrdering = blockOrdering;
 	}
 
-	private CGNode findCGNode(InstanceKey ik, PointerAnalysis pa) throws Exception
+	private CGNode findCGNode(InstanceKey ik, ReversePointsToIndex index)
 	{
+		// if a non-local pointer key points to our instance key then we have to give up -- we can only analyze local pointer keys
+		if(index.hasNonLocalReference(ik))
+		{
+			logger.warn("Found non LocalPointerKey refering to our ik: "+ik);
+			return null;
+		}
 		CGNode nominatedNode = null;
-		for(PointerKey pk:pa.getPointerKeys())
+		for(LocalPointerKey lpk:index.getApplicationLocals(ik))
 		{
-			if(pk instanceof LocalPointerKey)
-			{
-				LocalPointerKey lpk = (LocalPointerKey) pk;
-				if(!lpk.getNode().getMethod().getReference().getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application))
-				{
-					//                  System.out.println("Skipping non-application pointer key "+lpk);
-					continue;
-				}
-				//                int nonPrimordialCount = 0;
-				//              boolean interestingKey = false;
-				for(InstanceKey k:pa.getPointsToSet(pk))
-				{
-					/*
-                    if(k instanceof AllocationSiteInNode)
-                    {
-                        if(((AllocationSiteInNode) k).getSite().getDeclaredType().getClassLoader().equals(ClassLoaderReference.Application))
-                        {
-                            nonPrimordialCount++;
-                        }
-                    }
-					 */
-					if(k.equals(ik))
-					{
-						//                      interestingKey = true;
-						//                      System.out.println("Found interesting key: "+lpk);
-						// make sure it's a local pointer key, and make sure that it's in just one cgnode
-						localPointerKeys.add(lpk);
-						if(nominatedNode == null)
-							nominatedNode = lpk.getNode();
-						else if(nominatedNode != lpk.getNode())
-						{
-							logger.warn("got conflicting nodes: "+nominatedNode+" <> "+lpk.getNode());
-							return null;
-						}
-					}
-				}
-				//              if(interestingKey && nonPrimordialCount > 1)
-				//              {
-				//                  System.out.println("too many ("+nonPrimordialCount+") non-primordial instance keys for pointer key "+pk);
-				//                  for(InstanceKey localKey:pa.getPointsToSet(pk))
-				//                  {
-				//                      System.out.println("\t"+localKey);
-				//                  }
-				//                  throw new Exception("can't determine which string builder to analyze for this local pointer key");
-				//              }
-			}
-			else if(pk instanceof ReturnValueKey)
-			{
-				//              System.out.println("Ignoring return value key "+pk);
-			}
-			else
+			// make sure that it's in just one cgnode
+			localPointerKeys.add(lpk);
+			if(nominatedNode == null)
+				nominatedNode = lpk.getNode();
+			else if(nominatedNode != lpk.getNode())
 			{
-				// if this pointer key points to our instance key then we have to give up -- we can only analyze local pointer keys
-				if(pa.getPointsToSet(pk).contains(ik))
-				{
-					logger.warn("Found non LocalPointerKey refering to our ik: "+pk);
-					return null;
-				}
+				logger.warn("got conflicting nodes: "+nominatedNode+" <> "+lpk.getNode());
+				return null;
 			}
 		}
 		return nominatedNode;
@@ -230,13 +198,13 @@ public class StringBuilderUseAnalysis {
 					buf.append(prefix);
 					prefixNew = true;
 				}
-				if (!input.fullPrefixKnown.contains(i)) {
+				if (!input.isFullPrefixKnown(i)) {
 					prefixFull = false;
 					break;
 				}
 			}
 			String s = buf.toString();
-			PrefixVariable retVal = new PrefixVariable();
+			PrefixVariable retVal = input.newVariable();
 			retVal.copyState(input);
 			if (prefixNew) {
 				retVal.update(instanceID, s);
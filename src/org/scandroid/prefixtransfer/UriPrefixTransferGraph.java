@@ -67,7 +67,6 @@ import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.NormalAllocationInNode;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
-import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ssa.SSAInvokeInstruction;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.util.graph.Graph;
@@ -87,6 +86,7 @@ public class UriPrefixTransferGraph implements Graph<InstanceKeySite> {
         Map<InstanceKeySite, Set<InstanceKey>> unresolvedDependencies = new HashMap<InstanceKeySite, Set<InstanceKey>>();
         ArrayList<InstanceKey> instanceKeys = new ArrayList<InstanceKey>();
         instanceKeys.addAll(pa.getInstanceKeys());
+        ReversePointsToIndex index = new ReversePointsToIndex(pa);
         for(InstanceKey k:instanceKeys)
         {
             if(k.getConcreteType().getName().toString().equals("Ljava/lang/StringBuilder"))
@@ -99,7 +99,7 @@ public class UriPrefixTransferGraph implements Graph<InstanceKeySite> {
                         StringBuilderUseAnalysis sbua;
                         try
                         {
-                            sbua = new StringBuilderUseAnalysis(k,pa);
+                            sbua = new StringBuilderUseAnalysis(k,pa,index);
                         }
                         catch(Exception e)
                         {
@@ -207,40 +207,38 @@ public class UriPrefixTransferGraph implements Graph<InstanceKeySite> {
 //          }
         }
 
-        for (Iterator<PointerKey> Ipk = pa.getPointerKeys().iterator(); Ipk.hasNext();) {
-        	PointerKey pk = Ipk.next();
-        	if (pk instanceof LocalPointerKey) {
-        		LocalPointerKey lpk = (LocalPointerKey)pk;
-        		IMethod m = lpk.getNode().getMethod();
-        		Context context = lpk.getNode().getContext();
-        		CGNode caller = (CGNode) context.get(ContextKey.CALLER);
-        		CallSiteReference csr = (CallSiteReference) context.get(ContextKey.CALLSITE);
-        		if (caller != null && caller.getMethod().getReference().getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)) {
-        			if (m.getSignature().equals("android.net.Uri.withAppendedPath(Landroid/net/Uri;Ljava/lang/String;)Landroid/net/Uri;")) {
-        				SSAInvokeInstruction invoke = (SSAInvokeInstruction) caller.getIR().getBasicBlocksForCall(csr)[0].getLastInstruction();
-        				LocalPointerKey lkey = new LocalPointerKey(caller, invoke.getUse(0));
-        				if (pa.getPointsToSet(lkey).iterator().hasNext()) {
-        					InstanceKey uriKey = pa.getPointsToSet(lkey).iterator().next();
-        					OrdinalSet<InstanceKey> points = pa.getPointsToSet(new LocalPointerKey(caller, invoke.getUse(1)));
-        					if(!points.isEmpty()) {
-        						InstanceKey stringKey = points.iterator().next();
-
-        						OrdinalSet<InstanceKey> returnSet = pa.getPointsToSet(new LocalPointerKey(caller, invoke.getReturnValue(0)));
-        						logger.debug("Sizeof returnset: " + returnSet.size() +"--"+pk);
-        						for (Iterator<InstanceKey> rIK=returnSet.iterator(); rIK.hasNext(); ) {
-        							InstanceKey returnIK = rIK.next();
-        							node = new UriAppendString(pa.getInstanceKeyMapping().getMappedIndex(returnIK), pa.getInstanceKeyMapping().getMappedIndex(uriKey), pa.getInstanceKeyMapping().getMappedIndex(stringKey));
-        							logger.debug("\t Uri.withAppendedPath(): "+ invoke + ", returnIK: " +returnIK+ ", uriKey: " + uriKey + ", stringKey: " + stringKey);
-        							logger.debug("\t returnIK_Index:"+pa.getInstanceKeyMapping().getMappedIndex(returnIK)+ ", uriKey_Index: " + pa.getInstanceKeyMapping().getMappedIndex(uriKey) + ", stringKey_Index: " + pa.getInstanceKeyMapping().getMappedIndex(stringKey));
-        							
-        							if (!nodeMap.containsKey(returnIK)) {
-        								addNode(node);
-        								nodeMap.put(returnIK, node);
-        								HashSet<InstanceKey> iks = new HashSet<InstanceKey>();
-        								iks.add(uriKey);
-        								iks.add(stringKey);
-        								unresolvedDependencies.put(node, iks);
-        							}
+        // every local of a node leads to the same call site, so look at each
+        // node only once
+        for (CGNode n : index.getNodesWithLocals()) {
+        	IMethod m = n.getMethod();
+        	Context context = n.getContext();
+        	CGNode caller = (CGNode) context.get(ContextKey.CALLER);
+        	CallSiteReference csr = (CallSiteReference) context.get(ContextKey.CALLSITE);
+        	if (caller != null && caller.getMethod().getReference().getDeclaringClass().getClassLoader().equals(ClassLoaderReference.Application)) {
+        		if (m.getSignature().equals("android.net.Uri.withAppendedPath(Landroid/net/Uri;Ljava/lang/String;)Landroid/net/Uri;")) {
+        			SSAInvokeInstruction invoke = (SSAInvokeInstruction) caller.getIR().getBasicBlocksForCall(csr)[0].getLastInstruction();
+        			LocalPointerKey lkey = new LocalPointerKey(caller, invoke.getUse(0));
+        			if (pa.getPointsToSet(lkey).iterator().hasNext()) {
+        				InstanceKey uriKey = pa.getPointsToSet(lkey).iterator().next();
+        				OrdinalSet<InstanceKey> points = pa.getPointsToSet(new LocalPointerKey(caller, invoke.getUse(1)));
+        				if(!points.isEmpty()) {
+        					InstanceKey stringKey = points.iterator().next();
+
+        					OrdinalSet<InstanceKey> returnSet = pa.getPointsToSet(new LocalPointerKey(caller, invoke.getReturnValue(0)));
+        					logger.debug("Sizeof returnset: " + returnSet.size() +"--"+n);
+        					for (Iterator<InstanceKey> rIK=returnSet.iterator(); rIK.hasNext(); ) {
+        						InstanceKey returnIK = rIK.next();
+        						node = new UriAppendString(pa.getInstanceKeyMapping().getMappedIndex(returnIK), pa.getInstanceKeyMapping().getMappedIndex(uriKey), pa.getInstanceKeyMapping().getMappedIndex(stringKey));
+        						logger.debug("\t Uri.withAppendedPath(): "+ invoke + ", returnIK: " +returnIK+ ", uriKey: " + uriKey + ", stringKey: " + stringKey);
+        						logger.debug("\t returnIK_Index:"+pa.getInstanceKeyMapping().getMappedIndex(returnIK)+ ", uriKey_Index: " + pa.getInstanceKeyMapping().getMappedIndex(uriKey) + ", stringKey_Index: " + pa.getInstanceKeyMapping().getMappedIndex(stringKey));
+        						
+        						if (!nodeMap.containsKey(returnIK)) {
+        							addNode(node);
+        							nodeMap.put(returnIK, node);
+        							HashSet<InstanceKey> iks = new HashSet<InstanceKey>();
+        							iks.add(uriKey);
+        							iks.add(stringKey);
+        							unresolvedDependencies.put(node, iks);
         						}
         					}
         				}
@@ -55,7 +55,7 @@ public class ConstantString extends InstanceKeySite {
     @Override
     public PrefixVariable propagate(PrefixVariable input) {
 //      System.out.println("Propagating at: " + instanceID + " (" + constantValue + ")");
-        PrefixVariable retVal = new PrefixVariable();
+        PrefixVariable retVal = input.newVariable();
         retVal.update(instanceID, constantValue);
         retVal.include(instanceID);
         return retVal;
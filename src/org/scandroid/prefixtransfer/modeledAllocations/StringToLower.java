@@ -59,7 +59,7 @@ public class StringToLower extends InstanceKeySite {
     @Override
     public PrefixVariable propagate(PrefixVariable input) {
         // TODO Auto-generated method stub
-        PrefixVariable retVal = new PrefixVariable();
+        PrefixVariable retVal = input.newVariable();
         String prefix = null;
         for(Integer dep:dependencies)
         {
@@ -57,12 +57,12 @@ public class UriAppendString extends InstanceKeySite {
     @Override
     public PrefixVariable propagate(PrefixVariable input) {
 //      System.out.println("Propagating at: " + instanceID + " (" + constantValue + ")");
-        PrefixVariable retVal = new PrefixVariable();
+        PrefixVariable retVal = input.newVariable();
         retVal.copyState(input);
         String prefix = input.getPrefix(uriInstanceID);
-        if (input.fullPrefixKnown.contains(uriInstanceID)) {
+        if (input.isFullPrefixKnown(uriInstanceID)) {
             retVal.update(instanceID, prefix + "/" + input.getPrefix(stringInstanceID));
-            if (input.fullPrefixKnown.contains(stringInstanceID))
+            if (input.isFullPrefixKnown(stringInstanceID))
                 retVal.include(instanceID);
         }
         else retVal.update(instanceID, prefix);
@@ -55,11 +55,11 @@ public class UriParseString extends InstanceKeySite {
     @Override
     public PrefixVariable propagate(PrefixVariable input) {
 //      System.out.println("Propagating at: " + instanceID + " (" + constantValue + ")");
-        PrefixVariable retVal = new PrefixVariable();
+        PrefixVariable retVal = input.newVariable();
         retVal.copyState(input);
         String prefix = input.getPrefix(stringInstanceID);
         retVal.update(instanceID, prefix);
-        if (input.fullPrefixKnown.contains(stringInstanceID))
+        if (input.isFullPrefixKnown(stringInstanceID))
             retVal.include(instanceID);
         return retVal;
     }
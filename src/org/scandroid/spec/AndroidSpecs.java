@@ -44,14 +44,11 @@ import java.util.List;
 import java.util.Set;
 
 import org.scandroid.model.AppModelMethod;
-import org.scandroid.util.LoaderUtils;
 
 
 
 import com.ibm.wala.classLoader.IClass;
 import com.ibm.wala.classLoader.IMethod;
-import com.ibm.wala.ipa.cha.ClassHierarchy;
-import com.ibm.wala.types.ClassLoaderReference;
 
 public class AndroidSpecs implements ISpecs {
 	private AppModelMethod appEntrySummary;
@@ -294,7 +291,11 @@ public class AndroidSpecs implements ISpecs {
 //			callBacks = new MethodNamePattern[] {};
 //		return callBacks;
 //	}
-	public static void addPossibleListeners(ClassHierarchy cha) {
+	/**
+	 * Collect the callbacks of the given Android library classes: every
+	 * method of a *Listener class, and the on* methods of the others.
+	 */
+	public static void addPossibleListeners(Iterable<IClass> libraryClasses) {
 		Set<String> ignoreMethods = new HashSet<String>();
 		ignoreMethods.add("<init>");
 		ignoreMethods.add("<clinit>");
@@ -318,11 +319,7 @@ public class AndroidSpecs implements ISpecs {
 			moreEntryPointSpecs.add(mnp);
 		}
 
-		for (IClass ic:cha) {
-			if (!LoaderUtils.fromLoader(ic, ClassLoaderReference.Application)) {
-				continue;
-			}
-
+		for (IClass ic:libraryClasses) {
 			//finds all *Listener classes and fetches all methods for the listener
 			if (ic.getName().getClassName().toString().endsWith("Listener")) {
 				for (IMethod im: ic.getAllMethods()) {
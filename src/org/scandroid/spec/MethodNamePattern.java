@@ -40,18 +40,11 @@ package org.scandroid.spec;
 
 import java.io.UTFDataFormatException;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.Set;
 
-import com.ibm.wala.classLoader.IClass;
+import com.google.common.base.Objects;
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
-import com.ibm.wala.types.ClassLoaderReference;
-import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.types.MethodReference;
-import com.ibm.wala.types.TypeReference;
-import com.ibm.wala.util.collections.HashSetFactory;
-import com.ibm.wala.util.strings.Atom;
 
 public class MethodNamePattern {
 	final private String className;
@@ -60,57 +53,31 @@ public class MethodNamePattern {
 
 	final private String descriptor;  // null = match any types
 
+	// patterns are looked up by value in MethodTargetIndex
+	final private int hashCode;
+
 	public MethodNamePattern(String c, String m, String d) {
 		className = c;
 		memberName = m;
 		descriptor = d;
+		hashCode = Objects.hashCode(c, m, d);
 	}
 
 	public MethodNamePattern(String c, String m) {
-		className = c;
-		memberName = m;
-		descriptor = null;
-	}
-
-	private Collection<IMethod> lookupMethods(IClass c) {
-		Collection<IMethod> matching = new LinkedList<IMethod>();
-		Atom atom = Atom.findOrCreateUnicodeAtom(memberName);
-		Descriptor desc = descriptor == null ? null : Descriptor.findOrCreateUTF8(descriptor);
-		Collection<IMethod> allMethods = c.getAllMethods();
-		for(IMethod m: allMethods) {
-			if(m.getName().equals(atom) && (desc == null || m.getDescriptor().equals(desc))) {
-				matching.add(m);
-			}
-		}
-		return matching;
+		this(c, m, null);
 	}
 
 	/**
 	 * Returns a Collection of IMethods which are found in the following 
 	 * ClassLoaders: Application, Primordial, Extension
+	 * 
+	 * Lookups go through the {@link MethodTargetIndex} of <code>cha</code>, so
+	 * the returned collection is shared and must not be modified.
 	 * @param cha
 	 * @return
 	 */
 	public Collection<IMethod> getPossibleTargets(IClassHierarchy cha) {
-		Collection<IMethod> matching = new LinkedList<IMethod>();
-		IClass c;
-		c = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, className));
-		if (c != null)
-			matching.addAll(lookupMethods(c));
-		c = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Primordial, className));
-		if (c != null)
-			matching.addAll(lookupMethods(c));
-		c = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Extension, className));
-		if (c != null)
-			matching.addAll(lookupMethods(c));
-
-
-		Set<IMethod> targets = HashSetFactory.make();
-		for(IMethod im:matching) {
-			targets.addAll(cha.getPossibleTargets(im.getReference()));
-		}
-
-		return targets;
+		return MethodTargetIndex.forHierarchy(cha).getPossibleTargets(this);
 	}
 
 	@Override
@@ -123,6 +90,24 @@ public class MethodNamePattern {
 
 	}
 	
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof MethodNamePattern))
+			return false;
+		MethodNamePattern other = (MethodNamePattern) obj;
+		return hashCode == other.hashCode
+				&& Objects.equal(className, other.className)
+				&& Objects.equal(memberName, other.memberName)
+				&& Objects.equal(descriptor, other.descriptor);
+	}
+
 	public String getDescriptor() {
 		return String.format("%s.%s%s", className, memberName, descriptor == null ? "" : descriptor);
 	}
@@ -135,6 +120,13 @@ public class MethodNamePattern {
 		return memberName;
 	}
 
+	/**
+	 * @return the method descriptor, or <code>null</code> to match any
+	 */
+	public String getMethodDescriptor() {
+		return descriptor;
+	}
+
 	public static MethodNamePattern patternForReference(MethodReference methodRef)
 			throws UTFDataFormatException {
 		String className = methodRef.getDeclaringClass().getName().toUnicodeString();
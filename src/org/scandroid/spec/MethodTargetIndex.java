@@ -0,0 +1,208 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.spec;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * Resolves {@link MethodNamePattern}s against a class hierarchy, remembering
+ * the methods of each class by name and the targets of each pattern, so that
+ * looking up the same pattern again is a single map lookup.
+ * 
+ * There is one index per class hierarchy, shared by every spec. The index
+ * starts over if classes are added to the hierarchy, as happens when the
+ * call graph builder synthesizes classes.
+ * 
+ * The index refers to its hierarchy, both directly and through the classes
+ * it holds, so the cache below only keeps it weakly: it is kept alive by the
+ * {@link org.scandroid.util.AndroidAnalysisContext} owning the hierarchy,
+ * and goes away with it.
+ */
+public final class MethodTargetIndex {
+	private static final ClassLoaderReference[] LOADERS = {
+			ClassLoaderReference.Application, ClassLoaderReference.Primordial,
+			ClassLoaderReference.Extension };
+
+	private static final Function<IMethod, Atom> METHOD_NAME = new Function<IMethod, Atom>() {
+		@Override
+		public Atom apply(IMethod m) {
+			return m.getName();
+		}
+	};
+
+	private static final LoadingCache<IClassHierarchy, MethodTargetIndex> indices = CacheBuilder
+			.newBuilder().weakKeys().weakValues()
+			.build(new CacheLoader<IClassHierarchy, MethodTargetIndex>() {
+				@Override
+				public MethodTargetIndex load(IClassHierarchy cha) {
+					return new MethodTargetIndex(cha);
+				}
+			});
+
+	/**
+	 * @return the index shared by all lookups in <code>cha</code>, for as
+	 *         long as someone holds on to it
+	 */
+	public static MethodTargetIndex forHierarchy(IClassHierarchy cha) {
+		return indices.getUnchecked(cha);
+	}
+
+	private final IClassHierarchy cha;
+
+	private volatile Tables tables;
+
+	/**
+	 * The tables filled while the hierarchy has a given number of classes.
+	 * When it grows a fresh instance replaces this one, so a lookup which
+	 * started before never fills the new tables with a stale result.
+	 */
+	private static final class Tables {
+		final int numberOfClasses;
+
+		/**
+		 * all methods of a class, including inherited ones, by name
+		 */
+		final ConcurrentMap<IClass, ImmutableListMultimap<Atom, IMethod>> methodsByName = Maps
+				.newConcurrentMap();
+
+		/**
+		 * targets of each pattern
+		 */
+		final ConcurrentMap<MethodNamePattern, Set<IMethod>> targets = Maps
+				.newConcurrentMap();
+
+		Tables(int numberOfClasses) {
+			this.numberOfClasses = numberOfClasses;
+		}
+	}
+
+	private MethodTargetIndex(IClassHierarchy cha) {
+		this.cha = cha;
+		this.tables = new Tables(cha.getNumberOfClasses());
+	}
+
+	private Tables tables() {
+		Tables t = tables;
+		if (t.numberOfClasses != cha.getNumberOfClasses()) {
+			synchronized (this) {
+				t = tables;
+				if (t.numberOfClasses != cha.getNumberOfClasses()) {
+					t = new Tables(cha.getNumberOfClasses());
+					tables = t;
+				}
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * @return the methods that an invocation of a method matching
+	 *         <code>pattern</code> could dispatch to, looking for the class
+	 *         in the Application, Primordial and Extension loaders
+	 */
+	public Set<IMethod> getPossibleTargets(MethodNamePattern pattern) {
+		final Tables t = tables();
+		Set<IMethod> result = t.targets.get(pattern);
+		if (result == null) {
+			result = Collections.unmodifiableSet(computePossibleTargets(t,
+					pattern.getClassName(), pattern.getMemberName(),
+					pattern.getMethodDescriptor()));
+			Set<IMethod> other = t.targets.putIfAbsent(pattern, result);
+			if (other != null) {
+				result = other;
+			}
+		}
+		return result;
+	}
+
+	private Set<IMethod> computePossibleTargets(Tables t, String className,
+			String memberName, String descriptor) {
+		final Atom name = Atom.findOrCreateUnicodeAtom(memberName);
+		final Descriptor desc = descriptor == null ? null : Descriptor
+				.findOrCreateUTF8(descriptor);
+
+		Set<IMethod> result = HashSetFactory.make();
+		for (ClassLoaderReference loader : LOADERS) {
+			IClass c = cha.lookupClass(TypeReference.findOrCreate(loader,
+					className));
+			if (c == null) {
+				continue;
+			}
+			for (IMethod m : methodsByName(t, c).get(name)) {
+				if (desc == null || m.getDescriptor().equals(desc)) {
+					result.addAll(cha.getPossibleTargets(m.getReference()));
+				}
+			}
+		}
+		return result;
+	}
+
+	private static ImmutableListMultimap<Atom, IMethod> methodsByName(
+			Tables t, IClass c) {
+		ImmutableListMultimap<Atom, IMethod> methods = t.methodsByName.get(c);
+		if (methods == null) {
+			methods = Multimaps.index(c.getAllMethods(), METHOD_NAME);
+			ImmutableListMultimap<Atom, IMethod> other = t.methodsByName
+					.putIfAbsent(c, methods);
+			if (other != null) {
+				methods = other;
+			}
+		}
+		return methods;
+	}
+}
@@ -0,0 +1,467 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.synthmethod;
+
+import static org.scandroid.synthmethod.BinarySummaryWriter.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.ssa.ConstantValue;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAInstructionFactory;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Descriptor;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * Reads summaries written by {@link BinarySummaryWriter}.
+ * 
+ * Opening a file only reads its tables; the summary of a method is decoded
+ * from the image the first time it is asked for, and then kept. Class
+ * loaders are resolved by name against the scope, as the
+ * XMLMethodSummaryReader does.
+ */
+public class BinarySummaryReader {
+
+	private static final SSAInstructionFactory insts = Language.JAVA
+			.instructionFactory();
+
+	private final ByteBuffer image;
+	private final AnalysisScope scope;
+
+	private final int[] stringOffsets;
+	private final String[] strings;
+
+	private final Map<MethodReference, Integer> records;
+	private final Set<TypeReference> allocatable;
+	private final Set<Atom> ignored;
+	private final ConcurrentMap<MethodReference, MethodSummary> summaries =
+			new ConcurrentHashMap<MethodReference, MethodSummary>();
+
+	/**
+	 * Map a summary file.
+	 */
+	public BinarySummaryReader(File file, AnalysisScope scope)
+			throws IOException {
+		this(map(file), scope);
+	}
+
+	/**
+	 * Read a summary file from a stream, which is consumed but not closed.
+	 */
+	public BinarySummaryReader(InputStream in, AnalysisScope scope)
+			throws IOException {
+		this(ByteBuffer.wrap(IOUtils.toByteArray(in)), scope);
+	}
+
+	public BinarySummaryReader(ByteBuffer image, AnalysisScope scope)
+			throws IOException {
+		this.image = image;
+		this.scope = scope;
+
+		if (image.limit() < 12 || image.getInt(0) != MAGIC) {
+			throw new IOException("not a binary summary file");
+		}
+		if (image.getInt(4) != VERSION) {
+			throw new IOException("unsupported summary file version: "
+					+ image.getInt(4));
+		}
+
+		int[] pos = { image.getInt(image.limit() - 4) };
+		stringOffsets = new int[readInt(pos)];
+		strings = new String[stringOffsets.length];
+		for (int i = 0; i < stringOffsets.length; i++) {
+			stringOffsets[i] = pos[0];
+			int length = readUleb(pos);
+			pos[0] += length;
+		}
+
+		allocatable = Sets.newHashSet();
+		for (int n = readInt(pos); n > 0; n--) {
+			allocatable.add(TypeReference.findOrCreate(loader(readInt(pos)),
+					string(readInt(pos))));
+		}
+		ignored = Sets.newHashSet();
+		for (int n = readInt(pos); n > 0; n--) {
+			ignored.add(Atom.findOrCreateUnicodeAtom(string(readInt(pos))));
+		}
+
+		int methods = readInt(pos);
+		records = Maps.newHashMapWithExpectedSize(methods);
+		for (int i = 0; i < methods; i++) {
+			TypeReference declaringClass = TypeReference.findOrCreate(
+					loader(readInt(pos)), string(readInt(pos)));
+			Atom name = Atom.findOrCreateUnicodeAtom(string(readInt(pos)));
+			Descriptor desc = Descriptor.findOrCreateUTF8(string(readInt(pos)));
+			records.put(MethodReference.findOrCreate(declaringClass, name, desc),
+					readInt(pos));
+		}
+	}
+
+	/**
+	 * Whether a stream holds a binary summary file. The stream must support
+	 * mark and is reset afterwards.
+	 */
+	public static boolean isBinarySummary(InputStream in) throws IOException {
+		in.mark(4);
+		try {
+			int magic = 0;
+			for (int i = 0; i < 4; i++) {
+				int b = in.read();
+				if (b < 0) {
+					return false;
+				}
+				magic = (magic << 8) | b;
+			}
+			return magic == MAGIC;
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * The methods that have a summary in this file.
+	 */
+	public Set<MethodReference> getMethods() {
+		return Collections.unmodifiableSet(records.keySet());
+	}
+
+	/**
+	 * The summary of a method, decoded on first use.
+	 * 
+	 * @return the summary, or null if the file has none for the method
+	 */
+	public MethodSummary getSummary(MethodReference method) {
+		MethodSummary summary = summaries.get(method);
+		if (summary == null) {
+			Integer offset = records.get(method);
+			if (offset == null) {
+				return null;
+			}
+			summary = readSummary(method, offset);
+			MethodSummary prev = summaries.putIfAbsent(method, summary);
+			if (prev != null) {
+				summary = prev;
+			}
+		}
+		return summary;
+	}
+
+	/**
+	 * All summaries, as a map that decodes each of them when it is looked
+	 * up, in the form XMLMethodSummaryReader returns them.
+	 */
+	public Map<MethodReference, MethodSummary> getSummaries() {
+		return new AbstractMap<MethodReference, MethodSummary>() {
+			@Override
+			public MethodSummary get(Object key) {
+				return key instanceof MethodReference ? getSummary((MethodReference) key)
+						: null;
+			}
+
+			@Override
+			public boolean containsKey(Object key) {
+				return records.containsKey(key);
+			}
+
+			@Override
+			public int size() {
+				return records.size();
+			}
+
+			@Override
+			public Set<Map.Entry<MethodReference, MethodSummary>> entrySet() {
+				return new AbstractSet<Map.Entry<MethodReference, MethodSummary>>() {
+					@Override
+					public Iterator<Map.Entry<MethodReference, MethodSummary>> iterator() {
+						return Iterators.transform(records.keySet().iterator(),
+								new Function<MethodReference, Map.Entry<MethodReference, MethodSummary>>() {
+									@Override
+									public Map.Entry<MethodReference, MethodSummary> apply(
+											MethodReference method) {
+										return Maps.immutableEntry(method,
+												getSummary(method));
+									}
+								});
+					}
+
+					@Override
+					public int size() {
+						return records.size();
+					}
+				};
+			}
+		};
+	}
+
+	public Set<TypeReference> getAllocatableClasses() {
+		return Collections.unmodifiableSet(allocatable);
+	}
+
+	public Set<Atom> getIgnoredPackages() {
+		return Collections.unmodifiableSet(ignored);
+	}
+
+	private MethodSummary readSummary(MethodReference method, int offset) {
+		int[] pos = { offset };
+		MethodSummary summary = new MethodSummary(method);
+
+		int flags = readUleb(pos);
+		summary.setStatic((flags & F_STATIC) != 0);
+		summary.setFactory((flags & F_FACTORY) != 0);
+		if ((flags & F_POISON) != 0) {
+			summary.addPoison(string(readUleb(pos)));
+			summary.setPoisonLevel(image.get(pos[0]++));
+		}
+
+		for (int n = readUleb(pos); n > 0; n--) {
+			int valueNumber = readValue(pos);
+			summary.addConstant(valueNumber, new ConstantValue(readConstant(pos)));
+		}
+
+		for (int n = readUleb(pos); n > 0; n--) {
+			summary.addStatement(readStatement(pos));
+		}
+		return summary;
+	}
+
+	private SSAInstruction readStatement(int[] pos) {
+		int op = readUleb(pos);
+		switch (op) {
+		case OP_NEW: {
+			int def = readValue(pos);
+			TypeReference type = readType(pos);
+			NewSiteReference site = NewSiteReference.make(readUleb(pos), type);
+			int[] sizes = readValues(pos);
+			return sizes.length == 0 ? insts.NewInstruction(def, site)
+					: insts.NewInstruction(def, site, sizes);
+		}
+		case OP_CALL: {
+			MethodReference target = readMethod(pos);
+			IInvokeInstruction.Dispatch dispatch = IInvokeInstruction.Dispatch
+					.values()[readUleb(pos)];
+			CallSiteReference site = CallSiteReference.make(readUleb(pos),
+					target, dispatch);
+			int def = readValue(pos);
+			int[] params = readValues(pos);
+			int exception = readValue(pos);
+			return def == -1 ? insts.InvokeInstruction(params, exception, site)
+					: insts.InvokeInstruction(def, params, exception, site);
+		}
+		case OP_GETFIELD:
+		case OP_GETSTATIC: {
+			FieldReference field = readField(pos);
+			int def = readValue(pos);
+			return op == OP_GETSTATIC ? insts.GetInstruction(def, field)
+					: insts.GetInstruction(def, readValue(pos), field);
+		}
+		case OP_PUTFIELD:
+		case OP_PUTSTATIC: {
+			FieldReference field = readField(pos);
+			int value = readValue(pos);
+			return op == OP_PUTSTATIC ? insts.PutInstruction(value, field)
+					: insts.PutInstruction(readValue(pos), value, field);
+		}
+		case OP_RETURN: {
+			int result = readValue(pos);
+			boolean primitive = image.get(pos[0]++) != 0;
+			return result == -1 ? insts.ReturnInstruction() : insts
+					.ReturnInstruction(result, primitive);
+		}
+		case OP_THROW:
+			return insts.ThrowInstruction(readValue(pos));
+		case OP_AALOAD: {
+			TypeReference type = readType(pos);
+			int def = readValue(pos);
+			int ref = readValue(pos);
+			return insts.ArrayLoadInstruction(def, ref, readValue(pos), type);
+		}
+		case OP_AASTORE: {
+			TypeReference type = readType(pos);
+			int ref = readValue(pos);
+			int index = readValue(pos);
+			return insts.ArrayStoreInstruction(ref, index, readValue(pos), type);
+		}
+		case OP_PHI: {
+			int def = readValue(pos);
+			return insts.PhiInstruction(def, readValues(pos));
+		}
+		default:
+			throw new IllegalStateException("bad summary statement " + op
+					+ " at " + (pos[0] - 1));
+		}
+	}
+
+	private Object readConstant(int[] pos) {
+		int tag = readUleb(pos);
+		switch (tag) {
+		case C_NULL:
+			return null;
+		case C_INT:
+			return Integer.valueOf(readUleb(pos));
+		case C_LONG:
+			return Long.valueOf(readLong(pos));
+		case C_FLOAT:
+			return Float.valueOf(Float.intBitsToFloat(readUleb(pos)));
+		case C_DOUBLE:
+			return Double.valueOf(Double.longBitsToDouble(readLong(pos)));
+		case C_BOOLEAN:
+			return Boolean.valueOf(readUleb(pos) != 0);
+		case C_STRING:
+			return string(readUleb(pos));
+		default:
+			throw new IllegalStateException("bad summary constant " + tag);
+		}
+	}
+
+	private MethodReference readMethod(int[] pos) {
+		TypeReference declaringClass = readType(pos);
+		Atom name = Atom.findOrCreateUnicodeAtom(string(readUleb(pos)));
+		Descriptor desc = Descriptor.findOrCreateUTF8(string(readUleb(pos)));
+		return MethodReference.findOrCreate(declaringClass, name, desc);
+	}
+
+	private FieldReference readField(int[] pos) {
+		TypeReference declaringClass = readType(pos);
+		Atom name = Atom.findOrCreateUnicodeAtom(string(readUleb(pos)));
+		return FieldReference.findOrCreate(declaringClass, name, readType(pos));
+	}
+
+	private TypeReference readType(int[] pos) {
+		int loader = readUleb(pos);
+		return TypeReference.findOrCreate(loader(loader), string(readUleb(pos)));
+	}
+
+	private ClassLoaderReference loader(int string) {
+		return scope.getLoader(Atom.findOrCreateUnicodeAtom(string(string)));
+	}
+
+	private int[] readValues(int[] pos) {
+		int[] values = new int[readUleb(pos)];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = readValue(pos);
+		}
+		return values;
+	}
+
+	private int readValue(int[] pos) {
+		return readUleb(pos) - 1;
+	}
+
+	private long readLong(int[] pos) {
+		long high = readUleb(pos) & 0xffffffffL;
+		return (high << 32) | (readUleb(pos) & 0xffffffffL);
+	}
+
+	private int readInt(int[] pos) {
+		int i = image.getInt(pos[0]);
+		pos[0] += 4;
+		return i;
+	}
+
+	private int readUleb(int[] pos) {
+		int result = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = image.get(pos[0]++) & 0xff;
+			result |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0 && shift < 35);
+		return result;
+	}
+
+	private String string(int i) {
+		String s = strings[i];
+		if (s == null) {
+			int[] pos = { stringOffsets[i] };
+			byte[] bytes = new byte[readUleb(pos)];
+			for (int j = 0; j < bytes.length; j++) {
+				bytes[j] = image.get(pos[0] + j);
+			}
+			try {
+				s = new String(bytes, "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException(e);
+			}
+			strings[i] = s;
+		}
+		return s;
+	}
+
+	private static ByteBuffer map(File f) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(f, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();
+		}
+	}
+}
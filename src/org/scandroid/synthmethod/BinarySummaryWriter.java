@@ -0,0 +1,430 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.synthmethod;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.ssa.ConstantValue;
+import com.ibm.wala.ssa.SSAArrayLoadInstruction;
+import com.ibm.wala.ssa.SSAArrayStoreInstruction;
+import com.ibm.wala.ssa.SSAGetInstruction;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAInvokeInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.ssa.SSAPhiInstruction;
+import com.ibm.wala.ssa.SSAPutInstruction;
+import com.ibm.wala.ssa.SSAReturnInstruction;
+import com.ibm.wala.ssa.SSAThrowInstruction;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * Streams method summaries to a compact binary file that
+ * {@link BinarySummaryReader} can load one method at a time.
+ * 
+ * Each summary is encoded as soon as it is added and only the string table
+ * and the method index are kept until {@link #close()}. The layout is:
+ * 
+ * <pre>
+ * int magic, int version
+ * one record per method, in the order they were added
+ * string table:  int count, (uleb length, UTF-8 bytes) per string
+ * allocatable:   int count, (int loader, int type) per class
+ * ignored:       int count, int package per package
+ * method index:  int count, (int loader, int class, int name,
+ *                int descriptor, int record offset) per method
+ * int offset of the string table
+ * </pre>
+ * 
+ * Ints in the tables are big-endian; records use unsigned LEB128 numbers,
+ * value numbers are stored plus one so that -1 encodes as 0, and every name
+ * or type in a record is an index into the string table. Unlike the XML
+ * format, value numbers are kept as they are in the summary.
+ * 
+ * Summaries may only use the statements that {@link SSAtoXMLVisitor} can
+ * write, plus the array stores found in the WALA native summaries.
+ */
+public class BinarySummaryWriter {
+
+	final static int MAGIC = 0x5343534d; // "SCSM"
+	final static int VERSION = 1;
+
+	//
+	// Method flags
+	//
+	final static int F_STATIC = 1;
+	final static int F_FACTORY = 2;
+	final static int F_POISON = 4;
+
+	//
+	// Statement opcodes
+	//
+	final static int OP_NEW = 1;
+	final static int OP_CALL = 2;
+	final static int OP_GETFIELD = 3;
+	final static int OP_GETSTATIC = 4;
+	final static int OP_PUTFIELD = 5;
+	final static int OP_PUTSTATIC = 6;
+	final static int OP_RETURN = 7;
+	final static int OP_THROW = 8;
+	final static int OP_AALOAD = 9;
+	final static int OP_AASTORE = 10;
+	final static int OP_PHI = 11;
+
+	//
+	// Constant tags
+	//
+	final static int C_NULL = 0;
+	final static int C_INT = 1;
+	final static int C_LONG = 2;
+	final static int C_FLOAT = 3;
+	final static int C_DOUBLE = 4;
+	final static int C_BOOLEAN = 5;
+	final static int C_STRING = 6;
+
+	private final DataOutputStream out;
+	private final Map<String, Integer> strings = Maps.newLinkedHashMap();
+	private final List<int[]> index = Lists.newArrayList();
+	private final Set<TypeReference> allocatable = Sets.newLinkedHashSet();
+	private final Set<Atom> ignored = Sets.newLinkedHashSet();
+
+	// the record being encoded, so that a failed summary leaves no trace
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+	private boolean closed = false;
+
+	public BinarySummaryWriter(OutputStream out) throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(out));
+		this.out.writeInt(MAGIC);
+		this.out.writeInt(VERSION);
+	}
+
+	/**
+	 * Append a summary to the file.
+	 * 
+	 * @throws SSASerializationException
+	 *             if the summary contains a statement that cannot be
+	 *             written; nothing is written for it in that case
+	 */
+	public void add(MethodSummary summary) throws IOException {
+		checkOpen();
+		record.reset();
+
+		int flags = 0;
+		if (summary.isStatic()) {
+			flags |= F_STATIC;
+		}
+		if (summary.isFactory()) {
+			flags |= F_FACTORY;
+		}
+		if (summary.hasPoison()) {
+			flags |= F_POISON;
+		}
+		writeUleb(flags);
+		if (summary.hasPoison()) {
+			writeString(summary.getPoison());
+			record.write(summary.getPoisonLevel());
+		}
+
+		Map<Integer, ConstantValue> constants = summary.getConstants();
+		if (constants == null) {
+			writeUleb(0);
+		} else {
+			writeUleb(constants.size());
+			for (Map.Entry<Integer, ConstantValue> e : constants.entrySet()) {
+				writeValue(e.getKey());
+				writeConstant(e.getValue().getValue());
+			}
+		}
+
+		SSAInstruction[] statements = summary.getStatements();
+		writeUleb(statements.length);
+		for (SSAInstruction inst : statements) {
+			writeStatement(inst);
+		}
+
+		MethodReference method = (MethodReference) summary.getMethod();
+		TypeReference declaringClass = method.getDeclaringClass();
+		index.add(new int[] {
+				intern(declaringClass.getClassLoader().getName().toString()),
+				intern(declaringClass.getName().toString()),
+				intern(method.getName().toString()),
+				intern(method.getDescriptor().toString()), out.size() });
+		record.writeTo(out);
+	}
+
+	/**
+	 * Classes that the analysis may allocate on behalf of the summaries.
+	 */
+	public void addAllocatable(TypeReference type) {
+		checkOpen();
+		intern(type.getClassLoader().getName().toString());
+		intern(type.getName().toString());
+		allocatable.add(type);
+	}
+
+	/**
+	 * Packages whose methods the analysis should skip.
+	 */
+	public void addIgnoredPackage(Atom pkg) {
+		checkOpen();
+		intern(pkg.toString());
+		ignored.add(pkg);
+	}
+
+	/**
+	 * Write the tables and close the underlying stream.
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			int tablesOffset = out.size();
+			out.writeInt(strings.size());
+			for (String s : strings.keySet()) {
+				byte[] bytes = s.getBytes("UTF-8");
+				writeUleb(out, bytes.length);
+				out.write(bytes);
+			}
+			out.writeInt(allocatable.size());
+			for (TypeReference type : allocatable) {
+				out.writeInt(intern(type.getClassLoader().getName().toString()));
+				out.writeInt(intern(type.getName().toString()));
+			}
+			out.writeInt(ignored.size());
+			for (Atom pkg : ignored) {
+				out.writeInt(intern(pkg.toString()));
+			}
+			out.writeInt(index.size());
+			for (int[] entry : index) {
+				for (int i : entry) {
+					out.writeInt(i);
+				}
+			}
+			out.writeInt(tablesOffset);
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeStatement(SSAInstruction inst) {
+		if (inst instanceof SSANewInstruction) {
+			SSANewInstruction newInst = (SSANewInstruction) inst;
+			writeUleb(OP_NEW);
+			writeValue(newInst.getDef());
+			writeType(newInst.getConcreteType());
+			writeUleb(newInst.getNewSite().getProgramCounter());
+			writeUleb(newInst.getNumberOfUses());
+			for (int i = 0; i < newInst.getNumberOfUses(); i++) {
+				writeValue(newInst.getUse(i));
+			}
+		} else if (inst instanceof SSAInvokeInstruction) {
+			SSAInvokeInstruction call = (SSAInvokeInstruction) inst;
+			if (!(call.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+				throw new SSASerializationException("Unsupported dispatch: "
+						+ call.getInvocationCode());
+			}
+			writeUleb(OP_CALL);
+			writeMethod(call.getDeclaredTarget());
+			writeUleb(((IInvokeInstruction.Dispatch) call.getInvocationCode())
+					.ordinal());
+			writeUleb(call.getProgramCounter());
+			writeValue(call.getNumberOfReturnValues() > 0 ? call.getDef() : -1);
+			writeUleb(call.getNumberOfParameters());
+			for (int i = 0; i < call.getNumberOfParameters(); i++) {
+				writeValue(call.getUse(i));
+			}
+			writeValue(call.getException());
+		} else if (inst instanceof SSAGetInstruction) {
+			SSAGetInstruction get = (SSAGetInstruction) inst;
+			writeUleb(get.isStatic() ? OP_GETSTATIC : OP_GETFIELD);
+			writeField(get.getDeclaredField());
+			writeValue(get.getDef());
+			if (!get.isStatic()) {
+				writeValue(get.getRef());
+			}
+		} else if (inst instanceof SSAPutInstruction) {
+			SSAPutInstruction put = (SSAPutInstruction) inst;
+			writeUleb(put.isStatic() ? OP_PUTSTATIC : OP_PUTFIELD);
+			writeField(put.getDeclaredField());
+			writeValue(put.getVal());
+			if (!put.isStatic()) {
+				writeValue(put.getRef());
+			}
+		} else if (inst instanceof SSAReturnInstruction) {
+			SSAReturnInstruction ret = (SSAReturnInstruction) inst;
+			writeUleb(OP_RETURN);
+			writeValue(ret.returnsVoid() ? -1 : ret.getResult());
+			record.write(ret.returnsPrimitiveType() ? 1 : 0);
+		} else if (inst instanceof SSAThrowInstruction) {
+			writeUleb(OP_THROW);
+			writeValue(((SSAThrowInstruction) inst).getException());
+		} else if (inst instanceof SSAArrayLoadInstruction) {
+			SSAArrayLoadInstruction load = (SSAArrayLoadInstruction) inst;
+			writeUleb(OP_AALOAD);
+			writeType(load.getElementType());
+			writeValue(load.getDef());
+			writeValue(load.getArrayRef());
+			writeValue(load.getIndex());
+		} else if (inst instanceof SSAArrayStoreInstruction) {
+			SSAArrayStoreInstruction store = (SSAArrayStoreInstruction) inst;
+			writeUleb(OP_AASTORE);
+			writeType(store.getElementType());
+			writeValue(store.getArrayRef());
+			writeValue(store.getIndex());
+			writeValue(store.getValue());
+		} else if (inst instanceof SSAPhiInstruction) {
+			SSAPhiInstruction phi = (SSAPhiInstruction) inst;
+			writeUleb(OP_PHI);
+			writeValue(phi.getDef());
+			writeUleb(phi.getNumberOfUses());
+			for (int i = 0; i < phi.getNumberOfUses(); i++) {
+				writeValue(phi.getUse(i));
+			}
+		} else {
+			throw new SSASerializationException("Unsupported: " + inst);
+		}
+	}
+
+	private void writeConstant(Object value) {
+		if (value == null) {
+			writeUleb(C_NULL);
+		} else if (value instanceof Integer) {
+			writeUleb(C_INT);
+			writeUleb(((Integer) value).intValue());
+		} else if (value instanceof Long) {
+			writeUleb(C_LONG);
+			writeLong(((Long) value).longValue());
+		} else if (value instanceof Float) {
+			writeUleb(C_FLOAT);
+			writeUleb(Float.floatToIntBits(((Float) value).floatValue()));
+		} else if (value instanceof Double) {
+			writeUleb(C_DOUBLE);
+			writeLong(Double.doubleToLongBits(((Double) value).doubleValue()));
+		} else if (value instanceof Boolean) {
+			writeUleb(C_BOOLEAN);
+			writeUleb(((Boolean) value).booleanValue() ? 1 : 0);
+		} else if (value instanceof String) {
+			writeUleb(C_STRING);
+			writeString((String) value);
+		} else {
+			throw new SSASerializationException("Unsupported constant: "
+					+ value);
+		}
+	}
+
+	private void writeMethod(MethodReference method) {
+		writeType(method.getDeclaringClass());
+		writeString(method.getName().toString());
+		writeString(method.getDescriptor().toString());
+	}
+
+	private void writeField(FieldReference field) {
+		writeType(field.getDeclaringClass());
+		writeString(field.getName().toString());
+		writeType(field.getFieldType());
+	}
+
+	private void writeType(TypeReference type) {
+		writeString(type.getClassLoader().getName().toString());
+		writeString(type.getName().toString());
+	}
+
+	private void writeString(String s) {
+		writeUleb(intern(s));
+	}
+
+	private void writeValue(int valueNumber) {
+		writeUleb(valueNumber + 1);
+	}
+
+	private void writeLong(long l) {
+		writeUleb((int) (l >>> 32));
+		writeUleb((int) l);
+	}
+
+	private void writeUleb(int value) {
+		try {
+			writeUleb(record, value);
+		} catch (IOException e) {
+			// not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void writeUleb(OutputStream out, int value)
+			throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private int intern(String s) {
+		Integer i = strings.get(s);
+		if (i == null) {
+			i = strings.size();
+			strings.put(s, i);
+		}
+		return i;
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("summary writer is closed");
+		}
+	}
+}
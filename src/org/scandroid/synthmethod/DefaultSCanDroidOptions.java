@@ -100,6 +100,11 @@ public abstract class DefaultSCanDroidOptions implements ISCanDroidOptions {
 		return false;
 	}
 
+	@Override
+	public int ifdsThreads() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
 	@Override
 	public boolean addMainEntrypoints() {
 		return false;
@@ -185,7 +190,8 @@ public abstract class DefaultSCanDroidOptions implements ISCanDroidOptions {
 				+ ", stdoutCG()=" + options.stdoutCG() + ", includeLibrary()="
 				+ options.includeLibrary() + ", separateEntries()="
 				+ options.separateEntries() + ", ifdsExplorer()="
-				+ options.ifdsExplorer() + ", addMainEntrypoints()="
+				+ options.ifdsExplorer() + ", ifdsThreads()="
+				+ options.ifdsThreads() + ", addMainEntrypoints()="
 				+ options.addMainEntrypoints() + ", useThreadRunMain()="
 				+ options.useThreadRunMain() + ", stringPrefixAnalysis()="
 				+ options.stringPrefixAnalysis() + ", testCGBuilder()="
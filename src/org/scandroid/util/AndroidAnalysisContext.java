@@ -42,33 +42,38 @@ package org.scandroid.util;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.jar.JarFile;
 
 import org.scandroid.spec.AndroidSpecs;
+import org.scandroid.spec.MethodTargetIndex;
 import org.scandroid.synthmethod.DefaultSCanDroidOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
-import com.ibm.wala.classLoader.DexFileModule;
+import com.ibm.wala.classLoader.DexIClass;
 import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.JarFileEntry;
 import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.ShrikeClass;
 import com.ibm.wala.dex.util.config.DexAnalysisScopeReader;
 import com.ibm.wala.ipa.callgraph.AnalysisCache;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
@@ -89,7 +94,6 @@ import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.ipa.summaries.BypassClassTargetSelector;
 import com.ibm.wala.ipa.summaries.BypassMethodTargetSelector;
 import com.ibm.wala.ipa.summaries.MethodSummary;
-import com.ibm.wala.ipa.summaries.XMLMethodSummaryReader;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.types.TypeReference;
@@ -105,13 +109,22 @@ public class AndroidAnalysisContext {
 	static {
 //		((ch.qos.logback.classic.Logger) logger).setLevel(Level.TRACE);
 	}
-	private static final String methodSpec = "MethodSummaries.xml";
-	private static final String pathToSpec = "data";
 	private static SetOfClasses exclusions;
 
+	/**
+	 * Whether hierarchies over the same Android library share its loader
+	 */
+	private static volatile boolean shareLibraryLoader = false;
+
 	private final ISCanDroidOptions options;
 	private final AnalysisScope scope;
 	private final ClassHierarchy cha;
+
+	/**
+	 * Keeps the method target index of the hierarchy for the lifetime of
+	 * this context; the index itself is only cached weakly
+	 */
+	private final MethodTargetIndex targetIndex;
 	
 	public AndroidAnalysisContext() {
 		throw new IllegalArgumentException();
@@ -134,26 +147,98 @@ public class AndroidAnalysisContext {
 	 * @throws ClassHierarchyException
 	 * @throws URISyntaxException
 	 */
-	public AndroidAnalysisContext(ISCanDroidOptions options, File exclusions)
+	public AndroidAnalysisContext(ISCanDroidOptions options, final File exclusions)
 			throws IOException, IllegalArgumentException, CancelException,
 			       ClassHierarchyException, URISyntaxException {
 		logger.debug(DefaultSCanDroidOptions.dumpString(options));
 		this.options = options;
-		scope = DexAnalysisScopeReader.makeAndroidBinaryAnalysisScope(
-				options.getClasspath(), exclusions);
+
+		final URI androidLib = options.getAndroidLibrary();
+		scope = makeAnalysisScope(options.getClasspath(), androidLib,
+				new FileProvider().getResource("data/AppModel_dummy.jar")
+						.toURI(), exclusions);
+		if (shareLibraryLoader) {
+			cha = ClassHierarchy.make(scope, new SharedLibraryLoaderFactory(
+					scope.getExclusions(), LibraryModuleCache.key("library",
+							androidLib, exclusions.toURI()),
+					new Callable<AnalysisScope>() {
+						@Override
+						public AnalysisScope call() throws IOException {
+							return makeLibraryScope(androidLib, exclusions);
+						}
+					}));
+		} else {
+			cha = ClassHierarchy.make(scope);
+		}
+
+		targetIndex = MethodTargetIndex.forHierarchy(cha);
 
 		AndroidAnalysisContext.exclusions = scope.getExclusions();
 
+		// the listeners are looked up among the library classes of this
+		// hierarchy rather than in a second one built over the library alone
+		final File library = new File(androidLib);
+		AndroidSpecs.addPossibleListeners(Iterables.filter(cha,
+				new Predicate<IClass>() {
+					@Override
+					public boolean apply(IClass c) {
+						return fromLibrary(c, library);
+					}
+				}));
+
+		if (options.classHierarchyWarnings()) {
+			// log ClassHierarchy warnings
+			for (Iterator<Warning> wi = Warnings.iterator(); wi.hasNext();) {
+				Warning w = wi.next();
+				logger.warn(w.getMsg());
+			}
+		}
+		Warnings.clear();
+	}
+
+	/**
+	 * Load the Android library once for all the contexts created in this JVM
+	 * instead of once per application. Meant for processes which analyze many
+	 * applications in turn. Turning it off drops the shared library.
+	 */
+	public static void setShareLibraryLoader(boolean share) {
+		shareLibraryLoader = share;
+		if (!share) {
+			SharedLibraryLoaderFactory.release();
+		}
+	}
+
+	private static AnalysisScope makeAnalysisScope(URI classpath,
+			URI androidLib, URI appModel, File exclusions) throws IOException {
+		AnalysisScope scope = makeDexScope(classpath, exclusions);
+		addLibrary(scope, androidLib);
+		scope.addToScope(ClassLoaderReference.Application, new JarFile(new File(
+				appModel)));
+		return scope;
+	}
+
+	/**
+	 * @return a scope holding the standard and Android libraries but no
+	 *         application, loaded the same way as by
+	 *         {@link #makeAnalysisScope(URI, URI, URI, File)}
+	 */
+	private static AnalysisScope makeLibraryScope(URI androidLib,
+			File exclusions) throws IOException {
+		AnalysisScope scope = DexAnalysisScopeReader
+				.makePrimordialScope(exclusions);
 		scope.setLoaderImpl(ClassLoaderReference.Application,
 				"com.ibm.wala.classLoader.WDexClassLoaderImpl");
-
 		scope.setLoaderImpl(ClassLoaderReference.Primordial,
 				"com.ibm.wala.classLoader.WDexClassLoaderImpl");
-		
+		addLibrary(scope, androidLib);
+		return scope;
+	}
+
+	private static void addLibrary(AnalysisScope scope, URI androidLib)
+			throws IOException {
 		// TODO: this check is case-sensitive :(
-		URI androidLib = options.getAndroidLibrary();
 		if (androidLib.getPath().endsWith(".dex")) { 
-			Module dexMod = new DexFileModule(new File(androidLib));
+			Module dexMod = LibraryModuleCache.dexModule(androidLib);
 			
 //			Iterator<ModuleEntry> mitr = dexMod.getEntries();
 //			while (mitr.hasNext()) {
@@ -166,32 +251,40 @@ public class AndroidAnalysisContext {
 			scope.addToScope(ClassLoaderReference.Primordial, new JarFile(new File(
 				androidLib)));
 		}
-		
-		scope.addToScope(ClassLoaderReference.Application, new JarFile(new File(
-				new FileProvider().getResource("data/AppModel_dummy.jar")
-				.toURI())));
-		
-		cha = ClassHierarchy.make(scope);
-		
-		AnalysisScope scope_appmodel = 
-				DexAnalysisScopeReader.makeAndroidBinaryAnalysisScope(
-						androidLib, 
-						exclusions);
-		scope_appmodel.setLoaderImpl(ClassLoaderReference.Application,
+	}
+
+	/**
+	 * @return whether the primordial loader took <code>c</code> from the
+	 *         Android library, as opposed to the standard library which is
+	 *         ahead of it and defines some of the same classes
+	 */
+	private static boolean fromLibrary(IClass c, File library) {
+		if (!LoaderUtils.fromLoader(c, ClassLoaderReference.Primordial)) {
+			return false;
+		}
+		if (c instanceof DexIClass) {
+			// the standard library is never a dex file
+			return true;
+		}
+		if (c instanceof ShrikeClass) {
+			ModuleEntry entry = ((ShrikeClass) c).getModuleEntry();
+			return entry instanceof JarFileEntry
+					&& ((JarFileEntry) entry).getJarFile().getName()
+							.equals(library.getPath());
+		}
+		return false;
+	}
+
+	private static AnalysisScope makeDexScope(URI classpath, File exclusions)
+			throws IOException {
+		AnalysisScope scope = DexAnalysisScopeReader
+				.makeAndroidBinaryAnalysisScope(classpath, exclusions);
+		scope.setLoaderImpl(ClassLoaderReference.Application,
 				"com.ibm.wala.classLoader.WDexClassLoaderImpl");
 
-		scope_appmodel.setLoaderImpl(ClassLoaderReference.Primordial,
+		scope.setLoaderImpl(ClassLoaderReference.Primordial,
 				"com.ibm.wala.classLoader.WDexClassLoaderImpl");
-		AndroidSpecs.addPossibleListeners(ClassHierarchy.make(scope_appmodel));
-		
-		if (options.classHierarchyWarnings()) {
-			// log ClassHierarchy warnings
-			for (Iterator<Warning> wi = Warnings.iterator(); wi.hasNext();) {
-				Warning w = wi.next();
-				logger.warn(w.getMsg());
-			}
-		}
-		Warnings.clear();
+		return scope;
 	}
 
 	// ContextSelector, entry points, reflection options, IR Factory, call graph
@@ -319,31 +412,21 @@ public class AndroidAnalysisContext {
 			throw new IllegalArgumentException("cha cannot be null");
 		}
 
-		InputStream s = null;
 		try {
 			Set<TypeReference> summaryClasses = Sets.newHashSet();
 			Map<MethodReference, MethodSummary> summaries = Maps.newHashMap();
 
 			if (null != xmlIStream) {
-				XMLMethodSummaryReader newSummaryXML = loadMethodSummaries(
-						scope, xmlIStream);
-				summaryClasses.addAll(newSummaryXML.getAllocatableClasses());
-				for (MethodSummary summary : newSummaryXML.getSummaries().values()) {
-					logger.trace("SSA instructions for summary of {}:\n{}", summary.getMethod().getSignature().toString(), Arrays.toString(summary.getStatements()));					
-				}
-				summaries.putAll(newSummaryXML.getSummaries());
+				SummaryTable newSummaries = SummaryTable.load(xmlIStream, scope);
+				summaryClasses.addAll(newSummaries.getAllocatableClasses());
+				summaries.putAll(newSummaries.getSummaries());
 			}
 			logger.debug("loaded " + summaries.size() + " new summaries");
 			// for (MethodReference mr : summaries.keySet()) {
 			// logger.debug("summary loaded for: "+mr.getSignature());
 			// }
 
-			s = new FileProvider().getInputStreamFromClassLoader(pathToSpec
-					+ File.separator + methodSpec,
-					AndroidAnalysisContext.class.getClassLoader());
-
-			XMLMethodSummaryReader nativeSummaries = loadMethodSummaries(scope,
-					s);
+			SummaryTable nativeSummaries = SummaryTable.natives(scope);
 
 			logger.debug("loaded " + nativeSummaries.getSummaries().size()
 					+ " native summaries");
@@ -365,12 +448,12 @@ public class AndroidAnalysisContext {
 					cha.getLoader(scope.getLoader(Atom
 							.findOrCreateUnicodeAtom("Synthetic"))));
 			options.setSelector(cs);
-		} catch (FileNotFoundException e) {
+		} catch (IOException e) {
 			e.printStackTrace();
 		} finally {
-			if (null != s) {
+			if (null != xmlIStream) {
 				try {
-					s.close();
+					xmlIStream.close();
 				} catch (IOException e) {
 					e.printStackTrace();
 				}
@@ -379,31 +462,6 @@ public class AndroidAnalysisContext {
 
 	}
 
-	private static XMLMethodSummaryReader loadMethodSummaries(
-			AnalysisScope scope, InputStream xmlIStream)
-			throws FileNotFoundException {
-		InputStream s = xmlIStream;
-		XMLMethodSummaryReader summary = null;
-
-		try {
-			if (null == s) {
-				s = AndroidAnalysisContext.class.getClassLoader()
-						.getResourceAsStream(
-								pathToSpec + File.separator + methodSpec);
-			}
-			summary = new XMLMethodSummaryReader(s, scope);
-		} finally {
-			try {
-				if (null != s) {
-					s.close();
-				}
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-		}
-		return summary;
-	}
-	
 	/**
 	 * Returns all concrete classes implementing the given interface or any subinterfaces
 	 * @param iRoot
@@ -442,6 +500,13 @@ public class AndroidAnalysisContext {
 		return cha;
 	}
 
+	/**
+	 * @return the index resolving spec patterns in the class hierarchy
+	 */
+	public MethodTargetIndex getTargetIndex() {
+		return targetIndex;
+	}
+
 	public static boolean inExclusions(String klassName) {
 		return exclusions.contains(klassName);
 	}
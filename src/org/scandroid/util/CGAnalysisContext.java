@@ -45,9 +45,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.scandroid.domain.CodeElement;
@@ -56,6 +58,8 @@ import org.scandroid.domain.InstanceKeyElement;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 import com.ibm.wala.classLoader.DexIRFactory;
@@ -113,9 +117,18 @@ public class CGAnalysisContext<E extends ISSABasicBlock> {
 	public PointerAnalysis pa;
 	public ISupergraph<BasicBlockInContext<E>, CGNode> graph;
 
-	public Graph<CGNode> oneLevelGraph;
-	public Graph<CGNode> systemToApkGraph;
-	public Graph<CGNode> partialGraph;
+	// slices of the call graph, computed on first use
+	private Graph<CGNode> oneLevelGraph;
+	private Graph<CGNode> systemToApkGraph;
+	private Graph<CGNode> partialGraph;
+
+	private CallSiteIndex callSiteIndex;
+
+	/**
+	 * Memoized results of {@link #codeElementsForInstanceKey(InstanceKey)}.
+	 */
+	private final Map<InstanceKey, Set<CodeElement>> instanceKeyElements = Maps
+			.newHashMap();
 
 	public CGAnalysisContext(AndroidAnalysisContext analysisContext,
 			IEntryPointSpecifier specifier) throws IOException {
@@ -151,14 +164,18 @@ public class CGAnalysisContext<E extends ISSABasicBlock> {
 
 		cgb = options.makeCallGraphBuilder(scope, analysisOptions, cache, cha, extraSummaries);
 
-		if (analysisContext.getOptions().cgBuilderWarnings()) {
-			// CallGraphBuilder construction warnings
-			for (Iterator<Warning> wi = Warnings.iterator(); wi.hasNext();) {
-				Warning w = wi.next();
-				logger.warn(w.getMsg());
+		// Warnings is process-wide and other threads may be building call
+		// graphs: its lock keeps them from adding while we iterate
+		synchronized (Warnings.class) {
+			if (analysisContext.getOptions().cgBuilderWarnings()) {
+				// CallGraphBuilder construction warnings
+				for (Iterator<Warning> wi = Warnings.iterator(); wi.hasNext();) {
+					Warning w = wi.next();
+					logger.warn(w.getMsg());
+				}
 			}
+			Warnings.clear();
 		}
-		Warnings.clear();
 
 		logger.info("*************************");
 		logger.info("* Building Call Graph   *");
@@ -183,28 +200,21 @@ public class CGAnalysisContext<E extends ISSABasicBlock> {
 		}
 
 		// makeCallGraph warnings
-		for (Iterator<Warning> wi = Warnings.iterator(); wi.hasNext();) {
-			Warning w = wi.next();
-			logger.warn(w.getMsg());
+		synchronized (Warnings.class) {
+			for (Iterator<Warning> wi = Warnings.iterator(); wi.hasNext();) {
+				Warning w = wi.next();
+				logger.warn(w.getMsg());
+			}
+			Warnings.clear();
 		}
-		Warnings.clear();
 
 		pa = cgb.getPointerAnalysis();
-		partialGraph = GraphSlicer.prune(cg, new Predicate<CGNode>() {
-			@Override
-			// CallGraph composed of APK nodes
-			public boolean test(CGNode node) {
-				return LoaderUtils.fromLoader(node,
-						ClassLoaderReference.Application)
-						|| node.getMethod().isSynthetic();
-			}
-		});
 		if (options.includeLibrary()) {
 			graph = (ISupergraph) ICFGSupergraph.make(cg, cache);
 		} else {
 
 			Collection<CGNode> nodes = Sets.newHashSet();
-			for (Iterator<CGNode> nIter = partialGraph.iterator(); nIter
+			for (Iterator<CGNode> nIter = getPartialGraph().iterator(); nIter
 					.hasNext();) {
 				nodes.add(nIter.next());
 			}
@@ -213,74 +223,6 @@ public class CGAnalysisContext<E extends ISSABasicBlock> {
 			graph = (ISupergraph) ICFGSupergraph.make(pcg, cache);
 		}
 
-		oneLevelGraph = GraphSlicer.prune(cg, new Predicate<CGNode>() {
-			@Override
-			public boolean test(CGNode node) {
-				// Node in APK
-				if (LoaderUtils.fromLoader(node,
-						ClassLoaderReference.Application)) {
-					return true;
-				} else {
-					Iterator<CGNode> n = cg.getPredNodes(node);
-					while (n.hasNext()) {
-						// Primordial node has a successor in APK
-						if (LoaderUtils.fromLoader(n.next(),
-								ClassLoaderReference.Application))
-							return true;
-					}
-					n = cg.getSuccNodes(node);
-					while (n.hasNext()) {
-						// Primordial node has a predecessor in APK
-						if (LoaderUtils.fromLoader(n.next(),
-								ClassLoaderReference.Application))
-							return true;
-					}
-					// Primordial node with no direct successors or predecessors
-					// to APK code
-					return false;
-				}
-			}
-		});
-
-		systemToApkGraph = GraphSlicer.prune(cg, new Predicate<CGNode>() {
-			@Override
-			public boolean test(CGNode node) {
-
-				if (LoaderUtils.fromLoader(node,
-						ClassLoaderReference.Primordial)) {
-					Iterator<CGNode> succs = cg.getSuccNodes(node);
-					while (succs.hasNext()) {
-						CGNode n = succs.next();
-
-						if (LoaderUtils.fromLoader(n,
-								ClassLoaderReference.Application)) {
-							return true;
-						}
-					}
-					// Primordial method, with no link to APK code:
-					return false;
-				} else if (LoaderUtils.fromLoader(node,
-						ClassLoaderReference.Application)) {
-					// see if this is an APK method that was
-					// invoked by a Primordial method:
-					Iterator<CGNode> preds = cg.getPredNodes(node);
-					while (preds.hasNext()) {
-						CGNode n = preds.next();
-
-						if (LoaderUtils.fromLoader(n,
-								ClassLoaderReference.Primordial)) {
-							return true;
-						}
-					}
-					// APK code, no link to Primordial:
-					return false;
-				}
-
-				// who knows, not interesting:
-				return false;
-			}
-		});
-
 		if (options.pdfCG())
 			GraphUtil.makeCG(this);
 		if (options.pdfPartialCG())
@@ -303,21 +245,23 @@ public class CGAnalysisContext<E extends ISSABasicBlock> {
 				}
 			}
 		}
-		for (Iterator<CGNode> nodeI = cg.iterator(); nodeI.hasNext();) {
-			CGNode node = nodeI.next();
-			if (node.getMethod().isSynthetic()) {
-				logger.trace("Synthetic Method: {}", node.getMethod()
-						.getSignature());
-				logger.trace("{}", node.getIR().getControlFlowGraph()
-						.toString());
-				SSACFG ssaCFG = node.getIR().getControlFlowGraph();
-				int totalBlocks = ssaCFG.getNumberOfNodes();
-				for (int i = 0; i < totalBlocks; i++) {
-					logger.trace("BLOCK #{}", i);
-					BasicBlock bb = ssaCFG.getBasicBlock(i);
-
-					for (SSAInstruction ssaI : bb.getAllInstructions()) {
-						logger.trace("\tInstruction: {}", ssaI);
+		if (logger.isTraceEnabled()) {
+			for (Iterator<CGNode> nodeI = cg.iterator(); nodeI.hasNext();) {
+				CGNode node = nodeI.next();
+				if (node.getMethod().isSynthetic()) {
+					logger.trace("Synthetic Method: {}", node.getMethod()
+							.getSignature());
+					logger.trace("{}", node.getIR().getControlFlowGraph()
+							.toString());
+					SSACFG ssaCFG = node.getIR().getControlFlowGraph();
+					int totalBlocks = ssaCFG.getNumberOfNodes();
+					for (int i = 0; i < totalBlocks; i++) {
+						logger.trace("BLOCK #{}", i);
+						BasicBlock bb = ssaCFG.getBasicBlock(i);
+
+						for (SSAInstruction ssaI : bb.getAllInstructions()) {
+							logger.trace("\tInstruction: {}", ssaI);
+						}
 					}
 				}
 			}
@@ -325,135 +269,339 @@ public class CGAnalysisContext<E extends ISSABasicBlock> {
 	}
 
 	/**
-	 * @param rootIK
-	 * @return a set of all code elements that might refer to this object or one
-	 *         of its fields (recursively)
+	 * @return the call graph pruned to the APK nodes and the synthetic ones,
+	 *         computed on first use
 	 */
-	public Set<CodeElement> codeElementsForInstanceKey(InstanceKey rootIK) {
-		Set<CodeElement> elts = Sets.newHashSet();
-		Deque<InstanceKey> iks = Queues.newArrayDeque();
-		iks.push(rootIK);
-
-		while (!iks.isEmpty()) {
-			InstanceKey ik = iks.pop();
-			logger.debug("getting code elements for {}", ik);
-			elts.add(new InstanceKeyElement(ik));
-			final IClass clazz = ik.getConcreteType();
-			final TypeReference typeRef = clazz.getReference();
-			// If an array, recur down into the structure
-			if (typeRef.isArrayType()) {
-				if (typeRef.getArrayElementType().isPrimitiveType()) {
-					// don't do anything for primitive contents
-					continue;
+	public synchronized Graph<CGNode> getPartialGraph() {
+		if (partialGraph == null) {
+			partialGraph = slice(new Predicate<CGNode>() {
+				@Override
+				// CallGraph composed of APK nodes
+				public boolean test(CGNode node) {
+					return LoaderUtils.fromLoader(node,
+							ClassLoaderReference.Application)
+							|| node.getMethod().isSynthetic();
 				}
-				OrdinalSet<InstanceKey> pointsToSet = pa.getPointsToSet(pa
-						.getHeapModel().getPointerKeyForArrayContents(ik));
-				if (pointsToSet.isEmpty()) {
-					logger.debug("pointsToSet empty for array contents, creating InstanceKey manually");
-					final IClass contentsClass = pa.getClassHierarchy()
-							.lookupClass(typeRef.getArrayElementType());
-					if (contentsClass.isInterface()) {
-						for (IClass implementor : analysisContext
-								.concreteClassesForInterface(contentsClass)) {
-							final InstanceKey contentsIK = new ConcreteTypeKey(
-									implementor);
-							final InstanceKeyElement elt = new InstanceKeyElement(
-									contentsIK);
-							if (!elts.contains(elt)) {
-								elts.add(elt);
-								iks.push(contentsIK);
-							}
-						}
+			});
+		}
+		return partialGraph;
+	}
+
+	/**
+	 * @return the call graph pruned to the APK nodes and the nodes one call
+	 *         away from them, computed on first use
+	 */
+	public synchronized Graph<CGNode> getOneLevelGraph() {
+		if (oneLevelGraph == null) {
+			oneLevelGraph = slice(new Predicate<CGNode>() {
+				@Override
+				public boolean test(CGNode node) {
+					// Node in APK
+					if (LoaderUtils.fromLoader(node,
+							ClassLoaderReference.Application)) {
+						return true;
 					} else {
-						InstanceKey contentsIK = new ConcreteTypeKey(
-								contentsClass);
-						final InstanceKeyElement elt = new InstanceKeyElement(
-								contentsIK);
-						if (!elts.contains(elt)) {
-							elts.add(elt);
-							iks.push(contentsIK);
+						Iterator<CGNode> n = cg.getPredNodes(node);
+						while (n.hasNext()) {
+							// Primordial node has a successor in APK
+							if (LoaderUtils.fromLoader(n.next(),
+									ClassLoaderReference.Application))
+								return true;
 						}
-					}
-				} else {
-					for (InstanceKey contentsIK : pointsToSet) {
-						final InstanceKeyElement elt = new InstanceKeyElement(
-								contentsIK);
-						if (!elts.contains(elt)) {
-							elts.add(elt);
-							iks.push(contentsIK);
+						n = cg.getSuccNodes(node);
+						while (n.hasNext()) {
+							// Primordial node has a predecessor in APK
+							if (LoaderUtils.fromLoader(n.next(),
+									ClassLoaderReference.Application))
+								return true;
 						}
+						// Primordial node with no direct successors or predecessors
+						// to APK code
+						return false;
 					}
 				}
-				continue;
-			}
-			for (IField field : clazz.getAllInstanceFields()) {
-				logger.debug("adding elements for field {}", field);
-				final TypeReference fieldTypeRef = field
-						.getFieldTypeReference();
-				elts.add(new FieldElement(ik, field.getReference()));
-				final IClass fieldClass = analysisContext.getClassHierarchy()
-						.lookupClass(fieldTypeRef);
-				if (fieldTypeRef.isPrimitiveType() || fieldClass == null) {
-					continue;
-				} else if (fieldTypeRef.isArrayType()) {
-					PointerKey pk = pa.getHeapModel()
-							.getPointerKeyForInstanceField(ik, field);
-					final OrdinalSet<InstanceKey> pointsToSet = pa
-							.getPointsToSet(pk);
-					if (pointsToSet.isEmpty()) {
-						logger.debug("pointsToSet empty for array field, creating InstanceKey manually");
-						InstanceKey fieldIK = new ConcreteTypeKey(pa
-								.getClassHierarchy().lookupClass(fieldTypeRef));
-						final InstanceKeyElement elt = new InstanceKeyElement(
-								fieldIK);
-						if (!elts.contains(elt)) {
-							elts.add(elt);
-							iks.push(fieldIK);
-						}
-					} else {
-						for (InstanceKey fieldIK : pointsToSet) {
-							final InstanceKeyElement elt = new InstanceKeyElement(
-									fieldIK);
-							if (!elts.contains(elt)) {
-								elts.add(elt);
-								iks.push(fieldIK);
+			});
+		}
+		return oneLevelGraph;
+	}
+
+	/**
+	 * @return the call graph pruned to the calls from the system into the APK,
+	 *         computed on first use
+	 */
+	public synchronized Graph<CGNode> getSystemToApkGraph() {
+		if (systemToApkGraph == null) {
+			systemToApkGraph = slice(new Predicate<CGNode>() {
+				@Override
+				public boolean test(CGNode node) {
+
+					if (LoaderUtils.fromLoader(node,
+							ClassLoaderReference.Primordial)) {
+						Iterator<CGNode> succs = cg.getSuccNodes(node);
+						while (succs.hasNext()) {
+							CGNode n = succs.next();
+
+							if (LoaderUtils.fromLoader(n,
+									ClassLoaderReference.Application)) {
+								return true;
 							}
 						}
-					}
-				} else if (fieldTypeRef.isReferenceType()) {
-					PointerKey pk = pa.getHeapModel()
-							.getPointerKeyForInstanceField(ik, field);
-					final OrdinalSet<InstanceKey> pointsToSet = pa
-							.getPointsToSet(pk);
-					if (pointsToSet.isEmpty()
-							&& !analysisContext.getClassHierarchy()
-									.isInterface(fieldTypeRef)) {
-						logger.debug("pointsToSet empty for reference field, creating InstanceKey manually");
-						InstanceKey fieldIK = new ConcreteTypeKey(fieldClass);
-						final InstanceKeyElement elt = new InstanceKeyElement(
-								fieldIK);
-						if (!elts.contains(elt)) {
-							elts.add(elt);
-							iks.push(fieldIK);
-						}
-					} else {
-						for (InstanceKey fieldIK : pointsToSet) {
-							final InstanceKeyElement elt = new InstanceKeyElement(
-									fieldIK);
-							if (!elts.contains(elt)) {
-								elts.add(elt);
-								iks.push(fieldIK);
+						// Primordial method, with no link to APK code:
+						return false;
+					} else if (LoaderUtils.fromLoader(node,
+							ClassLoaderReference.Application)) {
+						// see if this is an APK method that was
+						// invoked by a Primordial method:
+						Iterator<CGNode> preds = cg.getPredNodes(node);
+						while (preds.hasNext()) {
+							CGNode n = preds.next();
+
+							if (LoaderUtils.fromLoader(n,
+									ClassLoaderReference.Primordial)) {
+								return true;
 							}
 						}
+						// APK code, no link to Primordial:
+						return false;
 					}
-				} else {
-					logger.warn("unknown field type {}", field);
+
+					// who knows, not interesting:
+					return false;
 				}
+			});
+		}
+		return systemToApkGraph;
+	}
+
+	/**
+	 * Prunes the call graph to the nodes accepted by p. The nodes are
+	 * collected once, so walking the slice does not run p again.
+	 */
+	private Graph<CGNode> slice(Predicate<CGNode> p) {
+		final Set<CGNode> nodes = Sets.newHashSet();
+		for (Iterator<CGNode> nodeI = cg.iterator(); nodeI.hasNext();) {
+			CGNode node = nodeI.next();
+			if (p.test(node)) {
+				nodes.add(node);
 			}
 		}
+		return GraphSlicer.prune(cg, new Predicate<CGNode>() {
+			@Override
+			public boolean test(CGNode node) {
+				return nodes.contains(node);
+			}
+		});
+	}
+
+	/**
+	 * The results are memoized per instance key, so the returned set is shared
+	 * and must not be modified. The objects reachable from an instance key are
+	 * collected with Tarjan's algorithm, so each strongly connected component
+	 * of the object graph is expanded only once and shares its result with
+	 * every member.
+	 * 
+	 * @param rootIK
+	 * @return a set of all code elements that might refer to this object or one
+	 *         of its fields (recursively)
+	 */
+	public synchronized Set<CodeElement> codeElementsForInstanceKey(
+			InstanceKey rootIK) {
+		Set<CodeElement> elts = instanceKeyElements.get(rootIK);
+		if (elts == null) {
+			collectCodeElements(rootIK);
+			elts = instanceKeyElements.get(rootIK);
+		}
 		return elts;
 	}
 
+	/**
+	 * An instance key on the stack of the depth-first search, with its
+	 * successors in the object graph.
+	 */
+	private static final class ObjectNode {
+		final InstanceKey ik;
+		final int index;
+		int lowlink;
+		final Set<CodeElement> elements = Sets.newHashSet();
+		final List<InstanceKey> succs = Lists.newArrayList();
+		int next = 0;
+
+		ObjectNode(InstanceKey ik, int index) {
+			this.ik = ik;
+			this.index = index;
+			this.lowlink = index;
+		}
+	}
+
+	/**
+	 * Fills {@link #instanceKeyElements} for every instance key reachable
+	 * from rootIK that is not memoized yet.
+	 */
+	private void collectCodeElements(InstanceKey rootIK) {
+		Map<InstanceKey, ObjectNode> open = Maps.newHashMap();
+		Deque<ObjectNode> component = Queues.newArrayDeque();
+		Deque<ObjectNode> path = Queues.newArrayDeque();
+		int index = 0;
+
+		ObjectNode root = new ObjectNode(rootIK, index++);
+		expand(root);
+		open.put(rootIK, root);
+		component.push(root);
+		path.push(root);
+		while (!path.isEmpty()) {
+			ObjectNode node = path.peek();
+			if (node.next < node.succs.size()) {
+				InstanceKey succIK = node.succs.get(node.next++);
+				if (instanceKeyElements.containsKey(succIK)) {
+					continue;
+				}
+				ObjectNode succ = open.get(succIK);
+				if (succ != null) {
+					// still on the component stack
+					node.lowlink = Math.min(node.lowlink, succ.index);
+				} else {
+					succ = new ObjectNode(succIK, index++);
+					expand(succ);
+					open.put(succIK, succ);
+					component.push(succ);
+					path.push(succ);
+				}
+				continue;
+			}
+			path.pop();
+			if (!path.isEmpty()) {
+				ObjectNode parent = path.peek();
+				parent.lowlink = Math.min(parent.lowlink, node.lowlink);
+			}
+			if (node.lowlink != node.index) {
+				continue;
+			}
+			// node is the root of a strongly connected component
+			List<ObjectNode> members = Lists.newArrayList();
+			ObjectNode member;
+			do {
+				member = component.pop();
+				open.remove(member.ik);
+				members.add(member);
+			} while (member != node);
+			Set<CodeElement> elts = Sets.newHashSet();
+			for (ObjectNode m : members) {
+				elts.addAll(m.elements);
+				for (InstanceKey succIK : m.succs) {
+					Set<CodeElement> succElts = instanceKeyElements
+							.get(succIK);
+					// members of this component are not memoized yet
+					if (succElts != null) {
+						elts.addAll(succElts);
+					}
+				}
+			}
+			elts = Collections.unmodifiableSet(elts);
+			for (ObjectNode m : members) {
+				instanceKeyElements.put(m.ik, elts);
+			}
+		}
+	}
+
+	/**
+	 * Computes the code elements of a single object, and the objects its
+	 * fields or array contents may refer to.
+	 */
+	private void expand(ObjectNode node) {
+		final InstanceKey ik = node.ik;
+		final Set<CodeElement> elts = node.elements;
+		final Set<InstanceKey> succs = Sets.newLinkedHashSet();
+		logger.debug("getting code elements for {}", ik);
+		elts.add(new InstanceKeyElement(ik));
+		final IClass clazz = ik.getConcreteType();
+		final TypeReference typeRef = clazz.getReference();
+		// If an array, recur down into the structure
+		if (typeRef.isArrayType()) {
+			if (typeRef.getArrayElementType().isPrimitiveType()) {
+				// don't do anything for primitive contents
+				return;
+			}
+			OrdinalSet<InstanceKey> pointsToSet = pa.getPointsToSet(pa
+					.getHeapModel().getPointerKeyForArrayContents(ik));
+			if (pointsToSet.isEmpty()) {
+				logger.debug("pointsToSet empty for array contents, creating InstanceKey manually");
+				final IClass contentsClass = pa.getClassHierarchy()
+						.lookupClass(typeRef.getArrayElementType());
+				if (contentsClass.isInterface()) {
+					for (IClass implementor : analysisContext
+							.concreteClassesForInterface(contentsClass)) {
+						succs.add(new ConcreteTypeKey(implementor));
+					}
+				} else {
+					succs.add(new ConcreteTypeKey(contentsClass));
+				}
+			} else {
+				for (InstanceKey contentsIK : pointsToSet) {
+					succs.add(contentsIK);
+				}
+			}
+			succs.remove(ik);
+			node.succs.addAll(succs);
+			return;
+		}
+		for (IField field : clazz.getAllInstanceFields()) {
+			logger.debug("adding elements for field {}", field);
+			final TypeReference fieldTypeRef = field.getFieldTypeReference();
+			elts.add(new FieldElement(ik, field.getReference()));
+			final IClass fieldClass = analysisContext.getClassHierarchy()
+					.lookupClass(fieldTypeRef);
+			if (fieldTypeRef.isPrimitiveType() || fieldClass == null) {
+				continue;
+			} else if (fieldTypeRef.isArrayType()) {
+				PointerKey pk = pa.getHeapModel()
+						.getPointerKeyForInstanceField(ik, field);
+				final OrdinalSet<InstanceKey> pointsToSet = pa
+						.getPointsToSet(pk);
+				if (pointsToSet.isEmpty()) {
+					logger.debug("pointsToSet empty for array field, creating InstanceKey manually");
+					succs.add(new ConcreteTypeKey(pa.getClassHierarchy()
+							.lookupClass(fieldTypeRef)));
+				} else {
+					for (InstanceKey fieldIK : pointsToSet) {
+						succs.add(fieldIK);
+					}
+				}
+			} else if (fieldTypeRef.isReferenceType()) {
+				PointerKey pk = pa.getHeapModel()
+						.getPointerKeyForInstanceField(ik, field);
+				final OrdinalSet<InstanceKey> pointsToSet = pa
+						.getPointsToSet(pk);
+				if (pointsToSet.isEmpty()
+						&& !analysisContext.getClassHierarchy().isInterface(
+								fieldTypeRef)) {
+					logger.debug("pointsToSet empty for reference field, creating InstanceKey manually");
+					succs.add(new ConcreteTypeKey(fieldClass));
+				} else {
+					for (InstanceKey fieldIK : pointsToSet) {
+						succs.add(fieldIK);
+					}
+				}
+			} else {
+				logger.warn("unknown field type {}", field);
+			}
+		}
+		succs.remove(ik);
+		node.succs.addAll(succs);
+	}
+
+	/**
+	 * @return an index of the call graph's nodes and call sites by method,
+	 *         built on first use
+	 */
+	@SuppressWarnings("rawtypes")
+	public synchronized CallSiteIndex getCallSiteIndex() {
+		if (callSiteIndex == null) {
+			callSiteIndex = new CallSiteIndex(cg, getClassHierarchy(),
+					(ICFGSupergraph) (ISupergraph) graph);
+		}
+		return callSiteIndex;
+	}
+
 	public ISCanDroidOptions getOptions() {
 		return analysisContext.getOptions();
 	}
@@ -80,6 +80,7 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 	private static final String STDOUT_CALL_GRAPH = "stdout-call-graph";
 	private static final String MAIN_ENTRYPOINT = "main-entrypoint";
 	private static final String IFDS_EXPLORER = "IFDS-Explorer";
+	private static final String IFDS_THREADS = "ifds-threads";
 	private static final String SEPARATE_ENTRIES = "separate-entries";
 	private static final String INCLUDE_LIBRARY = "include-library";
 	private static final String SYSTEM_TO_APK_CALL_GRAPH = "system-to-apk-call-graph";
@@ -94,6 +95,8 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 	private URI androidLib;
 	private URI summariesFile;
 	private ReflectionOptions reflectionOptions;
+	private int ifdsThreads;
+	private final boolean exitOnError;
 	private static final String USAGE = "[options] <.apk or .jar>";
 
 	private final Options options = new Options();
@@ -117,6 +120,11 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 				"analyze each entry point separately");
 		options.addOption("i", IFDS_EXPLORER, false,
 				"bring up a gui to analyze domainelements for flow analysis");
+		options.addOption(OptionBuilder
+				.withLongOpt(IFDS_THREADS)
+				.withDescription(
+						"number of threads for flow analysis (default: number of processors, 1 runs the sequential solver)")
+				.hasArg().withArgName("n").create());
 		options.addOption("m", MAIN_ENTRYPOINT, false,
 				"look for main methods and add them as entrypoints");
 		options.addOption("a", STDOUT_CALL_GRAPH, false,
@@ -126,7 +134,7 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 		options.addOption("x", PREFIX_ANALYSIS, false,
 				"run string prefix analysis");
 		options.addOption("f", SUMMARIES_FILE, true,
-				"Use the specified summaries xml file");
+				"Use the specified summaries file (xml or binary)");
 		options.addOption(OptionBuilder
 				.withLongOpt(TEST_CGB)
 				.withDescription(
@@ -146,15 +154,28 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 	}
 
 	public CLISCanDroidOptions(String[] args, boolean reqArgs) {
+		this(args, reqArgs, true);
+	}
+
+	/**
+	 * @param exitOnError
+	 *            whether invalid arguments end the JVM, as is right for a
+	 *            command line tool, or throw an IllegalArgumentException
+	 */
+	public CLISCanDroidOptions(String[] args, boolean reqArgs,
+			boolean exitOnError) {
+		this.exitOnError = exitOnError;
 		try {
 			line = parser.parse(options, args);
 		} catch (ParseException exp) {
-			System.err.println("Unexpected exception: " + exp.getMessage());
-			System.err.println("Usage: " + USAGE);
-			System.exit(0);
+			fail("Unexpected exception: " + exp.getMessage() + "\nUsage: "
+					+ USAGE);
 		}
 
 		if (hasOption("help")) {
+			if (!exitOnError) {
+				fail("Usage: " + USAGE);
+			}
 			HelpFormatter formatter = new HelpFormatter();
 			formatter.printHelp(USAGE, options);
 			System.exit(0);
@@ -168,8 +189,7 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 		root.setLevel(level);
 
 		if (!hasOption(ANDROID_LIB)) {
-			System.err.println("Please specify an android library");
-			System.exit(0);
+			fail("Please specify an android library");
 		}
 
 		classpath = processClasspath(reqArgs);
@@ -177,12 +197,20 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 		androidLib = processURIArg(getOption(ANDROID_LIB));
 		summariesFile = processURIArg(getOption(SUMMARIES_FILE));
 		reflectionOptions = processReflectionOptions();
+		ifdsThreads = processIfdsThreads();
 
 		if (reqArgs
 				&& !(filename.endsWith(".apk") || filename.endsWith(".jar"))) {
-			System.err.println("Usage: " + USAGE);
-			System.exit(0);
+			fail("Usage: " + USAGE);
+		}
+	}
+
+	private void fail(String message) {
+		if (!exitOnError) {
+			throw new IllegalArgumentException(message);
 		}
+		System.err.println(message);
+		System.exit(0);
 	}
 
 	private URI processURIArg(String arg) {
@@ -198,8 +226,7 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 		String[] myargs = line.getArgs();
 		if ((myargs.length != 1 || !(myargs[0].endsWith(".apk") || myargs[0]
 				.endsWith(".jar"))) && reqArgs) {
-			System.err.println("Usage: " + USAGE);
-			System.exit(0);
+			fail("Usage: " + USAGE);
 		}
 		return processURIArg(myargs[0]);
 	}
@@ -219,6 +246,19 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 		}
 	}
 
+	private int processIfdsThreads() {
+		final String threads = getOption(IFDS_THREADS);
+		if (threads == null) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+		try {
+			return Integer.parseInt(threads);
+		} catch (NumberFormatException e) {
+			fail("Invalid thread count for " + IFDS_THREADS + ": " + threads);
+			return 1;
+		}
+	}
+
 	private boolean hasOption(String s) {
 		return line != null && line.hasOption(s);
 	}
@@ -267,6 +307,11 @@ public class CLISCanDroidOptions implements ISCanDroidOptions {
 		return hasOption(IFDS_EXPLORER);
 	}
 
+	@Override
+	public int ifdsThreads() {
+		return ifdsThreads;
+	}
+
 	@Override
 	public boolean addMainEntrypoints() {
 		return hasOption(MAIN_ENTRYPOINT);
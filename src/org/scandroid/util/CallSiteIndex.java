@@ -0,0 +1,216 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Adam Fuchs          <afuchs@cs.umd.edu>
+ *  Avik Chaudhuri      <avik@cs.umd.edu>
+ *  Steve Suh           <suhsteve@gmail.com>
+ *  Galois, Inc. (Adam Foltzer <acfoltzer@galois.com)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.dataflow.IFDS.ICFGSupergraph;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.cfg.BasicBlockInContext;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAInvokeInstruction;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.types.MethodReference;
+
+/**
+ * Maps each method in a call graph to its call graph nodes and to the invoke
+ * instructions that may call it. Built in a single pass over the call graph,
+ * so that looking up the call sites of a spec's targets does not require
+ * walking caller IRs.
+ * 
+ * Invoke instructions are indexed both by the call graph's resolved targets
+ * and by the class hierarchy's possible targets for their declared method.
+ * The latter also covers sites the call graph did not resolve, e.g. because
+ * the receiver's points-to set is empty.
+ */
+public class CallSiteIndex {
+	private static final Logger logger = LoggerFactory
+			.getLogger(CallSiteIndex.class);
+
+	/**
+	 * An invoke instruction in a particular caller. The exploded block that
+	 * contains it is looked up on first use, since building the exploded CFG
+	 * of every caller up front is wasted on the many that no spec asks about.
+	 */
+	public static class Site {
+		public final CGNode caller;
+		public final int instructionIndex;
+		public final SSAInvokeInstruction invoke;
+		private final ICFGSupergraph graph;
+		private volatile BasicBlockInContext<IExplodedBasicBlock> block;
+
+		Site(CGNode caller, int instructionIndex,
+				SSAInvokeInstruction invoke, ICFGSupergraph graph) {
+			this.caller = caller;
+			this.instructionIndex = instructionIndex;
+			this.invoke = invoke;
+			this.graph = graph;
+		}
+
+		/**
+		 * @return the exploded block of the supergraph that contains the
+		 *         invoke instruction
+		 */
+		public BasicBlockInContext<IExplodedBasicBlock> getBlock() {
+			BasicBlockInContext<IExplodedBasicBlock> b = block;
+			if (b == null) {
+				b = new BasicBlockInContext<IExplodedBasicBlock>(caller, graph
+						.getICFG().getCFG(caller)
+						.getBlockForInstruction(instructionIndex));
+				block = b;
+			}
+			return b;
+		}
+
+		@Override
+		public String toString() {
+			return "Site [caller=" + caller + ", instructionIndex="
+					+ instructionIndex + "]";
+		}
+	}
+
+	private final IClassHierarchy cha;
+	// keyed by reference, like CallGraph.getNodes(MethodReference): the
+	// method of a node with a bypass summary is a SummarizedMethod, which
+	// does not equal the method of the class hierarchy
+	private final Map<MethodReference, List<CGNode>> nodes = Maps.newHashMap();
+	private final Map<MethodReference, List<Site>> sites = Maps.newHashMap();
+	private final Map<MethodReference, List<Site>> sitesByDeclaredTarget = Maps
+			.newHashMap();
+	private Map<MethodReference, List<Site>> sitesByChaTarget;
+
+	public CallSiteIndex(CallGraph cg, IClassHierarchy cha,
+			ICFGSupergraph graph) {
+		this.cha = cha;
+		for (CGNode caller : cg) {
+			get(nodes, caller.getMethod().getReference()).add(caller);
+
+			final IR ir = caller.getIR();
+			if (ir == null) {
+				continue;
+			}
+			final SSAInstruction[] insts = ir.getInstructions();
+			for (int index = 0; index < insts.length; index++) {
+				if (!(insts[index] instanceof SSAInvokeInstruction)) {
+					continue;
+				}
+				SSAInvokeInstruction invoke = (SSAInvokeInstruction) insts[index];
+				Site site = new Site(caller, index, invoke, graph);
+				get(sitesByDeclaredTarget, invoke.getDeclaredTarget()).add(site);
+				for (CGNode callee : cg.getPossibleTargets(caller,
+						invoke.getCallSite())) {
+					List<Site> calleeSites = get(sites, callee.getMethod()
+							.getReference());
+					// a method may have several nodes under different
+					// contexts, but each site should appear once
+					if (calleeSites.isEmpty()
+							|| calleeSites.get(calleeSites.size() - 1) != site) {
+						calleeSites.add(site);
+					}
+				}
+			}
+		}
+		logger.debug("indexed call sites of {} methods", sites.size());
+	}
+
+	private static <K, T> List<T> get(Map<K, List<T>> map, K key) {
+		List<T> list = map.get(key);
+		if (list == null) {
+			list = Lists.newArrayList();
+			map.put(key, list);
+		}
+		return list;
+	}
+
+	/**
+	 * @return the call graph nodes for <code>method</code>, in any context,
+	 *         including nodes of a summary standing in for it
+	 */
+	public Collection<CGNode> getNodes(IMethod method) {
+		List<CGNode> list = nodes.get(method.getReference());
+		return list == null ? Collections.<CGNode> emptyList() : Collections
+				.unmodifiableList(list);
+	}
+
+	/**
+	 * @return the invoke instructions the call graph resolves to
+	 *         <code>method</code> or to a summary standing in for it
+	 */
+	public Collection<Site> getCallSites(IMethod method) {
+		List<Site> list = sites.get(method.getReference());
+		return list == null ? Collections.<Site> emptyList() : Collections
+				.unmodifiableList(list);
+	}
+
+	/**
+	 * @return the invoke instructions whose declared target the class
+	 *         hierarchy may dispatch to <code>method</code>, whether or not
+	 *         the call graph resolved them
+	 */
+	public synchronized Collection<Site> getInvokeSites(IMethod method) {
+		if (sitesByChaTarget == null) {
+			// resolve each distinct declared target once, rather than once
+			// per invoke instruction
+			sitesByChaTarget = Maps.newHashMap();
+			for (Map.Entry<MethodReference, List<Site>> entry : sitesByDeclaredTarget
+					.entrySet()) {
+				for (IMethod target : cha.getPossibleTargets(entry.getKey())) {
+					get(sitesByChaTarget, target.getReference()).addAll(
+							entry.getValue());
+				}
+			}
+		}
+		List<Site> list = sitesByChaTarget.get(method.getReference());
+		return list == null ? Collections.<Site> emptyList() : Collections
+				.unmodifiableList(list);
+	}
+}
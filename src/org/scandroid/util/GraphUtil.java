@@ -69,21 +69,21 @@ public class GraphUtil {
 	public static <E extends ISSABasicBlock> void makePCG(
 			CGAnalysisContext<E> analysisContext) {
 		make(analysisContext.getOptions().getFilename(),
-				(Graph) analysisContext.partialGraph, "PartialCallGraph");
+				(Graph) analysisContext.getPartialGraph(), "PartialCallGraph");
 	}
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public static <E extends ISSABasicBlock> void makeOneLCG(
 			CGAnalysisContext<E> analysisContext) {
 		make(analysisContext.getOptions().getFilename(),
-				(Graph) analysisContext.oneLevelGraph, "OneLevelCallGraph");
+				(Graph) analysisContext.getOneLevelGraph(), "OneLevelCallGraph");
 	}
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public static <E extends ISSABasicBlock> void makeSystemToAPKCG(
 			CGAnalysisContext<E> analysisContext) {
 		make(analysisContext.getOptions().getFilename(),
-				(Graph) analysisContext.systemToApkGraph, "SystemToApkGraph");
+				(Graph) analysisContext.getSystemToApkGraph(), "SystemToApkGraph");
 	}
 
 	public static <E extends ISSABasicBlock> void exploreIFDS(
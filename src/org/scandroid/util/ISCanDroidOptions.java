@@ -99,6 +99,12 @@ public interface ISCanDroidOptions {
 	 */
 	public boolean ifdsExplorer();
 
+	/**
+	 * @return the number of worker threads for the IFDS flow analysis; 1 or
+	 *         less runs the sequential solver
+	 */
+	public int ifdsThreads();
+
 	/**
 	 * @return whether to look for main methods and add them as entry points
 	 */
@@ -155,7 +161,8 @@ public interface ISCanDroidOptions {
 	public ReflectionOptions getReflectionOptions();
 
 	/**
-	 * @return a URI to the XML method summaries file
+	 * @return a URI to the method summaries file, either XML or written by
+	 *         BinarySummaryWriter
 	 */
 	public URI getSummariesURI();
 
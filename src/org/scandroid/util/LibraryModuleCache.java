@@ -0,0 +1,143 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Adam Fuchs          <afuchs@cs.umd.edu>
+ *  Avik Chaudhuri      <avik@cs.umd.edu>
+ *  Steve Suh           <suhsteve@gmail.com>
+ *  Galois, Inc. (Adam Foltzer <acfoltzer@galois.com)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.ibm.wala.classLoader.DexFileModule;
+
+/**
+ * Keeps the parsed dex modules of Android libraries, so that contexts
+ * created later in this JVM over the same library skip parsing it again.
+ * 
+ * Nothing is kept on disk, so this only pays off in a JVM which analyzes
+ * several apps, i.e. the {@link org.scandroid.AnalysisDaemon}. A command line
+ * run parses its library, be it the default data/android_modeled.jar or a
+ * .dex, and the dex of the app afresh every time. The classes and hierarchies
+ * WALA builds cannot be serialized, and reading classes back from a cache on
+ * disk would mean parsing their bytecode again, so no cache outlives the JVM.
+ * 
+ * Only the modules are shared: they are not changed by class loading, so
+ * every context still builds its own class hierarchy from them and nothing
+ * one analysis adds to its hierarchy is seen by the next. Library jars are
+ * not cached here; their classes are shared along with the whole library
+ * loader by {@link SharedLibraryLoaderFactory}, which the daemon turns on.
+ * The dex of an app is not cached either, as each app is analyzed once.
+ * 
+ * Entries are keyed by a hash of the file contents rather than by path, so
+ * a library which changed on disk is parsed again. The modules are only
+ * softly reachable from the cache, and are dropped before the JVM runs out
+ * of memory.
+ */
+final class LibraryModuleCache {
+	private static final Logger logger = LoggerFactory
+			.getLogger(LibraryModuleCache.class);
+
+	private static final Cache<String, DexFileModule> cache = CacheBuilder
+			.newBuilder().softValues().build();
+
+	private LibraryModuleCache() {
+	}
+
+	/**
+	 * @param tag
+	 *            distinguishes things built differently from the same inputs
+	 * @param inputs
+	 *            the files the key is made for; <code>null</code>s are
+	 *            allowed
+	 * @return a key which changes whenever the contents of the inputs do,
+	 *         starting with the tag
+	 * @throws IOException
+	 */
+	static String key(String tag, URI... inputs) throws IOException {
+		final Hasher hasher = Hashing.sha1().newHasher();
+		hasher.putString(tag);
+		for (URI input : inputs) {
+			hasher.putByte((byte) 0);
+			if (input == null) {
+				continue;
+			}
+			final File f = new File(input);
+			hasher.putString(f.getName());
+			hasher.putBytes(Files.hash(f, Hashing.sha1()).asBytes());
+		}
+		return tag + "/" + hasher.hash().toString();
+	}
+
+	/**
+	 * @return the module of the .dex or .apk <code>library</code>, parsing it
+	 *         if it is not cached
+	 */
+	static DexFileModule dexModule(final URI library) throws IOException {
+		final String key = key("dex", library);
+		try {
+			final DexFileModule cached = cache.getIfPresent(key);
+			if (cached != null) {
+				logger.debug("reusing dex module {}", key);
+				return cached;
+			}
+			return cache.get(key, new Callable<DexFileModule>() {
+				@Override
+				public DexFileModule call() {
+					return new DexFileModule(new File(library));
+				}
+			});
+		} catch (ExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		} catch (UncheckedExecutionException e) {
+			// e.g. the IllegalArgumentException of an unreadable dex file
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Adam Fuchs          <afuchs@cs.umd.edu>
+ *  Avik Chaudhuri      <avik@cs.umd.edu>
+ *  Steve Suh           <suhsteve@gmail.com>
+ *  Galois, Inc. (Adam Foltzer <acfoltzer@galois.com)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.util;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.impl.SetOfClasses;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+
+/**
+ * A class loader factory which hands every class hierarchy built over the
+ * same Android library the Primordial loader of one hierarchy built over the
+ * library alone, so the library is loaded once per JVM and only the
+ * application is loaded for each new hierarchy. The other loaders are made
+ * afresh every time.
+ * 
+ * Classes of the shared loader answer that library hierarchy from
+ * {@link com.ibm.wala.classLoader.IClass#getClassHierarchy()}. It holds the
+ * same library classes as the application's hierarchy and never any
+ * application class, so no application hierarchy is reachable from the
+ * shared loader. The library hierarchies are held softly and dropped by
+ * {@link #release()}.
+ */
+final class SharedLibraryLoaderFactory extends ClassLoaderFactoryImpl {
+	private static final Logger logger = LoggerFactory
+			.getLogger(SharedLibraryLoaderFactory.class);
+
+	private static final Cache<String, IClassHierarchy> libraries = CacheBuilder
+			.newBuilder().softValues().build();
+
+	private final String key;
+	private final Callable<AnalysisScope> libraryScope;
+
+	/**
+	 * @param key
+	 *            identifies the library and exclusions, see
+	 *            {@link LibraryModuleCache#key(String, java.net.URI...)}
+	 * @param libraryScope
+	 *            makes the scope of the library hierarchy, with the library in
+	 *            the Primordial loader and nothing in the Application loader;
+	 *            only called when no hierarchy is cached for <code>key</code>
+	 */
+	SharedLibraryLoaderFactory(SetOfClasses exclusions, String key,
+			Callable<AnalysisScope> libraryScope) {
+		super(exclusions);
+		this.key = key;
+		this.libraryScope = libraryScope;
+	}
+
+	@Override
+	public IClassLoader getLoader(ClassLoaderReference classLoaderReference,
+			IClassHierarchy cha, AnalysisScope scope) throws IOException {
+		if (!ClassLoaderReference.Primordial.equals(classLoaderReference)) {
+			return super.getLoader(classLoaderReference, cha, scope);
+		}
+		return library().getLoader(ClassLoaderReference.Primordial);
+	}
+
+	private IClassHierarchy library() {
+		IClassHierarchy library = libraries.getIfPresent(key);
+		if (library != null) {
+			logger.debug("reusing library hierarchy {}", key);
+			return library;
+		}
+		try {
+			return libraries.get(key, new Callable<IClassHierarchy>() {
+				@Override
+				public IClassHierarchy call() throws Exception {
+					logger.debug("building library hierarchy {}", key);
+					return ClassHierarchy.make(libraryScope.call());
+				}
+			});
+		} catch (ExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		} catch (UncheckedExecutionException e) {
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	/**
+	 * Drop the library hierarchies, so the next hierarchy loads the library
+	 * again. Hierarchies built before keep their loaders.
+	 */
+	static void release() {
+		libraries.invalidateAll();
+	}
+}
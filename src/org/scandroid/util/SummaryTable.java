@@ -0,0 +1,235 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Adam Fuchs          <afuchs@cs.umd.edu>
+ *  Avik Chaudhuri      <avik@cs.umd.edu>
+ *  Steve Suh           <suhsteve@gmail.com>
+ *  Galois, Inc. (Adam Foltzer <acfoltzer@galois.com)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.commons.io.IOUtils;
+import org.scandroid.synthmethod.BinarySummaryReader;
+import org.scandroid.synthmethod.BinarySummaryWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ipa.summaries.XMLMethodSummaryReader;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.strings.Atom;
+
+/**
+ * The method summaries of one summaries file, as used by
+ * {@link AndroidAnalysisContext#addBypassLogic}.
+ * 
+ * Tables are cached by a hash of the file contents, so each summaries file
+ * is parsed once per JVM no matter how many call graphs are built with it.
+ * The summaries are shared between those builds and must not be modified.
+ * 
+ * A summaries file may be XML or written by {@link BinarySummaryWriter};
+ * {@link #main(String[])} precompiles an XML file to the binary format.
+ */
+public final class SummaryTable {
+	private static final Logger logger = LoggerFactory
+			.getLogger(SummaryTable.class);
+
+	private static final String nativeSpec = "data/MethodSummaries.xml";
+	private static final String precompiledNativeSpec = "data/MethodSummaries.summaries";
+
+	private static final Cache<String, SummaryTable> cache = CacheBuilder
+			.newBuilder().softValues().build();
+
+	private final Map<MethodReference, MethodSummary> summaries;
+	private final Set<TypeReference> allocatableClasses;
+	private final Set<Atom> ignoredPackages;
+
+	private SummaryTable(Map<MethodReference, MethodSummary> summaries,
+			Set<TypeReference> allocatableClasses, Set<Atom> ignoredPackages) {
+		this.summaries = ImmutableMap.copyOf(summaries);
+		this.allocatableClasses = ImmutableSet.copyOf(allocatableClasses);
+		this.ignoredPackages = ImmutableSet.copyOf(ignoredPackages);
+	}
+
+	public Map<MethodReference, MethodSummary> getSummaries() {
+		return summaries;
+	}
+
+	public Set<TypeReference> getAllocatableClasses() {
+		return allocatableClasses;
+	}
+
+	public Set<Atom> getIgnoredPackages() {
+		return ignoredPackages;
+	}
+
+	/**
+	 * The summaries of the native and otherwise modeled library methods
+	 * shipped in data/. The precompiled form is used instead of the XML if
+	 * it is there and, when both are plain files, not older than the XML.
+	 */
+	public static SummaryTable natives(AnalysisScope scope) throws IOException {
+		ClassLoader cl = SummaryTable.class.getClassLoader();
+		URL xml = cl.getResource(nativeSpec);
+		URL precompiled = cl.getResource(precompiledNativeSpec);
+		URL source = xml;
+		if (precompiled != null
+				&& (xml == null || !olderThan(precompiled, xml))) {
+			source = precompiled;
+		}
+		if (source == null) {
+			throw new IOException("could not find " + nativeSpec);
+		}
+		InputStream in = source.openStream();
+		try {
+			return load(in, scope);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * The summaries in a stream, which is read to the end but not closed.
+	 */
+	public static SummaryTable load(InputStream in, final AnalysisScope scope)
+			throws IOException {
+		final byte[] bytes = IOUtils.toByteArray(in);
+		final String key = Hashing.sha1().hashBytes(bytes).toString();
+		try {
+			final SummaryTable cached = cache.getIfPresent(key);
+			if (cached != null) {
+				logger.debug("reusing summaries {}", key);
+				return cached;
+			}
+			return cache.get(key, new Callable<SummaryTable>() {
+				@Override
+				public SummaryTable call() throws Exception {
+					return parse(bytes, scope);
+				}
+			});
+		} catch (ExecutionException e) {
+			Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+			throw Throwables.propagate(e.getCause());
+		}
+	}
+
+	private static SummaryTable parse(byte[] bytes, AnalysisScope scope)
+			throws IOException {
+		InputStream in = new ByteArrayInputStream(bytes);
+		if (BinarySummaryReader.isBinarySummary(in)) {
+			BinarySummaryReader reader = new BinarySummaryReader(in, scope);
+			return new SummaryTable(reader.getSummaries(),
+					reader.getAllocatableClasses(), reader.getIgnoredPackages());
+		}
+		XMLMethodSummaryReader reader = new XMLMethodSummaryReader(in, scope);
+		for (MethodSummary summary : reader.getSummaries().values()) {
+			logger.trace("SSA instructions for summary of {}:\n{}", summary
+					.getMethod().getSignature().toString(), Arrays
+					.toString(summary.getStatements()));
+		}
+		return new SummaryTable(reader.getSummaries(),
+				reader.getAllocatableClasses(), reader.getIgnoredPackages());
+	}
+
+	private static boolean olderThan(URL a, URL b) {
+		if (!"file".equals(a.getProtocol()) || !"file".equals(b.getProtocol())) {
+			return false;
+		}
+		try {
+			return new File(a.toURI()).lastModified() < new File(b.toURI())
+					.lastModified();
+		} catch (URISyntaxException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Precompile an XML summaries file to the binary format, e.g.
+	 * 
+	 * <pre>
+	 * SummaryTable data/MethodSummaries.xml data/MethodSummaries.summaries
+	 * </pre>
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("usage: SummaryTable <summaries.xml> <output>");
+			System.exit(1);
+		}
+		InputStream in = new FileInputStream(args[0]);
+		SummaryTable table;
+		try {
+			table = parse(IOUtils.toByteArray(in),
+					AnalysisScope.createJavaAnalysisScope());
+		} finally {
+			in.close();
+		}
+		BinarySummaryWriter writer = new BinarySummaryWriter(
+				new FileOutputStream(args[1]));
+		try {
+			for (MethodSummary summary : table.getSummaries().values()) {
+				writer.add(summary);
+			}
+			for (TypeReference type : table.getAllocatableClasses()) {
+				writer.addAllocatable(type);
+			}
+			for (Atom pkg : table.getIgnoredPackages()) {
+				writer.addIgnoredPackage(pkg);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+}
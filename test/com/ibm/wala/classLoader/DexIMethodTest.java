@@ -0,0 +1,238 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Adam Fuchs          <afuchs@cs.umd.edu>
+ *  Avik Chaudhuri      <avik@cs.umd.edu>
+ *  Steve Suh           <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package com.ibm.wala.classLoader;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.scandroid.synthmethod.DefaultSCanDroidOptions;
+import org.scandroid.util.AndroidAnalysisContext;
+import org.scandroid.util.CGAnalysisContext;
+import org.scandroid.util.IEntryPointSpecifier;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ssa.IRFactory;
+import com.ibm.wala.ssa.SSAOptions;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.strings.StringStuff;
+
+/**
+ * Checks the field access tables of dex methods against the field
+ * instructions of the test jar.
+ */
+public class DexIMethodTest {
+	private static final String TEST_DEX = "data/testdata/testJar-1.0-SNAPSHOT.dex";
+
+	private static final FieldReference FOO = field(
+			"Lorg/scandroid/testing/GlobalStatics", "FOO", "Ljava/lang/String");
+	private static final FieldReference STR = field(
+			"Lorg/scandroid/testing/FieldAccessTest", "str",
+			"Ljava/lang/String");
+	private static final FieldReference VAL = field(
+			"Lorg/scandroid/testing/FieldAccessTest", "val",
+			"Ljava/lang/Integer");
+
+	private static AndroidAnalysisContext dex;
+
+	@BeforeClass
+	public static void loadDex() throws Exception {
+		dex = analysisContext(TEST_DEX);
+	}
+
+	@Test
+	public void testStaticFields() {
+		DexIMethod getFoo = method(dex,
+				"org.scandroid.testing.GlobalStatics.getFoo()Ljava/lang/Integer;");
+		Assert.assertEquals(ImmutableSet.of(FOO),
+				Sets.newHashSet(getFoo.getFieldsRead()));
+		Assert.assertTrue(getFoo.getFieldsWritten().isEmpty());
+
+		DexIMethod setFoo = method(dex,
+				"org.scandroid.testing.GlobalStatics.setFoo(Ljava/lang/Integer;)V");
+		Assert.assertTrue(setFoo.getFieldsRead().isEmpty());
+		Assert.assertEquals(ImmutableSet.of(FOO),
+				Sets.newHashSet(setFoo.getFieldsWritten()));
+
+		DexIMethod main = method(dex,
+				"org.scandroid.testing.FieldAccessTest.main([Ljava/lang/String;)Ljava/lang/Object;");
+		Assert.assertTrue(main.getFieldsRead().isEmpty());
+		Assert.assertEquals(ImmutableSet.of(STR),
+				Sets.newHashSet(main.getFieldsWritten()));
+	}
+
+	@Test
+	public void testInstanceFields() {
+		DexIMethod init = method(dex,
+				"org.scandroid.testing.FieldAccessTest.<init>()V");
+		Assert.assertTrue(init.getFieldsRead().isEmpty());
+		Assert.assertEquals(ImmutableSet.of(VAL),
+				Sets.newHashSet(init.getFieldsWritten()));
+
+		DexIMethod getClassField = method(dex,
+				"org.scandroid.testing.FieldAccessTest.getClassField()Ljava/lang/String;");
+		Assert.assertEquals(ImmutableSet.of(VAL),
+				Sets.newHashSet(getClassField.getFieldsRead()));
+		Assert.assertTrue(getClassField.getFieldsWritten().isEmpty());
+	}
+
+	@Test
+	public void testNoInstructionsLeftDecoded() throws Exception {
+		Field decoded = DexIMethod.class.getDeclaredField("decoded");
+		decoded.setAccessible(true);
+		Field codeItem = DexIMethod.class.getDeclaredField("codeItem");
+		codeItem.setAccessible(true);
+
+		int methods = 0;
+		for (IClass klass : dex.getClassHierarchy()) {
+			if (!(klass instanceof DexIClass)) {
+				continue;
+			}
+			for (IMethod m : klass.getDeclaredMethods()) {
+				DexIMethod method = (DexIMethod) m;
+				method.getFieldsRead();
+				method.getFieldsWritten();
+				Assert.assertNull(method + " kept its instructions",
+						decoded.get(method));
+				// no IR was built, so nothing else asked for the code
+				Assert.assertNull(method + " kept its code item",
+						codeItem.get(method));
+				methods++;
+			}
+		}
+		Assert.assertTrue(methods > 0);
+	}
+
+	/**
+	 * The test jar has no abstract or native methods, so the annotations of
+	 * the activity model stand in.
+	 */
+	@Test
+	public void testMethodWithoutCode() throws Exception {
+		AndroidAnalysisContext model = analysisContext("models/ActivityModel.apk");
+		DexIMethod value = method(model,
+				"android.annotation.SuppressLint.value()[Ljava/lang/String;");
+		Assert.assertTrue(value.isAbstract());
+		Assert.assertTrue(value.getFieldsRead().isEmpty());
+		Assert.assertTrue(value.getFieldsWritten().isEmpty());
+	}
+
+	@Test
+	public void testContextInterpreter() throws Exception {
+		final MethodReference main = StringStuff
+				.makeMethodReference("org.scandroid.testing.FieldAccessTest.main([Ljava/lang/String;)Ljava/lang/Object;");
+		CGAnalysisContext<IExplodedBasicBlock> ctx = new CGAnalysisContext<IExplodedBasicBlock>(
+				analysisContext(TEST_DEX), new IEntryPointSpecifier() {
+					@Override
+					public List<Entrypoint> specify(
+							AndroidAnalysisContext analysisContext) {
+						return Lists.newArrayList((Entrypoint) new DefaultEntrypoint(
+								main, analysisContext.getClassHierarchy()));
+					}
+				});
+		@SuppressWarnings("unchecked")
+		DexIContextInterpreter interpreter = new DexIContextInterpreter(
+				SSAOptions.defaultOptions(), new AnalysisCache(
+						(IRFactory<IMethod>) new DexIRFactory()));
+
+		Set<FieldReference> read = Sets.newHashSet();
+		Set<FieldReference> written = Sets.newHashSet();
+		for (CGNode node : ctx.cg) {
+			if (!interpreter.understands(node)) {
+				continue;
+			}
+			DexIMethod method = (DexIMethod) node.getMethod();
+			Collection<FieldReference> nodeRead = Lists
+					.newArrayList(interpreter.iterateFieldsRead(node));
+			Collection<FieldReference> nodeWritten = Lists
+					.newArrayList(interpreter.iterateFieldsWritten(node));
+			Assert.assertEquals(method.getFieldsRead(), nodeRead);
+			Assert.assertEquals(method.getFieldsWritten(), nodeWritten);
+			read.addAll(nodeRead);
+			written.addAll(nodeWritten);
+		}
+		// main writes str, runs the constructor and reads str in getStr()
+		Assert.assertEquals(ImmutableSet.of(STR), read);
+		Assert.assertEquals(ImmutableSet.of(STR, VAL), written);
+	}
+
+	private static AndroidAnalysisContext analysisContext(final String path)
+			throws Exception {
+		return new AndroidAnalysisContext(new DefaultSCanDroidOptions() {
+			@Override
+			public URI getClasspath() {
+				return new File(path).toURI();
+			}
+
+			@Override
+			public boolean stdoutCG() {
+				return false;
+			}
+		});
+	}
+
+	private static DexIMethod method(AndroidAnalysisContext ctx,
+			String signature) {
+		IMethod method = ctx.getClassHierarchy().resolveMethod(
+				StringStuff.makeMethodReference(signature));
+		Assert.assertNotNull(signature, method);
+		return (DexIMethod) method;
+	}
+
+	private static FieldReference field(String klass, String name, String type) {
+		return FieldReference.findOrCreate(ClassLoaderReference.Application,
+				klass, name, type);
+	}
+}
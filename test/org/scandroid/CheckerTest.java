@@ -0,0 +1,200 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.scandroid.flow.types.FlowType;
+import org.scandroid.flow.types.IKFlow;
+import org.scandroid.flow.types.ParameterFlow;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.util.collections.Pair;
+
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class CheckerTest {
+
+	/**
+	 * An instance key which is only equal to itself
+	 */
+	private static class FakeInstanceKey implements InstanceKey {
+		private final int id;
+
+		FakeInstanceKey(int id) {
+			this.id = id;
+		}
+
+		public IClass getConcreteType() {
+			return null;
+		}
+
+		public Iterator<Pair<CGNode, NewSiteReference>> getCreationSites(
+				CallGraph cg) {
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return "ik" + id;
+		}
+	}
+
+	/**
+	 * A random flow graph over instance key flows and parameter flows, which
+	 * stand in for the intermediate flow types.
+	 */
+	private static Map<FlowType, Set<FlowType>> randomFlow(Random random,
+			int iks, int others, int edges) {
+		FlowType[] flows = new FlowType[iks + others];
+		for (int i = 0; i < iks; i++) {
+			flows[i] = new IKFlow(new FakeInstanceKey(i), null,
+					random.nextBoolean());
+		}
+		for (int i = 0; i < others; i++) {
+			flows[iks + i] = new ParameterFlow(null, i, random.nextBoolean());
+		}
+		Map<FlowType, Set<FlowType>> flow = new HashMap<FlowType, Set<FlowType>>();
+		for (int e = 0; e < edges; e++) {
+			FlowType source = flows[random.nextInt(flows.length)];
+			Set<FlowType> dests = flow.get(source);
+			if (dests == null) {
+				dests = new HashSet<FlowType>();
+				flow.put(source, dests);
+			}
+			dests.add(flows[random.nextInt(flows.length)]);
+		}
+		return flow;
+	}
+
+	/**
+	 * The closure as a fixed point over the whole map: every round adds the
+	 * successors of each destination, until a round adds nothing.
+	 */
+	private static Map<IKFlow, Set<IKFlow>> naiveClosure(
+			Map<FlowType, Set<FlowType>> permissionFlow) {
+		Map<FlowType, Set<FlowType>> growingFlow = new HashMap<FlowType, Set<FlowType>>();
+		for (Entry<FlowType, Set<FlowType>> e : permissionFlow.entrySet()) {
+			growingFlow.put(e.getKey(), new HashSet<FlowType>(e.getValue()));
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Set<FlowType> dests : growingFlow.values()) {
+				Set<FlowType> added = new HashSet<FlowType>();
+				for (FlowType v : dests) {
+					Set<FlowType> next = growingFlow.get(v);
+					if (next != null) {
+						added.addAll(next);
+					}
+				}
+				changed = dests.addAll(added) || changed;
+			}
+		}
+		Map<IKFlow, Set<IKFlow>> uriFlow = new HashMap<IKFlow, Set<IKFlow>>();
+		for (Entry<FlowType, Set<FlowType>> e : growingFlow.entrySet()) {
+			if (!(e.getKey() instanceof IKFlow)) {
+				continue;
+			}
+			Set<IKFlow> dests = new HashSet<IKFlow>();
+			for (FlowType v : e.getValue()) {
+				if (v instanceof IKFlow) {
+					dests.add((IKFlow) v);
+				}
+			}
+			if (!dests.isEmpty()) {
+				uriFlow.put((IKFlow) e.getKey(), dests);
+			}
+		}
+		return uriFlow;
+	}
+
+	@Test
+	public void testMatchesNaiveClosure() {
+		Random random = new Random(0x5ca4d201L);
+		for (int round = 0; round < 300; round++) {
+			int iks = 1 + random.nextInt(40);
+			int others = random.nextInt(40);
+			int edges = random.nextInt(3 * (iks + others));
+			Map<FlowType, Set<FlowType>> flow = randomFlow(random, iks,
+					others, edges);
+			Assert.assertEquals("round " + round, naiveClosure(flow),
+					Checker.computeClosure(flow));
+		}
+	}
+
+	@Test
+	public void testCycles() {
+		IKFlow a = new IKFlow(new FakeInstanceKey(0), null, true);
+		IKFlow b = new IKFlow(new FakeInstanceKey(1), null, true);
+		IKFlow c = new IKFlow(new FakeInstanceKey(2), null, true);
+		FlowType p = new ParameterFlow(null, 0, false);
+		Map<FlowType, Set<FlowType>> flow = new HashMap<FlowType, Set<FlowType>>();
+		// a -> p -> b -> a, and b -> c
+		flow.put(a, new HashSet<FlowType>());
+		flow.get(a).add(p);
+		flow.put(p, new HashSet<FlowType>());
+		flow.get(p).add(b);
+		flow.put(b, new HashSet<FlowType>());
+		flow.get(b).add(a);
+		flow.get(b).add(c);
+
+		Map<IKFlow, Set<IKFlow>> closure = Checker.computeClosure(flow);
+		Set<IKFlow> all = new HashSet<IKFlow>();
+		all.add(a);
+		all.add(b);
+		all.add(c);
+		Assert.assertEquals(all, closure.get(a));
+		Assert.assertEquals(all, closure.get(b));
+		// c has no outgoing flow
+		Assert.assertFalse(closure.containsKey(c));
+	}
+}
@@ -396,6 +396,33 @@ public class DataflowTest {
 				}, name, name + ".dot");
 			}
 		}
+		ISpecs specs = specsFor(ctx, entrypoint);
+
+		Map<FlowType<IExplodedBasicBlock>, Set<FlowType<IExplodedBasicBlock>>> dfResults = runDFAnalysis(
+				ctx, specs);
+
+		Set<String> flows = Sets.newHashSet();
+		for (FlowType<IExplodedBasicBlock> src : dfResults.keySet()) {
+			for (FlowType<IExplodedBasicBlock> dst : dfResults.get(src)) {
+				final String lhs = src.descString();
+				final String rhs = dst.descString();
+				if (!lhs.equals(rhs)) {
+					// suppress identity edges
+					flows.add(lhs + " -> " + rhs);
+				}
+			}
+		}
+		Assert.assertEquals(
+				gold.getFlows(entrypoint.getMethod().getSignature()), flows);
+	}
+
+	/**
+	 * @return the specs the test of <code>entrypoint</code> analyzes with:
+	 *         those of its gold results, of the statics it touches and of
+	 *         the SourceSink test class
+	 */
+	public static ISpecs specsFor(CGAnalysisContext<IExplodedBasicBlock> ctx,
+			Entrypoint entrypoint) {
 		ISpecs methodSpecs = TestSpecs.specsFromDescriptor(
 				ctx.getClassHierarchy(), entrypoint.getMethod().getSignature());
 
@@ -430,26 +457,8 @@ public class DataflowTest {
 
 		ISpecs staticsSpecs = new StaticSpecs(ctx.getClassHierarchy(),
 				entrypoint.getMethod().getSignature());
-		// ISpecs specs = TestSpecs.combine(methodSpecs, sourceSinkSpecs);
-		ISpecs specs = SpecUtils.combine(staticsSpecs,
+		return SpecUtils.combine(staticsSpecs,
 				SpecUtils.combine(methodSpecs, sourceSinkSpecs));
-
-		Map<FlowType<IExplodedBasicBlock>, Set<FlowType<IExplodedBasicBlock>>> dfResults = runDFAnalysis(
-				ctx, specs);
-
-		Set<String> flows = Sets.newHashSet();
-		for (FlowType<IExplodedBasicBlock> src : dfResults.keySet()) {
-			for (FlowType<IExplodedBasicBlock> dst : dfResults.get(src)) {
-				final String lhs = src.descString();
-				final String rhs = dst.descString();
-				if (!lhs.equals(rhs)) {
-					// suppress identity edges
-					flows.add(lhs + " -> " + rhs);
-				}
-			}
-		}
-		Assert.assertEquals(
-				gold.getFlows(entrypoint.getMethod().getSignature()), flows);
 	}
 
 	private Map<FlowType<IExplodedBasicBlock>, Set<FlowType<IExplodedBasicBlock>>> runDFAnalysis(
@@ -0,0 +1,167 @@
+/*
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>,
+ *                Rogan Creswick <creswick@galois.com>,
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+
+package org.scandroid.domain;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.scandroid.flow.types.FlowType;
+import org.scandroid.flow.types.ParameterFlow;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+
+public class IFDSTaintDomainTest {
+	private static final int LOCALS = 500;
+	private static final int FLOWS = 8;
+
+	private static FlowType<IExplodedBasicBlock> flow(int i) {
+		return new ParameterFlow<IExplodedBasicBlock>(null, i, true);
+	}
+
+	@Test
+	public void testIndicesAreStable() {
+		IFDSTaintDomain<IExplodedBasicBlock> domain = new IFDSTaintDomain<IExplodedBasicBlock>();
+		for (int l = 0; l < LOCALS; l++) {
+			for (int f = 0; f < FLOWS; f++) {
+				int i = domain.getMappedIndex(new LocalElement(l), flow(f));
+				Assert.assertEquals(new DomainElement(new LocalElement(l),
+						flow(f)), domain.getMappedObject(i));
+			}
+			domain.getMappedIndex(new LocalElement(l), null);
+		}
+		Assert.assertEquals(LOCALS * (FLOWS + 1), domain.getMaximumIndex());
+		Assert.assertEquals(LOCALS * (FLOWS + 1) + 1, domain.getSize());
+
+		for (int i = 1; i <= domain.getMaximumIndex(); i++) {
+			DomainElement de = domain.getMappedObject(i);
+			Assert.assertTrue(domain.hasMappedIndex(de));
+			Assert.assertEquals(i, domain.getMappedIndex(de));
+			Assert.assertEquals(i, domain.getMappedIndex(de.codeElement,
+					de.taintSource));
+		}
+		Assert.assertFalse(domain.hasMappedIndex(new DomainElement(
+				new LocalElement(LOCALS), null)));
+		Assert.assertFalse(domain.hasMappedIndex(new DomainElement(
+				new LocalElement(0), flow(FLOWS))));
+		Assert.assertNull(domain.getMappedObject(0));
+		Assert.assertNull(domain.getMappedObject(domain.getSize()));
+	}
+
+	@Test
+	public void testPossibleElements() {
+		IFDSTaintDomain<IExplodedBasicBlock> domain = new IFDSTaintDomain<IExplodedBasicBlock>();
+		for (int f = 0; f < FLOWS; f++) {
+			domain.getMappedIndex(new LocalElement(1), flow(f));
+			domain.getMappedIndex(new LocalElement(2), flow(f));
+		}
+		Assert.assertEquals(FLOWS,
+				domain.getPossibleElements(new LocalElement(1)).size());
+		for (DomainElement de : domain.getPossibleElements(new LocalElement(2))) {
+			Assert.assertEquals(new LocalElement(2), de.codeElement);
+		}
+		Assert.assertTrue(domain.getPossibleElements(new LocalElement(3))
+				.isEmpty());
+		Assert.assertEquals(
+				Sets.<CodeElement> newHashSet(new LocalElement(1),
+						new LocalElement(2)), domain.codeElements());
+		Assert.assertEquals(2 * FLOWS, Lists.newArrayList(domain).size());
+	}
+
+	@Test
+	public void testCodeIds() {
+		IFDSTaintDomain<IExplodedBasicBlock> domain = new IFDSTaintDomain<IExplodedBasicBlock>();
+		int from = domain.getMappedIndex(new LocalElement(1), flow(0));
+		int to = domain.getCodeId(new LocalElement(2));
+		Assert.assertEquals(to, domain.getCodeId(new LocalElement(2)));
+		Assert.assertEquals(domain.getCodeId(new LocalElement(1)),
+				domain.getCodeId(from));
+		// interning a code element does not make it part of the domain
+		Assert.assertEquals(
+				Sets.<CodeElement> newHashSet(new LocalElement(1)),
+				domain.codeElements());
+
+		int i = domain.getMappedIndex(to, from);
+		Assert.assertEquals(new DomainElement(new LocalElement(2), flow(0)),
+				domain.getMappedObject(i));
+		Assert.assertEquals(i, domain.getMappedIndex(to, from));
+		Assert.assertEquals(to, domain.getCodeId(i));
+		Assert.assertSame(domain.getSingleton(i), domain.getSingleton(i));
+		Assert.assertTrue(domain.getSingleton(i).contains(i));
+		Assert.assertEquals(1, domain.getSingleton(i).size());
+	}
+
+	@Test
+	public void testConcurrentLookups() throws Exception {
+		final IFDSTaintDomain<IExplodedBasicBlock> domain = new IFDSTaintDomain<IExplodedBasicBlock>();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<int[]>> results = Lists.newArrayList();
+			for (int t = 0; t < 4; t++) {
+				results.add(pool.submit(new Callable<int[]>() {
+					@Override
+					public int[] call() {
+						int[] indices = new int[LOCALS * FLOWS];
+						for (int l = 0; l < LOCALS; l++) {
+							for (int f = 0; f < FLOWS; f++) {
+								indices[l * FLOWS + f] = domain.getMappedIndex(
+										new LocalElement(l), flow(f));
+							}
+						}
+						return indices;
+					}
+				}));
+			}
+			int[] expected = results.get(0).get();
+			for (Future<int[]> result : results) {
+				Assert.assertArrayEquals(expected, result.get());
+			}
+			Assert.assertEquals(LOCALS * FLOWS, domain.getMaximumIndex());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
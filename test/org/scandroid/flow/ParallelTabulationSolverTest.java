@@ -0,0 +1,180 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.flow;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.scandroid.dataflow.DataflowTest;
+import org.scandroid.domain.CodeElement;
+import org.scandroid.domain.DomainElement;
+import org.scandroid.domain.IFDSTaintDomain;
+import org.scandroid.flow.functions.TaintTransferFunctions;
+import org.scandroid.flow.types.FlowType;
+import org.scandroid.spec.ISpecs;
+import org.scandroid.synthmethod.DefaultSCanDroidOptions;
+import org.scandroid.util.AndroidAnalysisContext;
+import org.scandroid.util.CGAnalysisContext;
+import org.scandroid.util.IEntryPointSpecifier;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.cfg.BasicBlockInContext;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.intset.IntIterator;
+
+/**
+ * Solves the problems of {@link DataflowTest} with several threads and
+ * checks that the facts at every supergraph node are those the sequential
+ * solver finds.
+ */
+@RunWith(Parameterized.class)
+public class ParallelTabulationSolverTest {
+	private static final int THREADS = 4;
+
+	@Parameters(name = "{1}")
+	public static Collection<Object[]> setup() throws Throwable {
+		return DataflowTest.setup();
+	}
+
+	private final String whichJar;
+	private final Entrypoint entrypoint;
+
+	public ParallelTabulationSolverTest(String jarSuffix,
+			String methodDescriptor, Entrypoint entrypoint) {
+		this.whichJar = jarSuffix;
+		this.entrypoint = entrypoint;
+	}
+
+	@Test
+	public void testSameFactsAsSequential() throws Throwable {
+		// methods of the gold results missing from the test jar
+		Assume.assumeNotNull(entrypoint);
+
+		final URI summaries = ParallelTabulationSolverTest.class.getResource(
+				"/data/MethodSummaries.xml").toURI();
+		AndroidAnalysisContext analysisContext = new AndroidAnalysisContext(
+				new DefaultSCanDroidOptions() {
+					@Override
+					public URI getClasspath() {
+						return new File("data/testdata/testJar-1.0-SNAPSHOT."
+								+ whichJar).toURI();
+					}
+
+					@Override
+					public URI getSummariesURI() {
+						return summaries;
+					}
+
+					@Override
+					public boolean stdoutCG() {
+						return false;
+					}
+				});
+		CGAnalysisContext<IExplodedBasicBlock> ctx = new CGAnalysisContext<IExplodedBasicBlock>(
+				analysisContext, new IEntryPointSpecifier() {
+					@Override
+					public List<Entrypoint> specify(
+							AndroidAnalysisContext analysisContext) {
+						return Lists.newArrayList(entrypoint);
+					}
+				});
+		ISpecs specs = DataflowTest.specsFor(ctx, entrypoint);
+		Map<BasicBlockInContext<IExplodedBasicBlock>, Map<FlowType<IExplodedBasicBlock>, Set<CodeElement>>> initialTaints = InflowAnalysis
+				.analyze(ctx, new HashMap<InstanceKey, String>(), specs);
+
+		Map<BasicBlockInContext<IExplodedBasicBlock>, Set<DomainElement>> sequential = solve(
+				ctx, initialTaints, 1);
+		Map<BasicBlockInContext<IExplodedBasicBlock>, Set<DomainElement>> parallel = solve(
+				ctx, initialTaints, THREADS);
+		Assert.assertEquals(sequential.keySet(), parallel.keySet());
+		for (BasicBlockInContext<IExplodedBasicBlock> node : sequential
+				.keySet()) {
+			Assert.assertEquals("facts at " + node, sequential.get(node),
+					parallel.get(node));
+		}
+	}
+
+	/**
+	 * @return the facts at each reached supergraph node. Each solve gets its
+	 *         own domain, so the facts are compared as domain elements rather
+	 *         than by index.
+	 */
+	private static Map<BasicBlockInContext<IExplodedBasicBlock>, Set<DomainElement>> solve(
+			CGAnalysisContext<IExplodedBasicBlock> ctx,
+			Map<BasicBlockInContext<IExplodedBasicBlock>, Map<FlowType<IExplodedBasicBlock>, Set<CodeElement>>> initialTaints,
+			int threads) {
+		IFDSTaintDomain<IExplodedBasicBlock> domain = new IFDSTaintDomain<IExplodedBasicBlock>();
+		TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, DomainElement> result = FlowAnalysis
+				.analyze(ctx.graph, ctx.cg, ctx.pa, initialTaints, domain,
+						null, new TaintTransferFunctions<IExplodedBasicBlock>(
+								domain, ctx.graph, ctx.pa, true), threads);
+
+		Map<BasicBlockInContext<IExplodedBasicBlock>, Set<DomainElement>> facts = Maps
+				.newHashMap();
+		for (BasicBlockInContext<IExplodedBasicBlock> node : result
+				.getSupergraphNodesReached()) {
+			Set<DomainElement> elements = Sets.newHashSet();
+			for (IntIterator it = result.getResult(node).intIterator(); it
+					.hasNext();) {
+				int i = it.next();
+				elements.add(i == 0 ? null : domain.getMappedObject(i));
+			}
+			facts.put(node, elements);
+		}
+		return facts;
+	}
+}
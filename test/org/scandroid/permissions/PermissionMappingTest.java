@@ -0,0 +1,165 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.permissions;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.scandroid.PermissionMapping;
+import org.scandroid.PermissionMappingSpecs;
+import org.scandroid.spec.ISpecs;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+
+/**
+ * Checks the converted permission mappings against the serialized map they
+ * were converted from.
+ */
+public class PermissionMappingTest {
+
+	private static Map<String, Set<String>> serialized;
+	private static PermissionMapping converted;
+
+	@BeforeClass
+	@SuppressWarnings("unchecked")
+	public static void setUp() throws Exception {
+		InputStream in = PermissionMappingTest.class
+				.getResourceAsStream("/data/gingerbread_allmappings_HashMap.bin");
+		Assert.assertNotNull(in);
+		try {
+			serialized = (Map<String, Set<String>>) new ObjectInputStream(in)
+					.readObject();
+		} finally {
+			in.close();
+		}
+		converted = load("/data/gingerbread_allmappings.perms");
+	}
+
+	private static PermissionMapping load(String resource) throws Exception {
+		InputStream in = PermissionMappingTest.class
+				.getResourceAsStream(resource);
+		Assert.assertNotNull(in);
+		try {
+			return PermissionMapping.read(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testSameMethodsByPermission() {
+		Assert.assertEquals(serialized.keySet(), converted.getPermissions());
+		for (String permission : serialized.keySet()) {
+			Assert.assertEquals(permission, serialized.get(permission),
+					converted.getMethods(permission));
+		}
+		Assert.assertTrue(converted.getMethods("no.such.PERMISSION").isEmpty());
+	}
+
+	@Test
+	public void testSamePermissionsByMethod() {
+		Multimap<String, String> byMethod = HashMultimap.create();
+		for (Map.Entry<String, Set<String>> e : serialized.entrySet()) {
+			for (String method : e.getValue()) {
+				byMethod.put(method, e.getKey());
+			}
+		}
+		for (String method : byMethod.keySet()) {
+			Assert.assertEquals(method, byMethod.get(method),
+					converted.getPermissions(method));
+		}
+		Assert.assertTrue(converted.getPermissions("java/lang/Object.wait()V")
+				.isEmpty());
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PermissionMapping.fromMap(serialized).write(bytes);
+		PermissionMapping copy = PermissionMapping
+				.read(new ByteArrayInputStream(bytes.toByteArray()));
+		for (String permission : serialized.keySet()) {
+			Assert.assertEquals(permission, serialized.get(permission),
+					copy.getMethods(permission));
+		}
+	}
+
+	@Test
+	public void testSameSpecs() throws Exception {
+		ISpecs fromSerialized = specs("/data/gingerbread_allmappings_HashMap.bin");
+		ISpecs fromConverted = specs("/data/gingerbread_allmappings.perms");
+		Assert.assertEquals(describe(fromSerialized.getSourceSpecs()),
+				describe(fromConverted.getSourceSpecs()));
+		Assert.assertEquals(describe(fromSerialized.getSinkSpecs()),
+				describe(fromConverted.getSinkSpecs()));
+	}
+
+	private static ISpecs specs(String resource) throws Exception {
+		InputStream in = PermissionMappingTest.class
+				.getResourceAsStream(resource);
+		Assert.assertNotNull(in);
+		try {
+			return new PermissionMappingSpecs(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	// the specs do not define equals, so compare them by description
+	private static List<String> describe(Object[] specs) {
+		List<String> result = Lists.newArrayList();
+		for (Object spec : specs) {
+			result.add(spec.toString());
+		}
+		Collections.sort(result);
+		return result;
+	}
+}
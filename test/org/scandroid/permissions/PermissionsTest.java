@@ -0,0 +1,108 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.permissions;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.scandroid.Permissions;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Checks the prefix lookups of {@link Permissions} against testing every
+ * rule in turn.
+ */
+public class PermissionsTest {
+
+	private static final String[] PREFIXES = { "content://some.authority1",
+			"content://some.other.authority1", "content://some.authority2",
+			"content://some.other.authority2", "content://some.authority3",
+			"content://some.other.authority3" };
+
+	private static Set<String> linear(String uri, String kind) {
+		Set<String> perms = new HashSet<String>();
+		for (int i = 0; i < PREFIXES.length; i++) {
+			if (uri.startsWith(PREFIXES[i])) {
+				perms.add(kind + (i + 1));
+			}
+		}
+		return perms;
+	}
+
+	@Test
+	public void testKnownUris() {
+		Permissions perms = new Permissions();
+		Assert.assertEquals(Sets.newHashSet("READ1"),
+				perms.readPerms("content://some.authority1"));
+		Assert.assertEquals(Sets.newHashSet("WRITE4"),
+				perms.writePerms("content://some.other.authority2/items/4"));
+		// authority1 is a prefix of authority10
+		Assert.assertEquals(Sets.newHashSet("READ1"),
+				perms.readPerms("content://some.authority10"));
+		Assert.assertTrue(perms.readPerms("content://some.authority")
+				.isEmpty());
+		Assert.assertTrue(perms.writePerms("").isEmpty());
+		Assert.assertTrue(perms.writePerms("http://some.authority1")
+				.isEmpty());
+	}
+
+	@Test
+	public void testMatchesLinearScan() {
+		Permissions perms = new Permissions();
+		Random random = new Random(24);
+		String alphabet = "/.:acemnorstuhy0123";
+		for (int round = 0; round < 2000; round++) {
+			String prefix = PREFIXES[random.nextInt(PREFIXES.length)];
+			StringBuilder uri = new StringBuilder(prefix.substring(0,
+					random.nextInt(prefix.length() + 1)));
+			int extra = random.nextInt(8);
+			for (int i = 0; i < extra; i++) {
+				uri.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			String u = uri.toString();
+			Assert.assertEquals(u, linear(u, "READ"), perms.readPerms(u));
+			Assert.assertEquals(u, linear(u, "WRITE"), perms.writePerms(u));
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.spec;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.scandroid.synthmethod.DefaultSCanDroidOptions;
+import org.scandroid.util.AndroidAnalysisContext;
+import org.scandroid.util.LoaderUtils;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.dex.util.config.DexAnalysisScopeReader;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.io.FileProvider;
+
+/**
+ * Checks the listener callbacks found in the analysis hierarchy against the
+ * ones found in a hierarchy over the Android library alone, under the
+ * default configuration of conf/primordial.txt.
+ */
+public class AndroidSpecsTest {
+
+	@Test
+	public void testCallBacksMatchLibraryHierarchy() throws Exception {
+		final DefaultSCanDroidOptions options = new DefaultSCanDroidOptions() {
+			@Override
+			public URI getClasspath() {
+				return new File("data/testdata/testJar-1.0-SNAPSHOT.jar")
+						.toURI();
+			}
+
+			@Override
+			public boolean stdoutCG() {
+				return false;
+			}
+		};
+		final File exclusions = new FileProvider().getFile("conf"
+				+ File.separator + "Java60RegressionExclusions.txt");
+
+		// the library in the Application loader, behind the standard
+		// library, which skips the classes the standard library defines
+		AnalysisScope scope = DexAnalysisScopeReader
+				.makeAndroidBinaryAnalysisScope(options.getAndroidLibrary(),
+						exclusions);
+		scope.setLoaderImpl(ClassLoaderReference.Application,
+				"com.ibm.wala.classLoader.WDexClassLoaderImpl");
+		scope.setLoaderImpl(ClassLoaderReference.Primordial,
+				"com.ibm.wala.classLoader.WDexClassLoaderImpl");
+		AndroidSpecs.addPossibleListeners(Iterables.filter(
+				ClassHierarchy.make(scope), new Predicate<IClass>() {
+					@Override
+					public boolean apply(IClass c) {
+						return LoaderUtils.fromLoader(c,
+								ClassLoaderReference.Application);
+					}
+				}));
+		final Set<String> expected = callBacks();
+
+		new AndroidAnalysisContext(options, exclusions);
+		Assert.assertEquals(expected, callBacks());
+	}
+
+	private static Set<String> callBacks() {
+		Set<String> names = Sets.newHashSet();
+		for (MethodNamePattern pattern : AndroidSpecs.getCallBacks()) {
+			names.add(pattern.getClassName() + "." + pattern.getMemberName());
+		}
+		return names;
+	}
+}
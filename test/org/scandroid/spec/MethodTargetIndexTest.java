@@ -0,0 +1,109 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.spec;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.scandroid.synthmethod.DefaultSCanDroidOptions;
+import org.scandroid.util.AndroidAnalysisContext;
+
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+
+/**
+ * Checks that the index of a class hierarchy lives as long as the analysis
+ * context owning the hierarchy, and no longer.
+ */
+public class MethodTargetIndexTest {
+	private static final MethodNamePattern PATTERN = new MethodNamePattern(
+			"Lorg/scandroid/testing/SourceSink", "load");
+
+	@Test
+	public void testIndexKeptWithContext() throws Exception {
+		AndroidAnalysisContext context = makeContext();
+		WeakReference<MethodTargetIndex> index = new WeakReference<MethodTargetIndex>(
+				MethodTargetIndex.forHierarchy(context.getClassHierarchy()));
+		System.gc();
+		Assert.assertNotNull(index.get());
+		Assert.assertSame(index.get(),
+				MethodTargetIndex.forHierarchy(context.getClassHierarchy()));
+	}
+
+	@Test
+	public void testHierarchyCollected() throws Exception {
+		WeakReference<IClassHierarchy> ref = lookUpAndDrop();
+		for (int i = 0; i < 20 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		Assert.assertTrue("class hierarchy still reachable",
+				ref.get() == null);
+	}
+
+	/**
+	 * Fills the index of a fresh hierarchy, keeping no strong reference to
+	 * the hierarchy or its context.
+	 */
+	private static WeakReference<IClassHierarchy> lookUpAndDrop()
+			throws Exception {
+		AndroidAnalysisContext context = makeContext();
+		IClassHierarchy cha = context.getClassHierarchy();
+		Assert.assertFalse(PATTERN.getPossibleTargets(cha).isEmpty());
+		return new WeakReference<IClassHierarchy>(cha);
+	}
+
+	private static AndroidAnalysisContext makeContext() throws Exception {
+		return new AndroidAnalysisContext(new DefaultSCanDroidOptions() {
+			@Override
+			public URI getClasspath() {
+				return new File("data/testdata/testJar-1.0-SNAPSHOT.jar")
+						.toURI();
+			}
+
+			@Override
+			public boolean stdoutCG() {
+				return false;
+			}
+		});
+	}
+}
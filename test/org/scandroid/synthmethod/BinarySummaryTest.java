@@ -0,0 +1,127 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.synthmethod;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.summaries.MethodSummary;
+import com.ibm.wala.ipa.summaries.XMLMethodSummaryReader;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+
+/**
+ * Writes the WALA native summaries in the binary format and checks that they
+ * read back the same as from the XML.
+ */
+public class BinarySummaryTest {
+
+	private static AnalysisScope scope;
+	private static XMLMethodSummaryReader xml;
+	private static BinarySummaryReader binary;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		scope = AnalysisScope.createJavaAnalysisScope();
+		InputStream in = BinarySummaryTest.class
+				.getResourceAsStream("/data/MethodSummaries.xml");
+		Assert.assertNotNull(in);
+		try {
+			xml = new XMLMethodSummaryReader(in, scope);
+		} finally {
+			in.close();
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinarySummaryWriter writer = new BinarySummaryWriter(bytes);
+		for (MethodSummary summary : xml.getSummaries().values()) {
+			writer.add(summary);
+		}
+		for (TypeReference type : xml.getAllocatableClasses()) {
+			writer.addAllocatable(type);
+		}
+		writer.close();
+		binary = new BinarySummaryReader(ByteBuffer.wrap(bytes.toByteArray()),
+				scope);
+	}
+
+	@Test
+	public void testSameMethods() {
+		Assert.assertEquals(xml.getSummaries().keySet(), binary.getMethods());
+		Assert.assertEquals(xml.getAllocatableClasses(),
+				binary.getAllocatableClasses());
+	}
+
+	@Test
+	public void testSameSummaries() {
+		for (Map.Entry<MethodReference, MethodSummary> e : xml.getSummaries()
+				.entrySet()) {
+			MethodSummary expected = e.getValue();
+			MethodSummary actual = binary.getSummary(e.getKey());
+			String method = e.getKey().getSignature();
+			Assert.assertEquals(method, expected.isStatic(), actual.isStatic());
+			Assert.assertEquals(method, expected.isFactory(), actual.isFactory());
+			Assert.assertEquals(method, expected.getPoison(), actual.getPoison());
+			Assert.assertEquals(method, expected.getPoisonLevel(),
+					actual.getPoisonLevel());
+			Assert.assertEquals(method, expected.getConstants(),
+					actual.getConstants());
+			Assert.assertEquals(method,
+					Arrays.toString(expected.getStatements()),
+					Arrays.toString(actual.getStatements()));
+		}
+	}
+
+	@Test
+	public void testSummaryIsDecodedOnce() {
+		MethodReference method = binary.getMethods().iterator().next();
+		Assert.assertSame(binary.getSummary(method), binary.getSummary(method));
+		Assert.assertNull(binary.getSummary(MethodReference.findOrCreate(
+				TypeReference.JavaLangObject, MethodReference.clinitSelector)));
+	}
+}
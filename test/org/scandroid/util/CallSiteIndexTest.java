@@ -0,0 +1,141 @@
+/**
+ *
+ * Copyright (c) 2009-2012,
+ *
+ *  Galois, Inc. (Aaron Tomb <atomb@galois.com>, 
+ *                Rogan Creswick <creswick@galois.com>, 
+ *                Adam Foltzer <acfoltzer@galois.com>)
+ *  Steve Suh    <suhsteve@gmail.com>
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * 3. The names of the contributors may not be used to endorse or promote
+ * products derived from this software without specific prior written
+ * permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ *
+ */
+package org.scandroid.util;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.scandroid.spec.MethodNamePattern;
+import org.scandroid.synthmethod.DefaultSCanDroidOptions;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.summaries.SummarizedMethod;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.util.strings.StringStuff;
+
+/**
+ * Looks up nodes and call sites the way the sink specs do, through the
+ * methods of the class hierarchy.
+ */
+public class CallSiteIndexTest {
+	private static final MethodReference SOURCE = StringStuff
+			.makeMethodReference("org.scandroid.testing.SourceSink.source()Ljava/lang/Integer;");
+
+	private static CGAnalysisContext<IExplodedBasicBlock> ctx;
+
+	@BeforeClass
+	public static void buildCallGraph() throws Exception {
+		AndroidAnalysisContext analysisContext = new AndroidAnalysisContext(
+				new DefaultSCanDroidOptions() {
+					@Override
+					public URI getClasspath() {
+						return new File(
+								"data/testdata/testJar-1.0-SNAPSHOT.jar")
+								.toURI();
+					}
+
+					@Override
+					public boolean stdoutCG() {
+						return false;
+					}
+				});
+		ctx = new CGAnalysisContext<IExplodedBasicBlock>(analysisContext,
+				new IEntryPointSpecifier() {
+					@Override
+					public List<Entrypoint> specify(
+							AndroidAnalysisContext analysisContext) {
+						return Lists.newArrayList((Entrypoint) new DefaultEntrypoint(
+								SOURCE, analysisContext.getClassHierarchy()));
+					}
+				});
+	}
+
+	@Test
+	public void testSinkOnSummarizedMethod() {
+		Collection<IMethod> targets = new MethodNamePattern(
+				"Ljava/lang/System", "currentTimeMillis")
+				.getPossibleTargets(ctx.getClassHierarchy());
+		Assert.assertFalse(targets.isEmpty());
+
+		CallSiteIndex index = ctx.getCallSiteIndex();
+		for (IMethod target : targets) {
+			Collection<CGNode> nodes = index.getNodes(target);
+			Assert.assertEquals(
+					Sets.newHashSet(ctx.cg.getNodes(target.getReference())),
+					Sets.newHashSet(nodes));
+			Assert.assertFalse(nodes.isEmpty());
+			for (CGNode node : nodes) {
+				// the bypass summary stands in for the library method
+				Assert.assertTrue(node.getMethod() instanceof SummarizedMethod);
+			}
+
+			Collection<CallSiteIndex.Site> sites = index.getCallSites(target);
+			Assert.assertEquals(1, sites.size());
+			CallSiteIndex.Site site = sites.iterator().next();
+			Assert.assertEquals(SOURCE, site.caller.getMethod().getReference());
+			// the declared target names the class in the caller's loader
+			Assert.assertEquals(target.getSelector(), site.invoke
+					.getDeclaredTarget().getSelector());
+			Assert.assertEquals(target.getDeclaringClass().getName(), site.invoke
+					.getDeclaredTarget().getDeclaringClass().getName());
+			Assert.assertEquals(site.caller, site.getBlock().getNode());
+		}
+	}
+
+	@Test
+	public void testNodesOfApplicationMethod() {
+		IMethod source = ctx.getClassHierarchy().resolveMethod(SOURCE);
+		Assert.assertEquals(
+				Sets.newHashSet(ctx.cg.getNodes(SOURCE)),
+				Sets.newHashSet(ctx.getCallSiteIndex().getNodes(source)));
+		Assert.assertFalse(ctx.getCallSiteIndex().getNodes(source).isEmpty());
+	}
+}